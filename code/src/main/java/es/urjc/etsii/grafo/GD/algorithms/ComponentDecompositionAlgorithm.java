@@ -0,0 +1,131 @@
+package es.urjc.etsii.grafo.GD.algorithms;
+
+import es.urjc.etsii.grafo.GD.model.ComponentDecomposition;
+import es.urjc.etsii.grafo.GD.model.GDInstance;
+import es.urjc.etsii.grafo.GD.model.GDSolution;
+import es.urjc.etsii.grafo.algorithms.Algorithm;
+import es.urjc.etsii.grafo.algorithms.SolutionBuilder;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Split the instance in its connected components, solve each component with its own instance of the given algorithm
+ * in its own thread, and stitch the solutions of the components together (see ComponentDecomposition).
+ * Instances with a single component, or whose components do not fit side by side (see
+ * ComponentDecomposition.isStitchable), are solved directly by the given algorithm
+ */
+public class ComponentDecompositionAlgorithm extends Algorithm<GDSolution, GDInstance> {
+
+    /**
+     * Factory of the algorithm used to solve each component. Algorithms keep state while they run, so each component
+     * is solved by a new instance of the algorithm
+     */
+    private final Supplier<Algorithm<GDSolution, GDInstance>> algorithmFactory;
+
+    /**
+     * Algorithm created by the factory to describe the algorithm, never executed
+     */
+    private final Algorithm<GDSolution, GDInstance> description;
+
+    /**
+     * Maximum number of components solved at the same time
+     */
+    private final int nThreads;
+
+    /**
+     * Builder of the solutions, given to every algorithm created by the factory
+     */
+    private SolutionBuilder<GDSolution, GDInstance> builder;
+
+    /**
+     * Create a decomposition algorithm that solves as many components at the same time as available processors
+     *
+     * @param algorithmFactory factory of the algorithm used to solve each component
+     */
+    public ComponentDecompositionAlgorithm(Supplier<Algorithm<GDSolution, GDInstance>> algorithmFactory) {
+        this(algorithmFactory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a decomposition algorithm
+     *
+     * @param algorithmFactory factory of the algorithm used to solve each component, which must return a new
+     *                         algorithm on every call
+     * @param nThreads         maximum number of components solved at the same time
+     */
+    public ComponentDecompositionAlgorithm(Supplier<Algorithm<GDSolution, GDInstance>> algorithmFactory, int nThreads) {
+        if (nThreads < 1) {
+            throw new IllegalArgumentException("Component decomposition error: nThreads < 1");
+        }
+        this.algorithmFactory = algorithmFactory;
+        this.description = algorithmFactory.get();
+        this.nThreads = nThreads;
+    }
+
+    @Override
+    public GDSolution algorithm(GDInstance instance) {
+        var decomposition = new ComponentDecomposition(instance);
+        if (decomposition.getNumberOfComponents() <= 1 || !decomposition.isStitchable()) {
+            return this.newAlgorithm().algorithm(instance);
+        }
+        var solutionOfComponent = solveComponents(decomposition);
+        var solution = decomposition.stitch(this.newSolution(instance), solutionOfComponent);
+        solution.getScore();
+        solution.updateLastModifiedTime();
+        return solution;
+    }
+
+    /**
+     * Create an algorithm with the factory, ready to be executed
+     *
+     * @return new algorithm
+     */
+    private Algorithm<GDSolution, GDInstance> newAlgorithm() {
+        var algorithm = this.algorithmFactory.get();
+        algorithm.setBuilder(this.builder);
+        return algorithm;
+    }
+
+    private GDSolution[] solveComponents(ComponentDecomposition decomposition) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.nThreads, decomposition.getNumberOfComponents()));
+        try {
+            var futures = new ArrayList<Future<GDSolution>>(decomposition.getNumberOfComponents());
+            for (int c = 0; c < decomposition.getNumberOfComponents(); c++) {
+                var component = decomposition.getComponent(c);
+                var algorithm = this.newAlgorithm();
+                futures.add(executor.submit(() -> algorithm.algorithm(component)));
+            }
+            var solutionOfComponent = new GDSolution[futures.size()];
+            for (int c = 0; c < futures.size(); c++) {
+                solutionOfComponent[c] = futures.get(c).get();
+            }
+            return solutionOfComponent;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Component decomposition interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Component decomposition error: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void setBuilder(SolutionBuilder<GDSolution, GDInstance> builder) {
+        super.setBuilder(builder);
+        this.builder = builder;
+    }
+
+    @Override
+    public String toString() {
+        return "CD{" +
+                "alg=" + description +
+                ", nThreads=" + nThreads +
+                '}';
+    }
+}
@@ -0,0 +1,183 @@
+package es.urjc.etsii.grafo.GD.algorithms;
+
+import es.urjc.etsii.grafo.GD.model.GDInstance;
+import es.urjc.etsii.grafo.GD.model.GDSolution;
+import es.urjc.etsii.grafo.algorithms.Algorithm;
+import es.urjc.etsii.grafo.algorithms.SolutionBuilder;
+import es.urjc.etsii.grafo.create.Constructive;
+import es.urjc.etsii.grafo.improve.Improver;
+
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multi-start algorithm that executes the given algorithm until the maximum number of iterations, the maximum number
+ * of iterations without improving the best solution or the time limit is reached, or until the best solution reaches
+ * the lower bound of the instance (see GDInstance.getLowerBound), since it is optimal.
+ * <p>
+ * When it is given a constructive and an improver instead of an algorithm, the layouts built and improved in previous
+ * iterations are remembered by their hash (see GDSolution.getLayoutHash), and a constructed layout that has already
+ * been seen is not improved again, since it would lead to a solution that has already been found
+ */
+public class LowerBoundMultiStartAlgorithm extends Algorithm<GDSolution, GDInstance> {
+
+    /**
+     * Name of the algorithm in the results, or null to identify it by its parameters
+     */
+    private final String name;
+
+    /**
+     * Algorithm executed in each iteration, or null if a constructive and an improver are given
+     */
+    private final Algorithm<GDSolution, GDInstance> algorithm;
+
+    /**
+     * Constructive executed in each iteration, or null if an algorithm is given
+     */
+    private final Constructive<GDSolution, GDInstance> constructive;
+
+    /**
+     * Improver of the constructed solutions, or null if an algorithm is given
+     */
+    private final Improver<GDSolution, GDInstance> improver;
+
+    /**
+     * Maximum number of iterations
+     */
+    private final int maxIterations;
+
+    /**
+     * Maximum number of consecutive iterations without improving the best solution
+     */
+    private final int maxIterationsWithoutImproving;
+
+    /**
+     * Time limit in nanoseconds
+     */
+    private final long timeLimit;
+
+    /**
+     * Create a multi-start algorithm
+     *
+     * @param algorithm                     algorithm executed in each iteration
+     * @param maxIterations                 maximum number of iterations
+     * @param maxIterationsWithoutImproving maximum number of consecutive iterations without improving the best solution
+     * @param time                          time limit
+     * @param unit                          unit of the time limit
+     */
+    public LowerBoundMultiStartAlgorithm(Algorithm<GDSolution, GDInstance> algorithm, int maxIterations, int maxIterationsWithoutImproving, long time, TimeUnit unit) {
+        this(null, algorithm, maxIterations, maxIterationsWithoutImproving, time, unit);
+    }
+
+    /**
+     * Create a multi-start algorithm with a name, to tell apart several multi-start algorithms of an experiment
+     *
+     * @param name                          name of the algorithm in the results
+     * @param algorithm                     algorithm executed in each iteration
+     * @param maxIterations                 maximum number of iterations
+     * @param maxIterationsWithoutImproving maximum number of consecutive iterations without improving the best solution
+     * @param time                          time limit
+     * @param unit                          unit of the time limit
+     */
+    public LowerBoundMultiStartAlgorithm(String name, Algorithm<GDSolution, GDInstance> algorithm, int maxIterations, int maxIterationsWithoutImproving, long time, TimeUnit unit) {
+        this(name, algorithm, null, null, maxIterations, maxIterationsWithoutImproving, time, unit);
+    }
+
+    /**
+     * Create a multi-start algorithm that constructs and improves a solution in each iteration, skipping the
+     * improvement of the constructed layouts that have already been seen
+     *
+     * @param name                          name of the algorithm in the results
+     * @param constructive                  constructive executed in each iteration
+     * @param improver                      improver of the constructed solutions
+     * @param maxIterations                 maximum number of iterations
+     * @param maxIterationsWithoutImproving maximum number of consecutive iterations without improving the best solution
+     * @param time                          time limit
+     * @param unit                          unit of the time limit
+     */
+    public LowerBoundMultiStartAlgorithm(String name, Constructive<GDSolution, GDInstance> constructive, Improver<GDSolution, GDInstance> improver, int maxIterations, int maxIterationsWithoutImproving, long time, TimeUnit unit) {
+        this(name, null, constructive, improver, maxIterations, maxIterationsWithoutImproving, time, unit);
+    }
+
+    private LowerBoundMultiStartAlgorithm(String name, Algorithm<GDSolution, GDInstance> algorithm, Constructive<GDSolution, GDInstance> constructive, Improver<GDSolution, GDInstance> improver, int maxIterations, int maxIterationsWithoutImproving, long time, TimeUnit unit) {
+        if (maxIterations < 1) {
+            throw new IllegalArgumentException("Multi-start error: maxIterations < 1");
+        }
+        if (maxIterationsWithoutImproving < 1) {
+            throw new IllegalArgumentException("Multi-start error: maxIterationsWithoutImproving < 1");
+        }
+        if (time <= 0) {
+            throw new IllegalArgumentException("Multi-start error: time <= 0");
+        }
+        this.name = name;
+        this.algorithm = algorithm;
+        this.constructive = constructive;
+        this.improver = improver;
+        this.maxIterations = maxIterations;
+        this.maxIterationsWithoutImproving = maxIterationsWithoutImproving;
+        this.timeLimit = unit.toNanos(time);
+    }
+
+    @Override
+    public GDSolution algorithm(GDInstance instance) {
+        long start = System.nanoTime();
+        GDSolution best = null;
+        var seenLayouts = new HashSet<Long>();
+        int iterationsWithoutImproving = 0;
+        for (int i = 0; i < this.maxIterations && iterationsWithoutImproving < this.maxIterationsWithoutImproving; i++) {
+            // The layout of the first iteration has never been seen, so best is never null after it.
+            // A solution with the same layout as the best one is a repetition of it, not an improvement
+            var solution = this.nextSolution(instance, seenLayouts);
+            if (solution != null && (best == null || !solution.sameLayout(best) && solution.isBetterThan(best))) {
+                best = solution;
+                iterationsWithoutImproving = 0;
+            } else {
+                iterationsWithoutImproving++;
+            }
+            // The lower bound of the instance is reached, so no other iteration can improve the best solution
+            if (best.getGap() == 0 || System.nanoTime() - start >= this.timeLimit) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Get the solution of an iteration
+     *
+     * @param instance    instance
+     * @param seenLayouts hashes of the layouts constructed or improved in previous iterations
+     * @return solution of the iteration, or null if the constructed layout has already been seen
+     */
+    private GDSolution nextSolution(GDInstance instance, HashSet<Long> seenLayouts) {
+        if (this.algorithm != null) {
+            return this.algorithm.algorithm(instance);
+        }
+        var solution = this.constructive.construct(this.newSolution(instance));
+        if (!seenLayouts.add(solution.getLayoutHash())) {
+            return null;
+        }
+        solution = this.improver.improve(solution);
+        seenLayouts.add(solution.getLayoutHash());
+        return solution;
+    }
+
+    @Override
+    public void setBuilder(SolutionBuilder<GDSolution, GDInstance> builder) {
+        super.setBuilder(builder);
+        if (this.algorithm != null) {
+            this.algorithm.setBuilder(builder);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LBMS{" +
+                (name == null ? "" : "name=" + name + ", ") +
+                (algorithm != null ? "alg=" + algorithm : "constructive=" + constructive + ", improver=" + improver) +
+                ", maxIterations=" + maxIterations +
+                ", maxIterationsWithoutImproving=" + maxIterationsWithoutImproving +
+                ", timeLimit=" + TimeUnit.NANOSECONDS.toMillis(timeLimit) + "ms" +
+                '}';
+    }
+}
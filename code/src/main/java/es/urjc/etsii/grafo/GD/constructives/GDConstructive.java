@@ -1,5 +1,6 @@
 package es.urjc.etsii.grafo.GD.constructives;
 
+import es.urjc.etsii.grafo.GD.model.CrossingKernels;
 import es.urjc.etsii.grafo.GD.model.GDInstance;
 import es.urjc.etsii.grafo.GD.model.GDSolution;
 import es.urjc.etsii.grafo.create.Constructive;
@@ -82,11 +83,15 @@ public class GDConstructive extends Constructive<GDSolution, GDInstance> {
         var tabuMemory = new TabuMemory(sizeOfTabuMemory, solution.getInstance());
         GDSolution bestSolution = solution.cloneSolution();
         bestSolution.setScore(Integer.MAX_VALUE / 2);
+        // Repeated layouts can not improve the best solution, so they are not evaluated
+        HashSet<Long> seenLayouts = new HashSet<>();
         for (int i = 0; i < iterations; i++) {
             GDSolution s = solution.cloneSolution();
             if (constructSolution(s, tabuMemory)) {
-                if (s.isBetterThan(bestSolution)) {
+                if (seenLayouts.add(s.getLayoutHash()) && s.isBetterThan(bestSolution)) {
                     bestSolution = s;
+                    // The lower bound of the instance is reached, so no other layout can improve the best solution
+                    if (bestSolution.getGap() == 0) break;
                 }
 //            } else {
 //                i--;
@@ -110,7 +115,10 @@ public class GDConstructive extends Constructive<GDSolution, GDInstance> {
         for (int layer = 0; layer < solution.getInstance().NumberOfLayers(); layer++) {
             addedEdges.put(layer, new ArrayList<>());
         }
-        boolean[][] used = new boolean[ins.NumberOfLayers()][ins.NumVerticesInLayer()];
+        boolean[][] used = new boolean[ins.NumberOfLayers()][];
+        for (int layer = 0; layer < ins.NumberOfLayers(); layer++) {
+            used[layer] = new boolean[ins.NumVerticesInLayer(layer)];
+        }
         if (!addLongEdges(solution, ins, used, tabuMemory, addedVertices, addedEdges)) return false;
         return addRemainingVertices(solution, ins, used, addedVertices, addedEdges);
     }
@@ -308,6 +316,8 @@ public class GDConstructive extends Constructive<GDSolution, GDInstance> {
         } else {
             medianPosition = (medianPosition + positionsOfAdjacentVertices.get(median - 1)) / 2;
         }
+        // Adjacent vertices may be located in a wider layer
+        medianPosition = Math.min(medianPosition, layers[layerOfLongEdge].length - 1);
         for (int pos = 0; pos < layers[layerOfLongEdge].length; pos++) {
             int a = medianPosition - pos - 1;
             int b = medianPosition + pos;
@@ -365,6 +375,8 @@ public class GDConstructive extends Constructive<GDSolution, GDInstance> {
         } else {
             medianPosition = (medianPosition + positionsOfAdjacentVertices.get(median - 1)) / 2;
         }
+        // Adjacent vertices may be located in a wider layer
+        medianPosition = Math.min(medianPosition, layers[layerOfLongEdge].length - 1);
         for (int pos = 0; pos < layers[layerOfLongEdge].length; pos++) {
             int a = medianPosition - pos - 1;
             int b = medianPosition + pos;
@@ -444,11 +456,54 @@ public class GDConstructive extends Constructive<GDSolution, GDInstance> {
                 if (this.selectionCriteria == InputVertexSelectionCriteria.MCALLISTER) {
                     updateListByMcallister(listOfReamingVertices, v, mcallister, ins);
                 }
+                addTwins(solution, used, v, availablePositions, ins, listOfReamingVertices, mcallister, addedVertices, addedEdges);
             }
         }
         return true;
     }
 
+    /**
+     * Add the twins of a vertex that has just been added to the solution. Twins have the same adjacent vertices,
+     * so the remaining best positions of the vertex are also the best positions of its twins.
+     * Twins are added while there are best positions left, the rest of them are added later as any other vertex
+     *
+     * @param solution              solution to be constructed
+     * @param used                  used positions of the solution
+     * @param v                     vertex just added
+     * @param availablePositions    best positions of the vertex
+     * @param ins                   instance
+     * @param listOfReamingVertices list of vertices not added yet
+     * @param mcallister            mcallister map
+     * @param addedVertices         vertices added to the solution
+     * @param addedEdges            edges added to the solution, grouped by the layer of their source vertex
+     */
+    private void addTwins(GDSolution solution, boolean[][] used, int v, ArrayList<Integer> availablePositions, GDInstance ins, ArrayList<Integer> listOfReamingVertices, HashMap<Integer, Double> mcallister, HashSet<Integer> addedVertices, HashMap<Integer, ArrayList<GDInstance.Edge>> addedEdges) {
+        var usedInLayer = used[ins.getLayerOfVertex(v)];
+        for (int twin : ins.getTwinsOfVertex(v)) {
+            if (!addedVertices.contains(twin)) {
+                availablePositions.removeIf(p -> usedInLayer[p]);
+                if (availablePositions.isEmpty()) {
+                    return;
+                }
+                listOfReamingVertices.remove((Integer) twin);
+                for (Integer adjV : ins.getAdjacentShortVertexListOfVertex(twin, GDInstance.TYPE_OF_ADJACENT_VERTEX.SOURCE)) {
+                    if (addedVertices.contains(adjV)) {
+                        addedEdges.get(ins.getLayerOfVertex(twin)).add(new GDInstance.Edge(twin, adjV));
+                    }
+                }
+                for (Integer adjV : ins.getAdjacentShortVertexListOfVertex(twin, GDInstance.TYPE_OF_ADJACENT_VERTEX.TARGET)) {
+                    if (addedVertices.contains(adjV)) {
+                        addedEdges.get(ins.getLayerOfVertex(adjV)).add(new GDInstance.Edge(adjV, twin));
+                    }
+                }
+                addVertex(solution, used, CollectionUtil.pickRandom(availablePositions), twin, addedVertices);
+                if (this.selectionCriteria == InputVertexSelectionCriteria.MCALLISTER) {
+                    updateListByMcallister(listOfReamingVertices, twin, mcallister, ins);
+                }
+            }
+        }
+    }
+
     private void sortListOfRemainingVertices(ArrayList<Integer> listOfReamingVertices, GDInstance ins, HashMap<Integer, Double> mcallister, HashSet<Integer> addedVertices) {
         if (listOfReamingVertices.size() > 1) {
             if (this.selectionCriteria == InputVertexSelectionCriteria.RANDOM) {
@@ -542,6 +597,8 @@ public class GDConstructive extends Constructive<GDSolution, GDInstance> {
         } else {
             medianPosition = (medianPosition + positionsOfAdjacentVertices.get(median - 1)) / 2;
         }
+        // Adjacent vertices may be located in a wider layer
+        medianPosition = Math.min(medianPosition, layers[layer].length - 1);
         for (int pos = 0; pos < layers[layer].length; pos++) {
             int a = medianPosition - pos - 1;
             int b = medianPosition + pos;
@@ -574,13 +631,15 @@ public class GDConstructive extends Constructive<GDSolution, GDInstance> {
         int median = (int) Math.floor(positionsOfAdjacentVertices.size() / 2.0);
         int medianPosition = positionsOfAdjacentVertices.get(median);
         if (positionsOfAdjacentVertices.size() % 2 != 0) {
-            if (!layers[layer][medianPosition]) {
+            if (medianPosition < layers[layer].length && !layers[layer][medianPosition]) {
                 positions.add(medianPosition);
                 return positions;
             }
         } else {
             medianPosition = (medianPosition + positionsOfAdjacentVertices.get(median - 1)) / 2;
         }
+        // Adjacent vertices may be located in a wider layer
+        medianPosition = Math.min(medianPosition, layers[layer].length - 1);
         for (int pos = 0; pos < layers[layer].length; pos++) {
             int a = medianPosition - pos - 1;
             int b = medianPosition + pos;
@@ -616,13 +675,13 @@ public class GDConstructive extends Constructive<GDSolution, GDInstance> {
             }
         }
         var layer = ins.getLayerOfVertex(v);
-        var edgesToCalculateCrossings = addedEdges.get(layer);
-        if (layer - 1 >= 0) {
-            edgesToCalculateCrossings.addAll(addedEdges.get(layer - 1));
-        }
+        // Positions of the endpoints of the edges to compare with, grouped by the layer of their source vertex.
+        // Added edges are indexed by the layer of their source vertex, so their lists are read without merging them
+        int[][] upperEdges = (layer - 1 >= 0) ? getPositionsOfEdges(solution, addedEdges.get(layer - 1), layer - 1) : new int[2][0];
+        int[][] lowerEdges = getPositionsOfEdges(solution, addedEdges.get(layer), layer);
         for (int i = 0; i < used[layer].length; i++) {
             if (!used[layer][i]) {
-                int cuts = calculateCrossings(solution, v, i, edgesToAdd, edgesToCalculateCrossings);
+                int cuts = calculateCrossings(solution, v, i, edgesToAdd, upperEdges, lowerEdges);
                 if (cuts < MinCuts) {
                     MinCuts = cuts;
                     positions = new ArrayList<>();
@@ -639,43 +698,40 @@ public class GDConstructive extends Constructive<GDSolution, GDInstance> {
         return positions;
     }
 
-    private int calculateCrossings(GDSolution solution, int v, int posV, ArrayList<GDInstance.Edge> edgesToAdd, ArrayList<GDInstance.Edge> edgesToCalculateCrossings) {
+    private int calculateCrossings(GDSolution solution, int v, int posV, ArrayList<GDInstance.Edge> edgesToAdd, int[][] upperEdges, int[][] lowerEdges) {
         int cuts = 0;
         for (GDInstance.Edge edge : edgesToAdd) {
-            for (GDInstance.Edge otherEdge : edgesToCalculateCrossings) {
-                if (solution.getInstance().getLayerOfVertex(edge.source()) == solution.getInstance().getLayerOfVertex(otherEdge.source())) {
-                    if (isCut(edge, otherEdge, v, posV, solution)) {
-                        cuts++;
-                    }
-                }
-            }
+            var posU = (edge.source() == v) ? posV : solution.getPositionOfInputVertex(edge.source());
+            var posZ = (edge.target() == v) ? posV : solution.getPositionOfInputVertex(edge.target());
+            var otherEdges = (edge.source() == v) ? lowerEdges : upperEdges;
+            cuts += CrossingKernels.countCrossingsWith(otherEdges[0], otherEdges[1], 0, otherEdges[0].length, posU, posZ);
         }
         return cuts;
     }
 
     /**
-     * Check if there is a cut between two edges (u,v) and (w,z)
+     * Get the positions of the endpoints of the edges whose source vertex is in a given layer
      *
-     * @param edge      (u,v)
-     * @param otherEdge (w,z)
-     * @return true if there is a cut between edges (u,v) and (w,z)
+     * @param solution solution
+     * @param edges    list of edges
+     * @param layer    layer of the source vertices
+     * @return positions of the source vertices and positions of the target vertices
      */
-    private boolean isCut(GDInstance.Edge edge, GDInstance.Edge otherEdge, int vertex, int possiblePos, GDSolution solution) {
-        var posU = (edge.source() == vertex) ? possiblePos : solution.getPositionOfInputVertex(edge.source());
-        var posV = (edge.target() == vertex) ? possiblePos : solution.getPositionOfInputVertex(edge.target());
-        var posW = solution.getPositionOfInputVertex(otherEdge.source());
-        var posZ = solution.getPositionOfInputVertex(otherEdge.target());
-        // check if u and w are the same and check if v and z are the same
-        // if so, there is no cut
-        if (posU == posW) return false;
-        if (posV == posZ) return false;
-        // if posU < posW and posV < posZ, then there is not a cut
-        // or if posU > posW and posV > posZ, then there is not a cut
-        // or if posU < posW and posV > posZ, then there is a cut
-        // or if posU > posW and posV < posZ, then there is a cut
-        if (posU < posW && posV < posZ) {
-            return false;
-        } else return posU <= posW || posV <= posZ;
+    private int[][] getPositionsOfEdges(GDSolution solution, List<GDInstance.Edge> edges, int layer) {
+        int size = 0;
+        for (GDInstance.Edge edge : edges) {
+            if (solution.getLayerOfInputVertex(edge.source()) == layer) size++;
+        }
+        int[][] positions = new int[2][size];
+        int i = 0;
+        for (GDInstance.Edge edge : edges) {
+            if (solution.getLayerOfInputVertex(edge.source()) == layer) {
+                positions[0][i] = solution.getPositionOfInputVertex(edge.source());
+                positions[1][i] = solution.getPositionOfInputVertex(edge.target());
+                i++;
+            }
+        }
+        return positions;
     }
 
     private ArrayList<Integer> getPositionsRandom(boolean[][] used, int v, GDInstance ins) {
@@ -700,7 +756,7 @@ public class GDConstructive extends Constructive<GDSolution, GDInstance> {
      */
     private boolean isValidPosition(boolean[][] used, int layer, int pos, int size) {
         if (size == 0) return true;
-        else if (used[layer][pos]) return false;
+        else if (pos >= used[layer].length || used[layer][pos]) return false;
         else return isValidPosition(used, layer + 1, pos, size - 1);
     }
 
@@ -24,7 +24,10 @@ public class GDRandomConstructive extends Constructive<GDSolution, GDInstance> {
 
     private boolean constructSolution(GDSolution solution) {
         GDInstance ins = solution.getInstance();
-        boolean[][] used = new boolean[ins.NumberOfLayers()][ins.NumVerticesInLayer()];
+        boolean[][] used = new boolean[ins.NumberOfLayers()][];
+        for (int layer = 0; layer < ins.NumberOfLayers(); layer++) {
+            used[layer] = new boolean[ins.NumVerticesInLayer(layer)];
+        }
         if (addLongEdges(solution, ins, used)) return true;
         return addShortEdges(solution, solution, ins, used);
     }
@@ -97,7 +100,7 @@ public class GDRandomConstructive extends Constructive<GDSolution, GDInstance> {
 
     private boolean isValidPosition(boolean[][] layers, int layer, int pos, int size) {
         if (size == 0) return true;
-        else if (layers[layer][pos]) return false;
+        else if (pos >= layers[layer].length || layers[layer][pos]) return false;
         else return isValidPosition(layers, layer + 1, pos, size - 1);
     }
 
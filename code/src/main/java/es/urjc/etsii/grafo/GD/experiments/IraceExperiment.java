@@ -1,15 +1,16 @@
 package es.urjc.etsii.grafo.GD.experiments;
 
+import es.urjc.etsii.grafo.GD.algorithms.LowerBoundMultiStartAlgorithm;
 import es.urjc.etsii.grafo.GD.constructives.GDConstructive;
 import es.urjc.etsii.grafo.GD.model.GDInstance;
 import es.urjc.etsii.grafo.GD.model.GDSolution;
+import es.urjc.etsii.grafo.GD.neighborhood.LocalSearchInsSEBI;
 import es.urjc.etsii.grafo.GD.neighborhood.LocalSearchSwLEBI;
 import es.urjc.etsii.grafo.GD.neighborhood.LocalSearchSwLEFI;
 import es.urjc.etsii.grafo.GD.neighborhood.LocalSearchSwSEBI;
 import es.urjc.etsii.grafo.GD.neighborhood.LocalSearchSwSEFI;
 import es.urjc.etsii.grafo.algorithms.Algorithm;
 import es.urjc.etsii.grafo.algorithms.SimpleAlgorithm;
-import es.urjc.etsii.grafo.algorithms.multistart.MultiStartAlgorithm;
 import es.urjc.etsii.grafo.create.Constructive;
 import es.urjc.etsii.grafo.improve.Improver;
 import es.urjc.etsii.grafo.improve.VND;
@@ -57,7 +58,7 @@ public class IraceExperiment extends IraceAlgorithmGenerator<GDSolution, GDInsta
 
         var algorithm = new SimpleAlgorithm<>(constructive, vnd);
 
-        return MultiStartAlgorithm.<GDSolution, GDInstance>builder().withTime(60, TimeUnit.SECONDS).withMaxIterationsWithoutImproving(100).build(algorithm);
+        return new LowerBoundMultiStartAlgorithm(algorithm, Integer.MAX_VALUE, 100, 60, TimeUnit.SECONDS);
     }
 
 
@@ -117,6 +118,7 @@ public class IraceExperiment extends IraceAlgorithmGenerator<GDSolution, GDInsta
         return switch (LS_SE) {
             case "FI" -> new LocalSearchSwSEFI();
             case "BI" -> new LocalSearchSwSEBI();
+            case "INS" -> new LocalSearchInsSEBI();
             default -> throw new IllegalArgumentException("LS_SE: " + LS_SE);
         };
     }
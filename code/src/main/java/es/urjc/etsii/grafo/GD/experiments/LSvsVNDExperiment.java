@@ -1,5 +1,6 @@
 package es.urjc.etsii.grafo.GD.experiments;
 
+import es.urjc.etsii.grafo.GD.algorithms.LowerBoundMultiStartAlgorithm;
 import es.urjc.etsii.grafo.GD.constructives.GDConstructive;
 import es.urjc.etsii.grafo.GD.constructives.GDRandomConstructive;
 import es.urjc.etsii.grafo.GD.model.GDInstance;
@@ -7,8 +8,6 @@ import es.urjc.etsii.grafo.GD.model.GDSolution;
 import es.urjc.etsii.grafo.GD.neighborhood.LocalSearchSwLEFI;
 import es.urjc.etsii.grafo.GD.neighborhood.LocalSearchSwSEFI;
 import es.urjc.etsii.grafo.algorithms.Algorithm;
-import es.urjc.etsii.grafo.algorithms.SimpleAlgorithm;
-import es.urjc.etsii.grafo.algorithms.multistart.MultiStartAlgorithm;
 import es.urjc.etsii.grafo.improve.Improver;
 import es.urjc.etsii.grafo.improve.VND;
 import es.urjc.etsii.grafo.solver.SolverConfig;
@@ -41,9 +40,9 @@ public class LSvsVNDExperiment extends AbstractExperiment<GDSolution, GDInstance
         list.add(lsLE);
         list.add(lsSE);
         var vnd = new VND<>(list, false);
-        MultiStartAlgorithm<GDSolution, GDInstance> multistartLSLE = MultiStartAlgorithm.<GDSolution, GDInstance>builder().withTime(60, TimeUnit.SECONDS).withAlgorithmName("LSLE").build(new SimpleAlgorithm<>("LSLE", constructive, lsLE));
-        MultiStartAlgorithm<GDSolution, GDInstance> multistartLSSE = MultiStartAlgorithm.<GDSolution, GDInstance>builder().withTime(60, TimeUnit.SECONDS).withAlgorithmName("LSSE").build(new SimpleAlgorithm<>("LSSE", constructive, lsSE));
-        MultiStartAlgorithm<GDSolution, GDInstance> multistartVND = MultiStartAlgorithm.<GDSolution, GDInstance>builder().withTime(60, TimeUnit.SECONDS).withAlgorithmName("MS").build(new SimpleAlgorithm<>(constructive, vnd));
+        var multistartLSLE = new LowerBoundMultiStartAlgorithm("LSLE", constructive, lsLE, Integer.MAX_VALUE, Integer.MAX_VALUE, 60, TimeUnit.SECONDS);
+        var multistartLSSE = new LowerBoundMultiStartAlgorithm("LSSE", constructive, lsSE, Integer.MAX_VALUE, Integer.MAX_VALUE, 60, TimeUnit.SECONDS);
+        var multistartVND = new LowerBoundMultiStartAlgorithm("MS", constructive, vnd, Integer.MAX_VALUE, Integer.MAX_VALUE, 60, TimeUnit.SECONDS);
 
         algorithms.add(multistartLSLE);
         algorithms.add(multistartLSSE);
@@ -1,5 +1,6 @@
 package es.urjc.etsii.grafo.GD.experiments;
 
+import es.urjc.etsii.grafo.GD.algorithms.LowerBoundMultiStartAlgorithm;
 import es.urjc.etsii.grafo.GD.constructives.GDConstructive;
 import es.urjc.etsii.grafo.GD.model.GDInstance;
 import es.urjc.etsii.grafo.GD.model.GDSolution;
@@ -7,8 +8,6 @@ import es.urjc.etsii.grafo.GD.neighborhood.LocalSearchSwLEFI;
 import es.urjc.etsii.grafo.GD.neighborhood.LocalSearchSwSEBI;
 import es.urjc.etsii.grafo.GD.neighborhood.LocalSearchSwSEFI;
 import es.urjc.etsii.grafo.algorithms.Algorithm;
-import es.urjc.etsii.grafo.algorithms.SimpleAlgorithm;
-import es.urjc.etsii.grafo.algorithms.multistart.MultiStartAlgorithm;
 import es.urjc.etsii.grafo.improve.Improver;
 import es.urjc.etsii.grafo.improve.VND;
 import es.urjc.etsii.grafo.solver.SolverConfig;
@@ -49,8 +48,7 @@ public class MultistartVNDExperiment extends AbstractExperiment<GDSolution, GDIn
         list.add(lsLE);
         list.add(lsSE);
         var vnd = new VND<>(list, false);
-        SimpleAlgorithm<GDSolution, GDInstance> simpleAlg = new SimpleAlgorithm<>(constructive, vnd);
-        MultiStartAlgorithm<GDSolution, GDInstance> multistart = MultiStartAlgorithm.<GDSolution, GDInstance>builder().withTime(60, TimeUnit.SECONDS).withMaxIterationsWithoutImproving(100).build(simpleAlg);
+        var multistart = new LowerBoundMultiStartAlgorithm("MS", constructive, vnd, Integer.MAX_VALUE, 100, 60, TimeUnit.SECONDS);
 
         algorithms.add(multistart);
 
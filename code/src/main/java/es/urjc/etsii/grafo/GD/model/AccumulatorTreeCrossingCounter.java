@@ -0,0 +1,137 @@
+package es.urjc.etsii.grafo.GD.model;
+
+import java.util.Arrays;
+
+/**
+ * Bilayer cross counting using the accumulator tree proposed in:
+ * W. Barth, M. Jünger and P. Mutzel. Simple and efficient bilayer cross counting. Journal of Graph Algorithms and Applications, 8(2), 2004.
+ * <p>
+ * Edges are sorted lexicographically by the position of their source and target vertices with two counting sorts,
+ * and then the number of inversions of the sequence of target positions is counted with a complete binary tree
+ * whose leaves are the positions of the target layer. Counting the crossings between two layers takes O(E log V).
+ * <p>
+ * Internal buffers are reused between calls, so an instance of this class must not be shared between threads.
+ */
+class AccumulatorTreeCrossingCounter {
+
+    /**
+     * Buffer used by the counting sorts
+     */
+    private int[] counts = new int[0];
+
+    /**
+     * Edges sorted by the position of their target vertex
+     */
+    private int[] sortedByTarget = new int[0];
+
+    /**
+     * Target positions of the edges sorted lexicographically by (source position, target position)
+     */
+    private int[] southSequence = new int[0];
+
+    /**
+     * Accumulator tree
+     */
+    private int[] tree = new int[0];
+
+    /**
+     * Count the crossings between the edges of two consecutive layers.
+     * Two edges that share an endpoint never cross.
+     *
+     * @param sources    position of the source vertex of each edge
+     * @param targets    position of the target vertex of each edge
+     * @param numEdges   number of edges
+     * @param numSources number of vertices of the source layer
+     * @param numTargets number of vertices of the target layer
+     * @return number of crossings
+     */
+    int countCrossings(int[] sources, int[] targets, int numEdges, int numSources, int numTargets) {
+        if (numEdges < 2) {
+            return 0;
+        }
+        ensureCapacity(numEdges, Math.max(numSources, numTargets));
+        // Counting sort by target position
+        Arrays.fill(counts, 0, numTargets + 1, 0);
+        for (int e = 0; e < numEdges; e++) {
+            counts[targets[e] + 1]++;
+        }
+        for (int p = 0; p < numTargets; p++) {
+            counts[p + 1] += counts[p];
+        }
+        for (int e = 0; e < numEdges; e++) {
+            sortedByTarget[counts[targets[e]]++] = e;
+        }
+        // Stable counting sort by source position
+        Arrays.fill(counts, 0, numSources + 1, 0);
+        for (int e = 0; e < numEdges; e++) {
+            counts[sources[e] + 1]++;
+        }
+        for (int p = 0; p < numSources; p++) {
+            counts[p + 1] += counts[p];
+        }
+        for (int i = 0; i < numEdges; i++) {
+            int e = sortedByTarget[i];
+            southSequence[counts[sources[e]]++] = targets[e];
+        }
+        return countInversions(southSequence, numEdges, numTargets);
+    }
+
+    /**
+     * Count the crossings between the edges of a pair of layers, already sorted by the position of their endpoints
+     *
+     * @param view       edges of the pair of layers sorted by the position of their endpoints
+     * @param numTargets number of vertices of the target layer
+     * @return number of crossings
+     */
+    int countCrossings(LayerPairEdges.SortedView view, int numTargets) {
+        if (view.size() < 2) {
+            return 0;
+        }
+        return countInversions(view.getTargetPositions(), view.size(), numTargets);
+    }
+
+    /**
+     * Count the pairs i < j such that sequence[i] > sequence[j]
+     *
+     * @param sequence   sequence of positions
+     * @param length     length of the sequence
+     * @param numTargets number of different positions
+     * @return number of inversions
+     */
+    private int countInversions(int[] sequence, int length, int numTargets) {
+        int firstIndex = 1;
+        while (firstIndex < numTargets) {
+            firstIndex *= 2;
+        }
+        int treeSize = 2 * firstIndex - 1;
+        firstIndex -= 1;
+        if (tree.length < treeSize) {
+            tree = new int[treeSize];
+        } else {
+            Arrays.fill(tree, 0, treeSize, 0);
+        }
+        int crossings = 0;
+        for (int k = 0; k < length; k++) {
+            int index = sequence[k] + firstIndex;
+            tree[index]++;
+            while (index > 0) {
+                if (index % 2 != 0) {
+                    crossings += tree[index + 1];
+                }
+                index = (index - 1) / 2;
+                tree[index]++;
+            }
+        }
+        return crossings;
+    }
+
+    private void ensureCapacity(int numEdges, int numPositions) {
+        if (counts.length < numPositions + 1) {
+            counts = new int[numPositions + 1];
+        }
+        if (sortedByTarget.length < numEdges) {
+            sortedByTarget = new int[numEdges];
+            southSequence = new int[numEdges];
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package es.urjc.etsii.grafo.GD.model;
+
+import org.javatuples.Triplet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Decomposition of an instance into its connected components.
+ * Edges of different components never cross when the components are located side by side, so each component can be
+ * solved as an independent sub-instance and the solutions of the components stitched together afterwards.
+ * Long edges are always contained in a single component, since their dummy vertices are connected by short edges.
+ * <p>
+ * Each component is placed in the same range of positions in every layer it spans, so the long edges that are aligned
+ * in the solution of a component are also aligned in the stitched solution. Vertices without edges are not solved as
+ * components: they are placed in the positions left free by the components
+ */
+public class ComponentDecomposition {
+
+    /**
+     * Instance to decompose
+     */
+    private final GDInstance instance;
+
+    /**
+     * Sub-instance of each component
+     */
+    private final GDInstance[] components;
+
+    /**
+     * For each component, the vertex of the original instance of each vertex of the sub-instance
+     */
+    private final int[][] originalVertex;
+
+    /**
+     * For each component, the layer of the original instance of the first layer of the sub-instance
+     */
+    private final int[] firstLayer;
+
+    /**
+     * For each component, the position in the stitched solution of the first position of the component, which is the
+     * same in every layer of the component
+     */
+    private final int[] offset;
+
+    /**
+     * Vertices without edges, which are placed directly in the free positions of their layer
+     */
+    private final int[] isolatedVertices;
+
+    /**
+     * True if every component fits in the layers of the instance at its offset
+     */
+    private final boolean stitchable;
+
+    public ComponentDecomposition(GDInstance instance) {
+        this.instance = instance;
+        var isolated = new ArrayList<Integer>();
+        var verticesOfComponents = generateVerticesOfComponents(isolated);
+        this.isolatedVertices = isolated.stream().mapToInt(Integer::intValue).toArray();
+        this.components = new GDInstance[verticesOfComponents.size()];
+        this.originalVertex = new int[verticesOfComponents.size()][];
+        this.firstLayer = new int[verticesOfComponents.size()];
+        // Vertex of the sub-instance of each vertex, and short and long edges of each component, so every edge of the
+        // instance is visited once whatever the number of components
+        int[] componentOfVertex = new int[instance.TotalNumVertices()];
+        int[] subVertex = new int[instance.TotalNumVertices()];
+        var shortEdgesOfComponent = new ArrayList<ArrayList<GDInstance.Edge>>(this.components.length);
+        var longEdgesOfComponent = new ArrayList<ArrayList<GDInstance.Edge>>(this.components.length);
+        for (int c = 0; c < this.components.length; c++) {
+            this.originalVertex[c] = verticesOfComponents.get(c);
+            this.firstLayer[c] = instance.getLayerOfVertex(this.originalVertex[c][0]);
+            for (int i = 0; i < this.originalVertex[c].length; i++) {
+                componentOfVertex[this.originalVertex[c][i]] = c;
+                subVertex[this.originalVertex[c][i]] = i;
+            }
+            shortEdgesOfComponent.add(new ArrayList<>());
+            longEdgesOfComponent.add(new ArrayList<>());
+        }
+        for (GDInstance.Edge edge : instance.getListOfShortEdges()) {
+            shortEdgesOfComponent.get(componentOfVertex[edge.source()]).add(edge);
+        }
+        for (GDInstance.Edge longEdge : instance.getListOfLongEdges()) {
+            longEdgesOfComponent.get(componentOfVertex[longEdge.source()]).add(longEdge);
+        }
+        for (int c = 0; c < this.components.length; c++) {
+            this.components[c] = generateSubInstance(c, subVertex, shortEdgesOfComponent.get(c), longEdgesOfComponent.get(c));
+        }
+        this.offset = new int[this.components.length];
+        this.stitchable = generateOffsets();
+    }
+
+    /**
+     * Group the vertices of the instance with edges by connected component.
+     * Vertices of each component are sorted by layer, and by their order in the layer.
+     * Larger components come first, so they are located on the left side of the stitched solution
+     *
+     * @param isolated list where the vertices without edges are added, which are not part of any component
+     * @return vertices of each component
+     */
+    private ArrayList<int[]> generateVerticesOfComponents(ArrayList<Integer> isolated) {
+        int[] parent = new int[instance.TotalNumVertices()];
+        for (int v = 0; v < parent.length; v++) {
+            parent[v] = v;
+        }
+        for (GDInstance.Edge edge : instance.getListOfShortEdges()) {
+            int u = find(parent, edge.source());
+            int v = find(parent, edge.target());
+            if (u != v) {
+                parent[Math.max(u, v)] = Math.min(u, v);
+            }
+        }
+        HashMap<Integer, ArrayList<Integer>> verticesOfRoot = new HashMap<>();
+        ArrayList<Integer> roots = new ArrayList<>();
+        for (int h = 0; h < instance.NumberOfLayers(); h++) {
+            for (int v : instance.getListOfVerticesInLayer(h)) {
+                if (instance.getDegree(v, GDInstance.TYPE_OF_ADJACENT_VERTEX.ALL) == 0) {
+                    isolated.add(v);
+                    continue;
+                }
+                int root = find(parent, v);
+                if (!verticesOfRoot.containsKey(root)) {
+                    verticesOfRoot.put(root, new ArrayList<>());
+                    roots.add(root);
+                }
+                verticesOfRoot.get(root).add(v);
+            }
+        }
+        roots.sort(Comparator.comparingInt((Integer root) -> verticesOfRoot.get(root).size()).reversed());
+        ArrayList<int[]> verticesOfComponents = new ArrayList<>(roots.size());
+        for (int root : roots) {
+            verticesOfComponents.add(verticesOfRoot.get(root).stream().mapToInt(Integer::intValue).toArray());
+        }
+        return verticesOfComponents;
+    }
+
+    private static int find(int[] parent, int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    /**
+     * Generate the sub-instance of a component. Vertices are renumbered following the order of the component,
+     * and layers are renumbered starting at the first layer of the component
+     *
+     * @param component  component
+     * @param subVertex  vertex of the sub-instance of each vertex of the instance
+     * @param shortEdges short edges of the component
+     * @param longEdges  long edges of the component
+     * @return sub-instance of the component
+     */
+    private GDInstance generateSubInstance(int component, int[] subVertex, ArrayList<GDInstance.Edge> shortEdges, ArrayList<GDInstance.Edge> longEdges) {
+        var vertices = this.originalVertex[component];
+        int numberOfLayers = instance.getLayerOfVertex(vertices[vertices.length - 1]) - this.firstLayer[component] + 1;
+        HashMap<Integer, ArrayList<Integer>> listOfVerticesInLayer = new HashMap<>(numberOfLayers);
+        int[] layerOfVertex = new int[vertices.length];
+        HashSet<Integer> totalListOfVertices = new HashSet<>(vertices.length);
+        HashSet<Integer> listOfRealVertices = new HashSet<>(vertices.length);
+        HashSet<Integer> listOfDummyVertices = new HashSet<>();
+        for (int i = 0; i < vertices.length; i++) {
+            layerOfVertex[i] = instance.getLayerOfVertex(vertices[i]) - this.firstLayer[component];
+            listOfVerticesInLayer.computeIfAbsent(layerOfVertex[i], k -> new ArrayList<>()).add(i);
+            totalListOfVertices.add(i);
+            if (instance.isDummy(vertices[i])) {
+                listOfDummyVertices.add(i);
+            } else {
+                listOfRealVertices.add(i);
+            }
+        }
+        ArrayList<GDInstance.Edge> listOfShortEdges = new ArrayList<>();
+        HashMap<Integer, Triplet<ArrayList<Integer>, ArrayList<Integer>, ArrayList<Integer>>> adjacentListOfShortEdgesOfVertex = new HashMap<>(vertices.length);
+        for (GDInstance.Edge edge : shortEdges) {
+            int source = subVertex[edge.source()];
+            int target = subVertex[edge.target()];
+            listOfShortEdges.add(new GDInstance.Edge(source, target));
+            adjacentListOfShortEdgesOfVertex.computeIfAbsent(source, k -> new Triplet<>(new ArrayList<>(), new ArrayList<>(), new ArrayList<>()));
+            adjacentListOfShortEdgesOfVertex.get(source).getValue0().add(target);
+            adjacentListOfShortEdgesOfVertex.get(source).getValue2().add(target);
+            adjacentListOfShortEdgesOfVertex.computeIfAbsent(target, k -> new Triplet<>(new ArrayList<>(), new ArrayList<>(), new ArrayList<>()));
+            adjacentListOfShortEdgesOfVertex.get(target).getValue1().add(source);
+            adjacentListOfShortEdgesOfVertex.get(target).getValue2().add(source);
+        }
+        ArrayList<GDInstance.Edge> listOfLongEdges = new ArrayList<>();
+        HashMap<GDInstance.Edge, ArrayList<GDInstance.Edge>> listOfShortEdgesOfLongEdge = new HashMap<>();
+        int numDummyEdges = 0;
+        for (GDInstance.Edge longEdge : longEdges) {
+            var subLongEdge = new GDInstance.Edge(subVertex[longEdge.source()], subVertex[longEdge.target()]);
+            var shortEdgesOfLongEdge = new ArrayList<GDInstance.Edge>();
+            for (GDInstance.Edge edge : instance.getListOfShortEdgesOfLongEdge(longEdge)) {
+                shortEdgesOfLongEdge.add(new GDInstance.Edge(subVertex[edge.source()], subVertex[edge.target()]));
+            }
+            numDummyEdges += shortEdgesOfLongEdge.size();
+            listOfLongEdges.add(subLongEdge);
+            listOfShortEdgesOfLongEdge.put(subLongEdge, shortEdgesOfLongEdge);
+        }
+        int numEdges = listOfShortEdges.size();
+        int numRealEdges = numEdges + listOfLongEdges.size() - numDummyEdges;
+        return new GDInstance(instance.getId() + "_c" + component, vertices.length, listOfRealVertices.size(), listOfDummyVertices.size(), numEdges, numRealEdges, listOfLongEdges.size(), numDummyEdges, numberOfLayers,
+                totalListOfVertices, listOfRealVertices, listOfDummyVertices, listOfShortEdges, listOfLongEdges, adjacentListOfShortEdgesOfVertex, listOfShortEdgesOfLongEdge,
+                listOfVerticesInLayer, layerOfVertex);
+    }
+
+    /**
+     * Assign to each component the first free position of the layers it spans, i.e., the maximum number of positions
+     * used in those layers by the previous components. The component takes the same range of positions in all its
+     * layers, so its long edges keep their alignment
+     *
+     * @return true if every component fits in the layers of the instance
+     */
+    private boolean generateOffsets() {
+        int[] used = new int[instance.NumberOfLayers()];
+        boolean fits = true;
+        for (int c = 0; c < components.length; c++) {
+            var component = components[c];
+            int start = 0;
+            for (int h = 0; h < component.NumberOfLayers(); h++) {
+                start = Math.max(start, used[h + firstLayer[c]]);
+            }
+            offset[c] = start;
+            for (int h = 0; h < component.NumberOfLayers(); h++) {
+                int layer = h + firstLayer[c];
+                used[layer] = start + component.NumVerticesInLayer(h);
+                fits &= used[layer] <= instance.NumVerticesInLayer(layer);
+            }
+        }
+        return fits;
+    }
+
+    /**
+     * Get the decomposed instance
+     *
+     * @return decomposed instance
+     */
+    public GDInstance getInstance() {
+        return instance;
+    }
+
+    /**
+     * Get the number of connected components of the instance
+     *
+     * @return number of components
+     */
+    public int getNumberOfComponents() {
+        return components.length;
+    }
+
+    /**
+     * Check if the solutions of the components can be stitched. The components of some instances do not fit side by
+     * side in their layers when each one takes the same range of positions in all its layers, e.g., when a component
+     * is wide in one layer and another component is wide in the next one. Those instances must be solved as a whole
+     *
+     * @return true if the solutions of the components can be stitched
+     */
+    public boolean isStitchable() {
+        return stitchable;
+    }
+
+    /**
+     * Get the vertices without edges, which are not part of any component
+     *
+     * @return vertices without edges
+     */
+    public int[] getIsolatedVertices() {
+        return isolatedVertices;
+    }
+
+    /**
+     * Get the sub-instance of a component
+     *
+     * @param component component
+     * @return sub-instance of the component
+     */
+    public GDInstance getComponent(int component) {
+        return components[component];
+    }
+
+    /**
+     * Get the vertex of the original instance of a vertex of a sub-instance
+     *
+     * @param component component
+     * @param vertex    vertex of the sub-instance
+     * @return vertex of the original instance
+     */
+    public int getOriginalVertex(int component, int vertex) {
+        return originalVertex[component][vertex];
+    }
+
+    /**
+     * Get the position in the stitched solution of the first position of a component, in any layer of the component
+     *
+     * @param component component
+     * @return offset of the component
+     */
+    public int getOffset(int component) {
+        return offset[component];
+    }
+
+    /**
+     * Stitch the solutions of the components into a solution of the original instance.
+     * Each component is located at its offset in every layer (see getOffset), so there are no crossings between edges
+     * of different components, the score is the sum of the scores of the components, and the long edges aligned in
+     * the solution of a component are aligned in the stitched solution. Vertices without edges fill the free positions
+     *
+     * @param solution            empty solution of the original instance
+     * @param solutionOfComponent solution of each component
+     * @return the given solution, with every vertex located
+     */
+    public GDSolution stitch(GDSolution solution, GDSolution[] solutionOfComponent) {
+        if (!stitchable) {
+            throw new IllegalStateException("The components of " + instance.getId() + " do not fit side by side in its layers");
+        }
+        boolean[][] occupied = new boolean[instance.NumberOfLayers()][];
+        for (int h = 0; h < occupied.length; h++) {
+            occupied[h] = new boolean[instance.NumVerticesInLayer(h)];
+        }
+        for (int c = 0; c < components.length; c++) {
+            var component = components[c];
+            for (int h = 0; h < component.NumberOfLayers(); h++) {
+                int layer = h + firstLayer[c];
+                for (int v : component.getListOfVerticesInLayer(h)) {
+                    int position = offset[c] + solutionOfComponent[c].getPositionOfInputVertex(v);
+                    solution.setVertexPosition(originalVertex[c][v], layer, position);
+                    occupied[layer][position] = true;
+                }
+            }
+        }
+        int[] nextFree = new int[occupied.length];
+        for (int v : isolatedVertices) {
+            int layer = instance.getLayerOfVertex(v);
+            while (occupied[layer][nextFree[layer]]) {
+                nextFree[layer]++;
+            }
+            solution.setVertexPosition(v, layer, nextFree[layer]);
+            occupied[layer][nextFree[layer]] = true;
+        }
+        return solution;
+    }
+
+    @Override
+    public String toString() {
+        return "ComponentDecomposition{" +
+                "instance=" + instance.getId() +
+                ", components=" + Arrays.stream(components).mapToInt(GDInstance::TotalNumVertices).boxed().toList() +
+                ", isolatedVertices=" + isolatedVertices.length +
+                '}';
+    }
+}
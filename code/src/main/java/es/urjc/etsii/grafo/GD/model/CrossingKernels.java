@@ -0,0 +1,168 @@
+package es.urjc.etsii.grafo.GD.model;
+
+/**
+ * Kernels that count crossings by comparing the positions of the endpoints of the edges of a pair of layers.
+ * Two edges (u,v) and (w,z) cross if posU < posW and posV > posZ, or posU > posW and posV < posZ. Edges that share an
+ * endpoint never cross.
+ * <p>
+ * When the project is built with the Maven profile "vector" and the JVM is started with
+ * --add-modules jdk.incubator.vector, the comparisons are performed with the Vector API (see VectorCrossingKernels),
+ * processing as many positions per instruction as int lanes has the preferred vector species of the CPU.
+ * Otherwise, an equivalent scalar loop is used.
+ */
+public final class CrossingKernels {
+
+    /**
+     * Kernels implemented with the Vector API, see VectorCrossingKernels
+     */
+    interface Implementation {
+
+        int lanes();
+
+        int countCrossingsWith(int[] sources, int[] targets, int from, int to, int posSource, int posTarget);
+
+        int countLessThan(int[] values, int from, int to, int pivot);
+
+        int countGreaterThan(int[] values, int from, int to, int pivot);
+    }
+
+    /**
+     * Vector API implementation, or null if it is not available in this JVM
+     */
+    private static final Implementation VECTORIZED = loadVectorized();
+
+    /**
+     * Ranges shorter than this are counted with the scalar loop even if the Vector API is available, since they do
+     * not fill a vector and the call is not worth it
+     */
+    private static final int MIN_VECTORIZED_LENGTH = VECTORIZED == null ? Integer.MAX_VALUE : VECTORIZED.lanes();
+
+    private CrossingKernels() {
+    }
+
+    /**
+     * Load the Vector API implementation if it has been compiled and the module is available
+     *
+     * @return vectorized implementation of the kernels, or null
+     */
+    private static Implementation loadVectorized() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                var vectorized = Class.forName(CrossingKernels.class.getPackageName() + ".VectorCrossingKernels");
+                return (Implementation) vectorized.getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                // Built without the profile "vector", fall back to the scalar kernels
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check if the kernels are vectorized
+     *
+     * @return true if the Vector API is used, false if the scalar fallback is used
+     */
+    public static boolean isVectorized() {
+        return VECTORIZED != null;
+    }
+
+    /**
+     * Count the edges of a range that cross a given edge
+     *
+     * @param sources   positions of the source vertices of the edges
+     * @param targets   positions of the target vertices of the edges
+     * @param from      first edge of the range (inclusive)
+     * @param to        last edge of the range (exclusive)
+     * @param posSource position of the source vertex of the given edge
+     * @param posTarget position of the target vertex of the given edge
+     * @return number of edges of the range that cross the given edge
+     */
+    public static int countCrossingsWith(int[] sources, int[] targets, int from, int to, int posSource, int posTarget) {
+        if (to - from >= MIN_VECTORIZED_LENGTH) {
+            return VECTORIZED.countCrossingsWith(sources, targets, from, to, posSource, posTarget);
+        }
+        return Scalar.crossingsWith(sources, targets, from, to, posSource, posTarget);
+    }
+
+    /**
+     * Compare the edges of two vertices u and w of the same layer towards the same adjacent layer, with u on the left
+     * of w. An edge of w crosses an edge of u if its other endpoint is on the left of the other endpoint of the edge of
+     * u, and it would cross it if u and w exchanged their positions if it is on the right. Edges that share the other
+     * endpoint never cross
+     *
+     * @param positions positions of the other endpoints of the edges
+     * @param fromLeft  first edge of u (inclusive)
+     * @param toLeft    last edge of u (exclusive)
+     * @param fromRight first edge of w (inclusive)
+     * @param toRight   last edge of w (exclusive)
+     * @param counts    array where the counts are added
+     * @param cutCell   index of counts where the number of crossings is added
+     * @param swapCell  index of counts where the number of crossings after exchanging u and w is added
+     * @return number of crossings between the edges of u and the edges of w
+     */
+    public static int countCrossingsOfPair(int[] positions, int fromLeft, int toLeft, int fromRight, int toRight, int[] counts, int cutCell, int swapCell) {
+        if (toRight - fromRight >= MIN_VECTORIZED_LENGTH) {
+            return countCrossingsOfPairVectorized(positions, fromLeft, toLeft, fromRight, toRight, counts, cutCell, swapCell);
+        }
+        int cuts = 0;
+        int swapCuts = 0;
+        for (int i = fromLeft; i < toLeft; i++) {
+            int pivot = positions[i];
+            for (int j = fromRight; j < toRight; j++) {
+                // Branchless, positions are not predictable
+                cuts += (positions[j] - pivot) >>> 31;
+                swapCuts += (pivot - positions[j]) >>> 31;
+            }
+        }
+        counts[cutCell] += cuts;
+        counts[swapCell] += swapCuts;
+        return cuts;
+    }
+
+    private static int countCrossingsOfPairVectorized(int[] positions, int fromLeft, int toLeft, int fromRight, int toRight, int[] counts, int cutCell, int swapCell) {
+        int cuts = 0;
+        int swapCuts = 0;
+        for (int i = fromLeft; i < toLeft; i++) {
+            cuts += VECTORIZED.countLessThan(positions, fromRight, toRight, positions[i]);
+            swapCuts += VECTORIZED.countGreaterThan(positions, fromRight, toRight, positions[i]);
+        }
+        counts[cutCell] += cuts;
+        counts[swapCell] += swapCuts;
+        return cuts;
+    }
+
+    /**
+     * Scalar kernels, also used by VectorCrossingKernels for the tail of each range
+     */
+    static final class Scalar {
+
+        private Scalar() {
+        }
+
+        static int crossingsWith(int[] sources, int[] targets, int from, int to, int posSource, int posTarget) {
+            int crossings = 0;
+            for (int i = from; i < to; i++) {
+                if ((sources[i] < posSource && targets[i] > posTarget) || (sources[i] > posSource && targets[i] < posTarget)) {
+                    crossings++;
+                }
+            }
+            return crossings;
+        }
+
+        static int lessThan(int[] values, int from, int to, int pivot) {
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                count += (values[i] - pivot) >>> 31;
+            }
+            return count;
+        }
+
+        static int greaterThan(int[] values, int from, int to, int pivot) {
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                count += (pivot - values[i]) >>> 31;
+            }
+            return count;
+        }
+    }
+}
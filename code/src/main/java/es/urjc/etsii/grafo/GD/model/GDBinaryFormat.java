@@ -0,0 +1,440 @@
+package es.urjc.etsii.grafo.GD.model;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Compact binary format of the instances, loaded by memory-mapping the file instead of parsing text.
+ * GDInstanceImporter reads the files whose name ends with EXTENSION in this format, and the rest as text files.
+ * <p>
+ * Besides the instance, a file stores its counters, its fingerprint and the structures derived from it (the same
+ * ones as GDInstanceCache), which are taken straight from the mapped file instead of being computed again, so
+ * loading a file only builds the collections of GDInstance.
+ * <p>
+ * A file is a sequence of little-endian ints, with vertices numbered from 0:
+ * - Header: MAGIC, VERSION, number of vertices V, number of short edges E, number of layers H, number of long edges L,
+ * total number of vertices of the layers, total number of vertices of the long edges, number of real vertices,
+ * number of dummy vertices, number of real edges, number of dummy edges, lower bound and the 8 ints of the fingerprint.
+ * - Short edges in CSR form: V + 1 offsets and E targets, the targets of the edges of vertex v are in [offsets[v], offsets[v + 1]).
+ * - Layers: H + 1 offsets and the vertices of each layer, in order.
+ * - Long edges: L + 1 offsets and the vertices of each long edge, from its source to its target.
+ * - Adjacent vertices of each vertex, for each TYPE_OF_ADJACENT_VERTEX in declaration order: V + 1 offsets and the
+ * adjacent vertices.
+ * - Flags of each vertex and twin class of each vertex: V ints each.
+ * - Long edges of each vertex: V + 1 offsets and the indices of the long edges.
+ * - Adjacent vertices with long edges of each long edge: L + 1 offsets and the vertices.
+ * <p>
+ * Short edges are grouped by source keeping their relative order, so the instance is the same as the one of the
+ * text file (including its fingerprint) when the edges of the text file are already grouped by source, as in the
+ * bundled instances.
+ * <p>
+ * Text files are converted with the main method: GDBinaryFormat input output, where input is an instance file or a
+ * folder with instance files, and output is the folder where the converted files are written, keeping the structure
+ * of subfolders of input. The output folder must not be the input folder, since a text file and its converted file
+ * would be the same instance (see GDInstanceImporter).
+ */
+public final class GDBinaryFormat {
+
+    private static final Logger log = LoggerFactory.getLogger(GDBinaryFormat.class);
+
+    /**
+     * Extension of the files in binary format
+     */
+    public static final String EXTENSION = ".gdb";
+
+    /**
+     * First int of every file, "GDBI" in ASCII
+     */
+    private static final int MAGIC = 0x47444249;
+
+    /**
+     * Version of the format, it must be increased when the layout of the files, or the way the derived structures
+     * are computed, change
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * Number of ints of the fingerprint, a SHA-256 hash
+     */
+    private static final int FINGERPRINT_SIZE = 8;
+
+    /**
+     * Number of ints of the header
+     */
+    private static final int HEADER_SIZE = 13 + FINGERPRINT_SIZE;
+
+    private GDBinaryFormat() {
+    }
+
+    /**
+     * Read an instance in binary format
+     *
+     * @param importer importer used to build the instance
+     * @param path     file of the instance, whose name ends with EXTENSION
+     * @return instance, named after the file without EXTENSION
+     * @throws IOException if the file can not be read or is not a valid instance
+     */
+    static GDInstance read(GDInstanceImporter importer, Path path) throws IOException {
+        long size;
+        IntBuffer ints;
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            size = channel.size();
+            if (size < HEADER_SIZE * Integer.BYTES || size > Integer.MAX_VALUE || size % Integer.BYTES != 0) {
+                throw new IOException(path + ": not an instance in binary format");
+            }
+            // The mapping stays valid after closing the channel
+            ints = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        }
+        if (ints.get() != MAGIC) {
+            throw new IOException(path + ": not an instance in binary format");
+        }
+        int version = ints.get();
+        if (version != VERSION) {
+            throw new IOException(path + ": unsupported version " + version + " of the binary format, expected " + VERSION + ", convert the text file again");
+        }
+        try {
+            return read(importer, path, ints);
+        } catch (BufferUnderflowException e) {
+            throw new IOException(path + ": size of the file does not match its header");
+        }
+    }
+
+    private static GDInstance read(GDInstanceImporter importer, Path path, IntBuffer ints) throws IOException {
+        int totalNumVertices = ints.get();
+        int numEdges = ints.get();
+        int numberOfLayers = ints.get();
+        int numLongEdges = ints.get();
+        int numVerticesOfLayers = ints.get();
+        int numVerticesOfLongEdges = ints.get();
+        int numRealVertices = ints.get();
+        int numDummyVertices = ints.get();
+        int numRealEdges = ints.get();
+        int numDummyEdges = ints.get();
+        int lowerBound = ints.get();
+        var fingerprint = ByteBuffer.allocate(FINGERPRINT_SIZE * Integer.BYTES);
+        for (int i = 0; i < FINGERPRINT_SIZE; i++) {
+            fingerprint.putInt(ints.get());
+        }
+        if (totalNumVertices < 0 || numEdges < 0 || numberOfLayers < 0 || numLongEdges < 0 || numVerticesOfLayers < 0 || numVerticesOfLongEdges < 0
+                || ints.remaining() < (long) totalNumVertices + 1 + numEdges + numberOfLayers + 1 + numVerticesOfLayers + numLongEdges + 1 + numVerticesOfLongEdges) {
+            throw new IOException(path + ": size of the file does not match its header");
+        }
+
+        int[] edgeOffsets = readOffsets(ints, path, totalNumVertices, numEdges, "short edges");
+        int[] targets = readValues(ints, path, numEdges, totalNumVertices);
+        int[] sources = new int[numEdges];
+        for (int v = 0; v < totalNumVertices; v++) {
+            for (int e = edgeOffsets[v]; e < edgeOffsets[v + 1]; e++) {
+                sources[e] = v;
+            }
+        }
+
+        int[] layerOffsets = readOffsets(ints, path, numberOfLayers, numVerticesOfLayers, "layers");
+        int[][] verticesOfLayer = split(layerOffsets, readValues(ints, path, numVerticesOfLayers, totalNumVertices));
+        // Layer of each vertex plus one, 0 if the vertex is in no layer
+        int[] layerOfVertex = new int[totalNumVertices];
+        for (int layer = 0; layer < numberOfLayers; layer++) {
+            if (verticesOfLayer[layer].length == 0) {
+                throw new IOException(path + ": layer " + (layer + 1) + " has no vertices");
+            }
+            for (int vertex : verticesOfLayer[layer]) {
+                if (layerOfVertex[vertex] != 0) {
+                    throw new IOException(path + ": vertex " + (vertex + 1) + " is in layers " + layerOfVertex[vertex] + " and " + (layer + 1));
+                }
+                layerOfVertex[vertex] = layer + 1;
+            }
+        }
+        for (int v = 0; v < totalNumVertices; v++) {
+            if (layerOfVertex[v] == 0) {
+                throw new IOException(path + ": vertex " + (v + 1) + " is in no layer");
+            }
+        }
+
+        int[] longEdgeOffsets = readOffsets(ints, path, numLongEdges, numVerticesOfLongEdges, "long edges");
+        int[][] chainOfLongEdge = split(longEdgeOffsets, readValues(ints, path, numVerticesOfLongEdges, totalNumVertices));
+        for (int e = 0; e < numLongEdges; e++) {
+            if (chainOfLongEdge[e].length < 2) {
+                throw new IOException(path + ": long edge " + (e + 1) + " has less than two vertices");
+            }
+        }
+
+        int numTypes = GDInstance.TYPE_OF_ADJACENT_VERTEX.values().length;
+        int[][] adjacencyOffsets = new int[numTypes][];
+        int[][] adjacentVertices = new int[numTypes][];
+        for (int type = 0; type < numTypes; type++) {
+            adjacencyOffsets[type] = readOffsets(ints, path, totalNumVertices, -1, "adjacent vertices");
+            adjacentVertices[type] = readValues(ints, path, adjacencyOffsets[type][totalNumVertices], totalNumVertices);
+        }
+        int[] flags = readValues(ints, path, totalNumVertices, Byte.MAX_VALUE + 1);
+        byte[] vertexFlags = new byte[totalNumVertices];
+        for (int v = 0; v < totalNumVertices; v++) {
+            vertexFlags[v] = (byte) flags[v];
+        }
+        int[] twinClass = readValues(ints, path, totalNumVertices, totalNumVertices);
+        int[] longEdgesOffsets = readOffsets(ints, path, totalNumVertices, -1, "long edges of the vertices");
+        int[][] longEdgesOfVertex = split(longEdgesOffsets, readValues(ints, path, longEdgesOffsets[totalNumVertices], numLongEdges));
+        int[] adjacentOffsets = readOffsets(ints, path, numLongEdges, -1, "adjacent vertices of the long edges");
+        int[][] adjacentVerticesOfLongEdge = split(adjacentOffsets, readValues(ints, path, adjacentOffsets[numLongEdges], totalNumVertices));
+        if (ints.hasRemaining()) {
+            throw new IOException(path + ": size of the file does not match its header");
+        }
+        var derived = new GDInstanceCache.Entry(adjacencyOffsets, adjacentVertices, vertexFlags, twinClass, chainOfLongEdge, longEdgesOfVertex, adjacentVerticesOfLongEdge, lowerBound);
+
+        // Named as the text file it was converted from, so results of both formats can be compared
+        var filename = path.getFileName().toString();
+        filename = filename.substring(0, filename.length() - EXTENSION.length());
+        return importer.importInstance(filename, totalNumVertices, sources, targets, verticesOfLayer, chainOfLongEdge,
+                new GDInstanceImporter.Precomputed(numRealVertices, numDummyVertices, numRealEdges, numDummyEdges, HexFormat.of().formatHex(fingerprint.array()), derived));
+    }
+
+    /**
+     * Read the offsets of a CSR section
+     *
+     * @param size  number of rows of the section
+     * @param total expected number of values of the section, or -1 if it is not known
+     * @return offsets of the rows, with size + 1 elements
+     */
+    private static int[] readOffsets(IntBuffer ints, Path path, int size, int total, String what) throws IOException {
+        int[] offsets = new int[size + 1];
+        ints.get(offsets);
+        if (offsets[0] != 0 || (total >= 0 && offsets[size] != total) || offsets[size] > ints.remaining()) {
+            throw new IOException(path + ": invalid offsets of the " + what);
+        }
+        for (int i = 0; i < size; i++) {
+            if (offsets[i] > offsets[i + 1]) {
+                throw new IOException(path + ": invalid offsets of the " + what);
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * Read the values of a section, which must be in [0, bound)
+     */
+    private static int[] readValues(IntBuffer ints, Path path, int size, int bound) throws IOException {
+        int[] values = new int[size];
+        ints.get(values);
+        for (int value : values) {
+            if (value < 0 || value >= bound) {
+                throw new IOException(path + ": value " + value + " out of range [0, " + (bound - 1) + "]");
+            }
+        }
+        return values;
+    }
+
+    private static int[][] split(int[] offsets, int[] values) {
+        int[][] arrays = new int[offsets.length - 1][];
+        for (int i = 0; i < arrays.length; i++) {
+            arrays[i] = Arrays.copyOfRange(values, offsets[i], offsets[i + 1]);
+        }
+        return arrays;
+    }
+
+    /**
+     * Write an instance in binary format. The file is written to a temporary file of the same folder and then moved
+     * into place, so readers never see a partial file
+     *
+     * @param instance instance
+     * @param path     file of the instance
+     * @throws IOException if the file can not be written
+     */
+    public static void write(GDInstance instance, Path path) throws IOException {
+        int totalNumVertices = instance.TotalNumVertices();
+        int numberOfLayers = instance.NumberOfLayers();
+        List<GDInstance.Edge> shortEdges = instance.getListOfShortEdges();
+        List<GDInstance.Edge> longEdges = instance.getListOfLongEdges();
+        int numVerticesOfLayers = 0;
+        for (int layer = 0; layer < numberOfLayers; layer++) {
+            numVerticesOfLayers += instance.NumVerticesInLayer(layer);
+        }
+        int numVerticesOfLongEdges = 0;
+        for (var edge : longEdges) {
+            numVerticesOfLongEdges += instance.getListOfShortEdgesOfLongEdge(edge).size() + 1;
+        }
+        // Counting sort of the short edges by source, which keeps the relative order of the edges of each source
+        int[] edgeOffsets = new int[totalNumVertices + 1];
+        for (var edge : shortEdges) {
+            edgeOffsets[edge.source() + 1]++;
+        }
+        for (int v = 0; v < totalNumVertices; v++) {
+            edgeOffsets[v + 1] += edgeOffsets[v];
+        }
+        int[] targets = new int[shortEdges.size()];
+        int[] next = Arrays.copyOf(edgeOffsets, totalNumVertices);
+        for (var edge : shortEdges) {
+            targets[next[edge.source()]++] = edge.target();
+        }
+
+        // The derived structures depend on the order of the edges, so they are taken from the instance as it is read
+        var grouped = instance;
+        int index = 0;
+        for (int v = 0; v < totalNumVertices && grouped == instance; v++) {
+            for (int i = edgeOffsets[v]; i < edgeOffsets[v + 1]; i++, index++) {
+                if (shortEdges.get(index).source() != v || shortEdges.get(index).target() != targets[i]) {
+                    grouped = regroup(instance, edgeOffsets, targets);
+                    break;
+                }
+            }
+        }
+        var derived = grouped.getDerivedStructures();
+        long size = HEADER_SIZE + totalNumVertices + 1 + shortEdges.size() + numberOfLayers + 1 + numVerticesOfLayers + longEdges.size() + 1 + numVerticesOfLongEdges;
+        for (int[] vertices : derived.adjacentVertices()) {
+            size += totalNumVertices + 1 + vertices.length;
+        }
+        size += 2L * totalNumVertices + totalNumVertices + 1 + longEdges.size() + 1;
+        for (int[] indices : derived.longEdgesOfVertex()) {
+            size += indices.length;
+        }
+        for (int[] vertices : derived.adjacentVerticesWithLongEdgesOfLongEdge()) {
+            size += vertices.length;
+        }
+        var bytes = ByteBuffer.allocate(Math.toIntExact(Math.multiplyExact(size, Integer.BYTES))).order(ByteOrder.LITTLE_ENDIAN);
+        var ints = bytes.asIntBuffer();
+        ints.put(MAGIC).put(VERSION).put(totalNumVertices).put(shortEdges.size()).put(numberOfLayers).put(longEdges.size())
+                .put(numVerticesOfLayers).put(numVerticesOfLongEdges).put(instance.NumRealVertices()).put(instance.NumDummyVertices())
+                .put(instance.NumRealEdges()).put(instance.NumDummyEdges()).put(derived.lowerBound());
+        ints.put(ByteBuffer.wrap(HexFormat.of().parseHex(grouped.getFingerprint())).asIntBuffer());
+
+        ints.put(edgeOffsets).put(targets);
+
+        int offset = 0;
+        ints.put(offset);
+        for (int layer = 0; layer < numberOfLayers; layer++) {
+            offset += instance.NumVerticesInLayer(layer);
+            ints.put(offset);
+        }
+        for (int layer = 0; layer < numberOfLayers; layer++) {
+            for (int vertex : instance.getListOfVerticesInLayer(layer)) {
+                ints.put(vertex);
+            }
+        }
+
+        offset = 0;
+        ints.put(offset);
+        for (var edge : longEdges) {
+            offset += instance.getListOfShortEdgesOfLongEdge(edge).size() + 1;
+            ints.put(offset);
+        }
+        for (var edge : longEdges) {
+            ints.put(edge.source());
+            for (var shortEdge : instance.getListOfShortEdgesOfLongEdge(edge)) {
+                ints.put(shortEdge.target());
+            }
+        }
+
+        for (int type = 0; type < derived.adjacencyOffsets().length; type++) {
+            ints.put(derived.adjacencyOffsets()[type]).put(derived.adjacentVertices()[type]);
+        }
+        for (byte flags : derived.vertexFlags()) {
+            ints.put(flags);
+        }
+        ints.put(derived.twinClass());
+        putRows(ints, derived.longEdgesOfVertex());
+        putRows(ints, derived.adjacentVerticesWithLongEdgesOfLongEdge());
+
+        var folder = path.toAbsolutePath().getParent();
+        Files.createDirectories(folder);
+        var tmp = Files.createTempFile(folder, path.getFileName().toString(), ".tmp");
+        try (var channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Build an instance with the short edges grouped by source, as it is read from its file
+     *
+     * @param instance    instance
+     * @param edgeOffsets offsets of the short edges of each vertex
+     * @param targets     targets of the short edges, grouped by source
+     * @return instance with the short edges grouped by source
+     */
+    private static GDInstance regroup(GDInstance instance, int[] edgeOffsets, int[] targets) {
+        int[] sources = new int[targets.length];
+        for (int v = 0; v < instance.TotalNumVertices(); v++) {
+            Arrays.fill(sources, edgeOffsets[v], edgeOffsets[v + 1], v);
+        }
+        int[][] verticesOfLayer = new int[instance.NumberOfLayers()][];
+        for (int layer = 0; layer < verticesOfLayer.length; layer++) {
+            verticesOfLayer[layer] = instance.getListOfVerticesInLayer(layer).stream().mapToInt(Integer::intValue).toArray();
+        }
+        int[][] chainOfLongEdge = new int[instance.NumRealLongEdges()][];
+        for (int e = 0; e < chainOfLongEdge.length; e++) {
+            chainOfLongEdge[e] = instance.getChainOfLongEdge(e);
+        }
+        return new GDInstanceImporter().importInstance(instance.getId(), instance.TotalNumVertices(), sources, targets, verticesOfLayer, chainOfLongEdge);
+    }
+
+    /**
+     * Write rows in CSR form, their offsets followed by their values
+     */
+    private static void putRows(IntBuffer ints, int[][] rows) {
+        int offset = 0;
+        ints.put(offset);
+        for (int[] row : rows) {
+            offset += row.length;
+            ints.put(offset);
+        }
+        for (int[] row : rows) {
+            ints.put(row);
+        }
+    }
+
+    /**
+     * Convert text instances to binary format. Files that are not valid instances are reported and skipped
+     *
+     * @param args instance file or folder with instance files, and output folder
+     * @throws IOException if the files can not be listed or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: GDBinaryFormat <instance file or folder> <output folder>");
+            System.exit(1);
+        }
+        var input = Path.of(args[0]);
+        var output = Path.of(args[1]);
+        var inputFolder = Files.isDirectory(input) ? input : input.toAbsolutePath().getParent();
+        if (inputFolder.toAbsolutePath().normalize().equals(output.toAbsolutePath().normalize())) {
+            System.err.println("The output folder must be different from the folder of the instances");
+            System.exit(1);
+        }
+        var importer = new GDInstanceImporter();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(input)) {
+            files = walk.filter(Files::isRegularFile).filter(f -> !f.getFileName().toString().endsWith(EXTENSION)).sorted().toList();
+        }
+        int converted = 0;
+        for (var file : files) {
+            var relative = Files.isDirectory(input) ? input.relativize(file) : file.getFileName();
+            var target = output.resolve(relative.toString() + EXTENSION);
+            try (BufferedReader reader = Files.newBufferedReader(file)) {
+                write(importer.importInstance(reader, file.getFileName().toString()), target);
+                converted++;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Skipping {}: {}", file, e.toString());
+            }
+        }
+        log.info("Converted {} of {} files to {}", converted, files.size(), output);
+    }
+}
@@ -0,0 +1,949 @@
+package es.urjc.etsii.grafo.GD.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.StringTokenizer;
+import java.util.TreeSet;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Importer of general directed graphs, which are not layered and have no dummy vertices, as instances.
+ * Graphs are read from edge lists (files ending in .edges, with an edge "source target" per line, where vertices are
+ * arbitrary labels and lines starting with # or % are comments) or from DOT files (files ending in .dot or .gv).
+ * <p>
+ * The graph is transformed into an instance in time linear in the size of the graph plus the number of dummy vertices:
+ * - Self-loops and repeated edges are removed, and so are the vertices without edges, since they do not cross any edge.
+ * - Cycles are removed by reversing the edges that go backwards in the order of the vertices given by the greedy
+ * heuristic of Eades, Lin and Smyth.
+ * - Vertices are assigned to layers by longest path: each vertex is placed in the layer after the last of its
+ * predecessors. Then, a few linear sweeps move the vertices with more successors than predecessors down, and the
+ * vertices with more predecessors than successors up, next to their adjacent vertices, to shorten the edges.
+ * - Each edge that spans more than one layer is split into a chain of short edges, with a dummy vertex in each layer it
+ * crosses. Chains become long edges when their vertices can be aligned (see chooseLongEdges), otherwise their dummy
+ * vertices are placed as ordinary vertices. In both cases, they are counted as dummy vertices, and the chain as a single
+ * real edge, so NumRealVertices and NumRealEdges are the ones of the graph.
+ * <p>
+ * The instance is built directly from the transformed graph, without writing an intermediate file
+ */
+public class GDGraphImporter {
+
+    /**
+     * Extensions of the files read by this importer
+     */
+    public static final List<String> EXTENSIONS = List.of(".edges", ".dot", ".gv");
+
+    /**
+     * Maximum number of sweeps that improve the layering given by longest path, see assignLayers
+     */
+    private static final int MAX_LAYERING_SWEEPS = 8;
+
+    /**
+     * Importer used to build the instances
+     */
+    private final GDInstanceImporter importer;
+
+    /**
+     * Create an importer of graphs
+     *
+     * @param importer importer used to build the instances
+     */
+    public GDGraphImporter(GDInstanceImporter importer) {
+        this.importer = importer;
+    }
+
+    /**
+     * Check if a file is read by this importer, see EXTENSIONS
+     *
+     * @param filename name of the file
+     * @return true if the file is a graph file, false in other case
+     */
+    public static boolean isGraphFile(String filename) {
+        for (var extension : EXTENSIONS) {
+            if (filename.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read a graph and transform it into an instance
+     *
+     * @param reader   reader of the file
+     * @param filename name of the file, whose extension gives the format of the graph
+     * @return instance
+     * @throws IOException if the file can not be read or is not a valid graph
+     */
+    public GDInstance importGraph(BufferedReader reader, String filename) throws IOException {
+        var graph = new Graph();
+        if (filename.endsWith(".edges")) {
+            readEdgeList(reader, filename, graph);
+        } else {
+            new DotParser(reader, filename, graph).parse();
+        }
+        return this.importGraph(filename, graph.numVertices(), Arrays.copyOf(graph.sources, graph.numEdges), Arrays.copyOf(graph.targets, graph.numEdges));
+    }
+
+    /**
+     * Transform a directed graph into an instance
+     *
+     * @param filename    name of the instance
+     * @param numVertices number of vertices of the graph
+     * @param sources     source vertex of each edge, it is modified
+     * @param targets     target vertex of each edge, it is modified
+     * @return instance
+     * @throws IOException if the graph has no edges
+     */
+    GDInstance importGraph(String filename, int numVertices, int[] sources, int[] targets) throws IOException {
+        int numEdges = removeVerticesWithoutEdges(numVertices, sources, targets);
+        numVertices = 0;
+        for (int e = 0; e < numEdges; e++) {
+            numVertices = Math.max(numVertices, Math.max(sources[e], targets[e]) + 1);
+        }
+        if (numEdges == 0) {
+            throw new IOException(filename + ": graph without edges");
+        }
+        removeCycles(numVertices, numEdges, sources, targets);
+        numEdges = removeRepeatedEdges(numVertices, numEdges, sources, targets);
+        int[] layerOfVertex = assignLayers(numVertices, numEdges, sources, targets);
+        return this.insertDummyVertices(filename, numVertices, numEdges, sources, targets, layerOfVertex);
+    }
+
+    /**
+     * Remove self-loops, and renumber the vertices so the vertices without edges are removed
+     *
+     * @return number of edges, which are moved to the beginning of the arrays
+     */
+    private static int removeVerticesWithoutEdges(int numVertices, int[] sources, int[] targets) {
+        int numEdges = 0;
+        for (int e = 0; e < sources.length; e++) {
+            if (sources[e] != targets[e]) {
+                sources[numEdges] = sources[e];
+                targets[numEdges] = targets[e];
+                numEdges++;
+            }
+        }
+        int[] newVertex = new int[numVertices];
+        Arrays.fill(newVertex, -1);
+        int numVerticesWithEdges = 0;
+        for (int e = 0; e < numEdges; e++) {
+            if (newVertex[sources[e]] < 0) newVertex[sources[e]] = numVerticesWithEdges++;
+            if (newVertex[targets[e]] < 0) newVertex[targets[e]] = numVerticesWithEdges++;
+            sources[e] = newVertex[sources[e]];
+            targets[e] = newVertex[targets[e]];
+        }
+        return numEdges;
+    }
+
+    /**
+     * Build the outgoing edges of each vertex in CSR form
+     *
+     * @return offsets of the edges of each vertex, and the edges of all the vertices after them
+     */
+    private static int[][] outgoingEdges(int numVertices, int numEdges, int[] sources) {
+        int[] offsets = new int[numVertices + 1];
+        for (int e = 0; e < numEdges; e++) {
+            offsets[sources[e] + 1]++;
+        }
+        for (int v = 0; v < numVertices; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] edges = new int[numEdges];
+        int[] next = Arrays.copyOf(offsets, numVertices);
+        for (int e = 0; e < numEdges; e++) {
+            edges[next[sources[e]]++] = e;
+        }
+        return new int[][]{offsets, edges};
+    }
+
+    /**
+     * Reverse the edges that go backwards in an order of the vertices given by the greedy heuristic of Eades, Lin and
+     * Smyth, so the graph becomes acyclic: sinks are repeatedly placed at the end of the order, sources at the beginning,
+     * and when there are neither sinks nor sources, the vertex with the largest difference between its out-degree and
+     * its in-degree is placed at the beginning. Vertices are kept in buckets by that difference, so it runs in linear time.
+     * Unlike the back edges of a depth-first search, the order keeps the long paths of the graph short
+     */
+    private static void removeCycles(int numVertices, int numEdges, int[] sources, int[] targets) {
+        int[][] out = outgoingEdges(numVertices, numEdges, sources);
+        int[][] in = outgoingEdges(numVertices, numEdges, targets);
+        int[] outDegree = new int[numVertices];
+        int[] inDegree = new int[numVertices];
+        int maxOutDegree = 0;
+        int maxInDegree = 0;
+        for (int v = 0; v < numVertices; v++) {
+            outDegree[v] = out[0][v + 1] - out[0][v];
+            inDegree[v] = in[0][v + 1] - in[0][v];
+            maxOutDegree = Math.max(maxOutDegree, outDegree[v]);
+            maxInDegree = Math.max(maxInDegree, inDegree[v]);
+        }
+        // Doubly linked lists of the remaining vertices by out-degree minus in-degree, shifted by maxInDegree
+        var buckets = new Buckets(numVertices, maxOutDegree + maxInDegree + 1);
+        // Candidates to sinks and sources, which are checked when they are taken
+        int[] sinks = new int[numVertices + numEdges];
+        int[] sourcesToTake = new int[numVertices + numEdges];
+        int numSinks = 0;
+        int numSources = 0;
+        for (int v = 0; v < numVertices; v++) {
+            buckets.add(v, outDegree[v] - inDegree[v] + maxInDegree);
+            if (outDegree[v] == 0) sinks[numSinks++] = v;
+            else if (inDegree[v] == 0) sourcesToTake[numSources++] = v;
+        }
+        boolean[] removed = new boolean[numVertices];
+        int[] positionOf = new int[numVertices];
+        int first = 0;
+        int last = numVertices - 1;
+        for (int remaining = numVertices; remaining > 0; remaining--) {
+            int v = -1;
+            while (numSinks > 0 && v < 0) {
+                int candidate = sinks[--numSinks];
+                if (!removed[candidate] && outDegree[candidate] == 0) v = candidate;
+            }
+            if (v >= 0) {
+                positionOf[v] = last--;
+            } else {
+                while (numSources > 0 && v < 0) {
+                    int candidate = sourcesToTake[--numSources];
+                    if (!removed[candidate] && inDegree[candidate] == 0) v = candidate;
+                }
+                if (v < 0) {
+                    v = buckets.max();
+                }
+                positionOf[v] = first++;
+            }
+            removed[v] = true;
+            buckets.remove(v);
+            for (int j = out[0][v]; j < out[0][v + 1]; j++) {
+                int w = targets[out[1][j]];
+                if (!removed[w]) {
+                    inDegree[w]--;
+                    buckets.move(w, outDegree[w] - inDegree[w] + maxInDegree);
+                    if (inDegree[w] == 0) sourcesToTake[numSources++] = w;
+                }
+            }
+            for (int j = in[0][v]; j < in[0][v + 1]; j++) {
+                int u = sources[in[1][j]];
+                if (!removed[u]) {
+                    outDegree[u]--;
+                    buckets.move(u, outDegree[u] - inDegree[u] + maxInDegree);
+                    if (outDegree[u] == 0) sinks[numSinks++] = u;
+                }
+            }
+        }
+        for (int e = 0; e < numEdges; e++) {
+            if (positionOf[sources[e]] > positionOf[targets[e]]) {
+                int source = sources[e];
+                sources[e] = targets[e];
+                targets[e] = source;
+            }
+        }
+    }
+
+    /**
+     * Vertices in buckets by an integer key, with constant time insertions, removals and moves, and amortized constant
+     * time queries of a vertex with the largest key when keys change by one
+     */
+    private static class Buckets {
+
+        private final int[] head;
+
+        private final int[] next;
+
+        private final int[] previous;
+
+        private final int[] bucketOf;
+
+        /**
+         * Upper bound of the largest non-empty bucket
+         */
+        private int max;
+
+        private Buckets(int numVertices, int numBuckets) {
+            this.head = new int[numBuckets];
+            Arrays.fill(this.head, -1);
+            this.next = new int[numVertices];
+            this.previous = new int[numVertices];
+            this.bucketOf = new int[numVertices];
+        }
+
+        private void add(int v, int bucket) {
+            this.bucketOf[v] = bucket;
+            this.previous[v] = -1;
+            this.next[v] = this.head[bucket];
+            if (this.head[bucket] >= 0) this.previous[this.head[bucket]] = v;
+            this.head[bucket] = v;
+            this.max = Math.max(this.max, bucket);
+        }
+
+        private void remove(int v) {
+            if (this.previous[v] >= 0) this.next[this.previous[v]] = this.next[v];
+            else this.head[this.bucketOf[v]] = this.next[v];
+            if (this.next[v] >= 0) this.previous[this.next[v]] = this.previous[v];
+        }
+
+        private void move(int v, int bucket) {
+            this.remove(v);
+            this.add(v, bucket);
+        }
+
+        /**
+         * Get a vertex of the largest non-empty bucket, there must be one
+         */
+        private int max() {
+            while (this.head[this.max] < 0) {
+                this.max--;
+            }
+            return this.head[this.max];
+        }
+    }
+
+    /**
+     * Remove the repeated edges, which may come from the input or from reversed edges
+     *
+     * @return number of edges, which are moved to the beginning of the arrays
+     */
+    private static int removeRepeatedEdges(int numVertices, int numEdges, int[] sources, int[] targets) {
+        var seen = new HashSet<Long>(2 * numEdges);
+        int numDistinctEdges = 0;
+        for (int e = 0; e < numEdges; e++) {
+            if (seen.add((long) sources[e] * numVertices + targets[e])) {
+                sources[numDistinctEdges] = sources[e];
+                targets[numDistinctEdges] = targets[e];
+                numDistinctEdges++;
+            }
+        }
+        return numDistinctEdges;
+    }
+
+    /**
+     * Assign the vertices of an acyclic graph to layers by longest path, and improve the layering by moving vertices
+     * to shorten the edges. Every layer between the first and the last one has vertices
+     *
+     * @return layer of each vertex, starting at 0
+     */
+    private static int[] assignLayers(int numVertices, int numEdges, int[] sources, int[] targets) {
+        int[][] out = outgoingEdges(numVertices, numEdges, sources);
+        int[] offsets = out[0];
+        int[] edges = out[1];
+        int[] inDegree = new int[numVertices];
+        for (int e = 0; e < numEdges; e++) {
+            inDegree[targets[e]]++;
+        }
+        // Topological order, each vertex is placed after all its predecessors are placed
+        int[] order = new int[numVertices];
+        int[] remaining = Arrays.copyOf(inDegree, numVertices);
+        int size = 0;
+        for (int v = 0; v < numVertices; v++) {
+            if (remaining[v] == 0) order[size++] = v;
+        }
+        int[] layerOfVertex = new int[numVertices];
+        for (int i = 0; i < size; i++) {
+            int v = order[i];
+            for (int j = offsets[v]; j < offsets[v + 1]; j++) {
+                int w = targets[edges[j]];
+                layerOfVertex[w] = Math.max(layerOfVertex[w], layerOfVertex[v] + 1);
+                if (--remaining[w] == 0) order[size++] = w;
+            }
+        }
+        // Longest path places every vertex as high as possible, which stretches the edges of the vertices with few
+        // predecessors. Each sweep moves, in reverse topological order, the vertices with more successors than
+        // predecessors down to the layer before their first successor, and then, in topological order, the vertices with
+        // more predecessors than successors up to the layer after their last predecessor. Each move shortens the total
+        // length of the edges, as network simplex layering does at a higher cost
+        int[][] in = outgoingEdges(numVertices, numEdges, targets);
+        for (int sweep = 0; sweep < MAX_LAYERING_SWEEPS; sweep++) {
+            boolean moved = false;
+            for (int i = numVertices - 1; i >= 0; i--) {
+                int v = order[i];
+                int outDegree = offsets[v + 1] - offsets[v];
+                if (outDegree > inDegree[v]) {
+                    int layer = Integer.MAX_VALUE;
+                    for (int j = offsets[v]; j < offsets[v + 1]; j++) {
+                        layer = Math.min(layer, layerOfVertex[targets[edges[j]]] - 1);
+                    }
+                    if (layer > layerOfVertex[v]) {
+                        layerOfVertex[v] = layer;
+                        moved = true;
+                    }
+                }
+            }
+            for (int i = 0; i < numVertices; i++) {
+                int v = order[i];
+                int outDegree = offsets[v + 1] - offsets[v];
+                if (inDegree[v] > outDegree) {
+                    int layer = 0;
+                    for (int j = in[0][v]; j < in[0][v + 1]; j++) {
+                        layer = Math.max(layer, layerOfVertex[sources[in[1][j]]] + 1);
+                    }
+                    if (layer < layerOfVertex[v]) {
+                        layerOfVertex[v] = layer;
+                        moved = true;
+                    }
+                }
+            }
+            if (!moved) {
+                break;
+            }
+        }
+
+        // Layers left without vertices are removed
+        int numberOfLayers = 0;
+        for (int v = 0; v < numVertices; v++) {
+            numberOfLayers = Math.max(numberOfLayers, layerOfVertex[v] + 1);
+        }
+        int[] newLayer = new int[numberOfLayers];
+        for (int v = 0; v < numVertices; v++) {
+            newLayer[layerOfVertex[v]] = 1;
+        }
+        int numNonEmptyLayers = 0;
+        for (int layer = 0; layer < numberOfLayers; layer++) {
+            int isNonEmpty = newLayer[layer];
+            newLayer[layer] = numNonEmptyLayers;
+            numNonEmptyLayers += isNonEmpty;
+        }
+        for (int v = 0; v < numVertices; v++) {
+            layerOfVertex[v] = newLayer[layerOfVertex[v]];
+        }
+        return layerOfVertex;
+    }
+
+    /**
+     * Split the edges that span more than one layer into chains of short edges with dummy vertices, choose the chains
+     * that become long edges (see chooseLongEdges), and build the instance
+     */
+    private GDInstance insertDummyVertices(String filename, int numVertices, int numEdges, int[] sources, int[] targets, int[] layerOfVertex) throws IOException {
+        long numDummyVertices = 0;
+        int numChains = 0;
+        int numberOfLayers = 0;
+        for (int e = 0; e < numEdges; e++) {
+            int span = layerOfVertex[targets[e]] - layerOfVertex[sources[e]];
+            if (span > 1) {
+                numDummyVertices += span - 1;
+                numChains++;
+            }
+        }
+        for (int v = 0; v < numVertices; v++) {
+            numberOfLayers = Math.max(numberOfLayers, layerOfVertex[v] + 1);
+        }
+        if (numVertices + numDummyVertices > Integer.MAX_VALUE - numEdges) {
+            throw new IOException(filename + ": too many dummy vertices (" + numDummyVertices + ")");
+        }
+        int totalNumVertices = numVertices + (int) numDummyVertices;
+        int numShortEdges = numEdges + (int) numDummyVertices;
+        int[] layerOf = Arrays.copyOf(layerOfVertex, totalNumVertices);
+        int[] shortSources = new int[numShortEdges];
+        int[] shortTargets = new int[numShortEdges];
+        int[][] chains = new int[numChains][];
+        int numShort = 0;
+        int nextDummy = numVertices;
+        int nextChain = 0;
+        for (int e = 0; e < numEdges; e++) {
+            int span = layerOfVertex[targets[e]] - layerOfVertex[sources[e]];
+            int[] chain = new int[span + 1];
+            chain[0] = sources[e];
+            for (int i = 1; i < span; i++) {
+                layerOf[nextDummy] = layerOfVertex[sources[e]] + i;
+                chain[i] = nextDummy++;
+            }
+            chain[span] = targets[e];
+            for (int i = 0; i < span; i++) {
+                shortSources[numShort] = chain[i];
+                shortTargets[numShort] = chain[i + 1];
+                numShort++;
+            }
+            if (span > 1) {
+                chains[nextChain++] = chain;
+            }
+        }
+
+        // Vertices of each layer, by number of vertex
+        int[] numVerticesInLayer = new int[numberOfLayers];
+        for (int v = 0; v < totalNumVertices; v++) {
+            numVerticesInLayer[layerOf[v]]++;
+        }
+        int[][] verticesOfLayer = new int[numberOfLayers][];
+        for (int layer = 0; layer < numberOfLayers; layer++) {
+            verticesOfLayer[layer] = new int[numVerticesInLayer[layer]];
+        }
+        int[] filled = new int[numberOfLayers];
+        for (int v = 0; v < totalNumVertices; v++) {
+            verticesOfLayer[layerOf[v]][filled[layerOf[v]]++] = v;
+        }
+
+        boolean[] isLongEdge = chooseLongEdges(totalNumVertices, chains, layerOf, numVerticesInLayer);
+        int numLongEdges = 0;
+        for (boolean chosen : isLongEdge) {
+            if (chosen) numLongEdges++;
+        }
+        int[][] chainOfLongEdge = new int[numLongEdges][];
+        int[][] unalignedChains = new int[chains.length - numLongEdges][];
+        numLongEdges = 0;
+        int numUnaligned = 0;
+        for (int c = 0; c < chains.length; c++) {
+            if (isLongEdge[c]) {
+                chainOfLongEdge[numLongEdges++] = chains[c];
+            } else {
+                unalignedChains[numUnaligned++] = chains[c];
+            }
+        }
+
+        // Short edges grouped by source, as in the instance files
+        int[][] out = outgoingEdges(totalNumVertices, numShortEdges, shortSources);
+        int[] sortedSources = new int[numShortEdges];
+        int[] sortedTargets = new int[numShortEdges];
+        for (int i = 0; i < numShortEdges; i++) {
+            sortedSources[i] = shortSources[out[1][i]];
+            sortedTargets[i] = shortTargets[out[1][i]];
+        }
+        return this.importer.importInstance(filename, totalNumVertices, sortedSources, sortedTargets, verticesOfLayer, chainOfLongEdge, unalignedChains);
+    }
+
+    /**
+     * Choose the chains that become long edges, whose vertices are aligned in the same position of every layer they
+     * span. A vertex can not be the endpoint of two long edges, and long edges that share a layer need different
+     * positions, lower than the number of vertices of every layer they span. Chains are swept by first layer (and the
+     * longest first), assigning to each one the lowest position that is free in all its layers, and the chains without
+     * a valid position are left as paths of short edges whose vertices are not aligned. Then, the long edges that share
+     * layers with as many long edges as the width of their layers are also left as chains, so a free position remains
+     * for every long edge whatever the order in which they are placed
+     *
+     * @return true for the chains that become long edges
+     */
+    static boolean[] chooseLongEdges(int totalNumVertices, int[][] chains, int[] layerOf, int[] numVerticesInLayer) {
+        int numberOfLayers = numVerticesInLayer.length;
+        // Chains sorted by first layer and, for the same first layer, by number of layers, with two stable counting sorts
+        int[] bySpan = sortByKey(chains.length, numberOfLayers + 1, c -> numberOfLayers - chains[c].length, null);
+        int[] order = sortByKey(chains.length, numberOfLayers, c -> layerOf[chains[c][0]], bySpan);
+        var minWidth = new RangeMinimum(numVerticesInLayer);
+
+        boolean[] isLongEdge = new boolean[chains.length];
+        boolean[] isEndpoint = new boolean[totalNumVertices];
+        // Positions of the chains being swept, released after their last layer
+        var freePositions = new TreeSet<Integer>();
+        var releases = new PriorityQueue<long[]>(Comparator.comparingLong(r -> r[0]));
+        int nextPosition = 0;
+        for (int c : order) {
+            int[] chain = chains[c];
+            int first = layerOf[chain[0]];
+            int last = layerOf[chain[chain.length - 1]];
+            while (!releases.isEmpty() && releases.peek()[0] < first) {
+                freePositions.add((int) releases.poll()[1]);
+            }
+            if (isEndpoint[chain[0]] || isEndpoint[chain[chain.length - 1]]) {
+                continue;
+            }
+            int position = freePositions.isEmpty() ? nextPosition : freePositions.first();
+            if (position >= minWidth.of(first, last)) {
+                continue;
+            }
+            if (position == nextPosition) {
+                nextPosition++;
+            } else {
+                freePositions.remove(position);
+            }
+            releases.add(new long[]{last, position});
+            isEndpoint[chain[0]] = true;
+            isEndpoint[chain[chain.length - 1]] = true;
+            isLongEdge[c] = true;
+        }
+
+        // The constructive procedures place the long edges in any order, so each long edge must share layers with less
+        // long edges than the width of its layers, and the ones that share layers with too many are left as chains.
+        // Leaving a long edge as a chain only reduces the long edges that share layers with the others, so the long
+        // edges that are kept still fit and the removals are computed in a single sweep over the initial counters.
+        // Number of long edges whose last layer is before each layer, and whose first layer is up to each layer
+        int[] endedBefore = new int[numberOfLayers + 1];
+        int[] startedUpTo = new int[numberOfLayers];
+        int numLongEdges = 0;
+        for (int c = 0; c < chains.length; c++) {
+            if (isLongEdge[c]) {
+                endedBefore[layerOf[chains[c][chains[c].length - 1]] + 1]++;
+                startedUpTo[layerOf[chains[c][0]]]++;
+                numLongEdges++;
+            }
+        }
+        for (int layer = 1; layer < numberOfLayers; layer++) {
+            endedBefore[layer] += endedBefore[layer - 1];
+            startedUpTo[layer] += startedUpTo[layer - 1];
+        }
+        for (int c = 0; c < chains.length; c++) {
+            if (isLongEdge[c]) {
+                int first = layerOf[chains[c][0]];
+                int last = layerOf[chains[c][chains[c].length - 1]];
+                int sharing = numLongEdges - 1 - endedBefore[first] - (numLongEdges - startedUpTo[last]);
+                if (sharing >= minWidth.of(first, last)) {
+                    isLongEdge[c] = false;
+                }
+            }
+        }
+        return isLongEdge;
+    }
+
+    /**
+     * Stable counting sort of the numbers 0..size-1 (or of the given order) by a key in 0..numKeys-1
+     */
+    private static int[] sortByKey(int size, int numKeys, IntUnaryOperator key, int[] order) {
+        int[] first = new int[numKeys + 1];
+        for (int i = 0; i < size; i++) {
+            first[key.applyAsInt(i) + 1]++;
+        }
+        for (int k = 0; k < numKeys; k++) {
+            first[k + 1] += first[k];
+        }
+        int[] sorted = new int[size];
+        for (int i = 0; i < size; i++) {
+            int element = order == null ? i : order[i];
+            sorted[first[key.applyAsInt(element)]++] = element;
+        }
+        return sorted;
+    }
+
+    /**
+     * Minimum of a range of an array in O(1), with a sparse table of O(n log n) size
+     */
+    private static class RangeMinimum {
+
+        /**
+         * Minimum of each range of 2^k elements, by k and first element
+         */
+        private final int[][] minimum;
+
+        private RangeMinimum(int[] values) {
+            int levels = 32 - Integer.numberOfLeadingZeros(values.length);
+            this.minimum = new int[levels][];
+            this.minimum[0] = values.clone();
+            for (int k = 1; k < levels; k++) {
+                int half = 1 << (k - 1);
+                this.minimum[k] = new int[values.length - (1 << k) + 1];
+                for (int i = 0; i < this.minimum[k].length; i++) {
+                    this.minimum[k][i] = Math.min(this.minimum[k - 1][i], this.minimum[k - 1][i + half]);
+                }
+            }
+        }
+
+        /**
+         * Get the minimum of the elements from first to last, both inclusive
+         */
+        private int of(int first, int last) {
+            int k = 31 - Integer.numberOfLeadingZeros(last - first + 1);
+            return Math.min(this.minimum[k][first], this.minimum[k][last - (1 << k) + 1]);
+        }
+    }
+
+    private static void readEdgeList(BufferedReader reader, String filename, Graph graph) throws IOException {
+        String line;
+        int numLine = 0;
+        while ((line = reader.readLine()) != null) {
+            numLine++;
+            var tokens = new StringTokenizer(line);
+            if (!tokens.hasMoreTokens()) {
+                continue;
+            }
+            var source = tokens.nextToken();
+            if (source.startsWith("#") || source.startsWith("%")) {
+                continue;
+            }
+            if (!tokens.hasMoreTokens()) {
+                throw new IOException(filename + ":" + numLine + ": expected an edge, found a single vertex");
+            }
+            // Other columns (e.g. weights) are ignored
+            graph.addEdge(graph.vertex(source), graph.vertex(tokens.nextToken()));
+        }
+    }
+
+    /**
+     * Vertices, identified by their labels, and edges of a graph being read
+     */
+    private static class Graph {
+
+        private final HashMap<String, Integer> vertexOfLabel = new HashMap<>();
+
+        private int[] sources = new int[16];
+
+        private int[] targets = new int[16];
+
+        private int numEdges;
+
+        private int vertex(String label) {
+            var vertex = this.vertexOfLabel.get(label);
+            if (vertex == null) {
+                vertex = this.vertexOfLabel.size();
+                this.vertexOfLabel.put(label, vertex);
+            }
+            return vertex;
+        }
+
+        private void addEdge(int source, int target) {
+            if (this.numEdges == this.sources.length) {
+                this.sources = Arrays.copyOf(this.sources, 2 * this.numEdges);
+                this.targets = Arrays.copyOf(this.targets, 2 * this.numEdges);
+            }
+            this.sources[this.numEdges] = source;
+            this.targets[this.numEdges] = target;
+            this.numEdges++;
+        }
+
+        private int numVertices() {
+            return this.vertexOfLabel.size();
+        }
+    }
+
+    /**
+     * Parser of the subset of the DOT language that describes the structure of a graph. Attributes, ports and the
+     * kind of graph are ignored, and the edges of undirected graphs are directed as they are written.
+     * Subgraphs are flattened, and an edge between subgraphs connects every vertex of the first one with every vertex
+     * of the second one
+     */
+    private static class DotParser {
+
+        private final String text;
+
+        private final String filename;
+
+        private final Graph graph;
+
+        private int position;
+
+        /**
+         * Vertices of each subgraph being parsed, from the innermost one
+         */
+        private final ArrayDeque<LinkedHashSet<Integer>> subgraphs = new ArrayDeque<>();
+
+        /**
+         * Current token, null at the end of the text
+         */
+        private String token;
+
+        /**
+         * True if the current token is an identifier or a quoted string, false if it is a symbol
+         */
+        private boolean isId;
+
+        private DotParser(BufferedReader reader, String filename, Graph graph) throws IOException {
+            var builder = new StringBuilder();
+            char[] buffer = new char[1 << 16];
+            int read;
+            while ((read = reader.read(buffer)) > 0) {
+                builder.append(buffer, 0, read);
+            }
+            this.text = builder.toString();
+            this.filename = filename;
+            this.graph = graph;
+        }
+
+        private void parse() throws IOException {
+            this.next();
+            if (this.isKeyword("strict")) {
+                this.next();
+            }
+            if (!this.isKeyword("digraph") && !this.isKeyword("graph")) {
+                throw this.error("expected digraph or graph");
+            }
+            this.next();
+            if (this.isId) {
+                this.next();
+            }
+            this.expect("{");
+            this.statements();
+            this.expect("}");
+        }
+
+        /**
+         * Parse statements until the closing brace of the current graph or subgraph
+         */
+        private void statements() throws IOException {
+            while (this.token != null && !this.token.equals("}")) {
+                if (this.token.equals(";")) {
+                    this.next();
+                    continue;
+                }
+                if (this.isKeyword("graph") || this.isKeyword("node") || this.isKeyword("edge")) {
+                    this.next();
+                    this.skipAttributes();
+                    continue;
+                }
+                if (this.isAttributeAssignment()) {
+                    // Attribute of the graph, e.g. rankdir=LR
+                    this.next();
+                    this.next();
+                    this.next();
+                    continue;
+                }
+                int[] operand = this.operand();
+                while ("->".equals(this.token) || "--".equals(this.token)) {
+                    this.next();
+                    int[] next = this.operand();
+                    for (int source : operand) {
+                        for (int target : next) {
+                            this.graph.addEdge(source, target);
+                        }
+                    }
+                    operand = next;
+                }
+                this.skipAttributes();
+            }
+        }
+
+        /**
+         * Parse a vertex or a subgraph
+         *
+         * @return vertices of the operand
+         */
+        private int[] operand() throws IOException {
+            if (this.isKeyword("subgraph") || "{".equals(this.token)) {
+                if (this.isKeyword("subgraph")) {
+                    this.next();
+                    if (this.isId) {
+                        this.next();
+                    }
+                }
+                this.expect("{");
+                this.subgraphs.push(new LinkedHashSet<>());
+                this.statements();
+                this.expect("}");
+                var vertices = this.subgraphs.pop();
+                if (!this.subgraphs.isEmpty()) {
+                    this.subgraphs.peek().addAll(vertices);
+                }
+                return vertices.stream().mapToInt(Integer::intValue).toArray();
+            }
+            if (!this.isId) {
+                throw this.error("expected a vertex");
+            }
+            int vertex = this.graph.vertex(this.token);
+            this.next();
+            // Ports, e.g. a:n or a:port:sw
+            while (":".equals(this.token)) {
+                this.next();
+                this.next();
+            }
+            if (!this.subgraphs.isEmpty()) {
+                this.subgraphs.peek().add(vertex);
+            }
+            return new int[]{vertex};
+        }
+
+        /**
+         * Check if the current token is the name of an attribute followed by =
+         */
+        private boolean isAttributeAssignment() throws IOException {
+            if (!this.isId) {
+                return false;
+            }
+            int position = this.position;
+            var token = this.token;
+            this.next();
+            boolean isAssignment = "=".equals(this.token);
+            this.position = position;
+            this.token = token;
+            this.isId = true;
+            return isAssignment;
+        }
+
+        private void skipAttributes() throws IOException {
+            while ("[".equals(this.token)) {
+                while (this.token != null && !this.token.equals("]")) {
+                    this.next();
+                }
+                this.expect("]");
+            }
+        }
+
+        private boolean isKeyword(String keyword) {
+            return this.isId && this.token.equalsIgnoreCase(keyword);
+        }
+
+        private void expect(String symbol) throws IOException {
+            if (this.isId || !symbol.equals(this.token)) {
+                throw this.error("expected " + symbol);
+            }
+            this.next();
+        }
+
+        private IOException error(String message) {
+            int line = 1;
+            for (int i = 0; i < Math.min(this.position, this.text.length()); i++) {
+                if (this.text.charAt(i) == '\n') line++;
+            }
+            return new IOException(this.filename + ":" + line + ": " + message + ", found " + (this.token == null ? "end of file" : this.token));
+        }
+
+        /**
+         * Move to the next token, skipping blanks and comments
+         */
+        private void next() throws IOException {
+            var text = this.text;
+            int n = text.length();
+            while (this.position < n) {
+                char c = text.charAt(this.position);
+                if (Character.isWhitespace(c) || c == ',') {
+                    this.position++;
+                } else if (text.startsWith("//", this.position) || (c == '#' && (this.position == 0 || text.charAt(this.position - 1) == '\n'))) {
+                    while (this.position < n && text.charAt(this.position) != '\n') this.position++;
+                } else if (text.startsWith("/*", this.position)) {
+                    int end = text.indexOf("*/", this.position + 2);
+                    this.position = end < 0 ? n : end + 2;
+                } else {
+                    break;
+                }
+            }
+            if (this.position >= n) {
+                this.token = null;
+                this.isId = false;
+                return;
+            }
+            char c = text.charAt(this.position);
+            int start = this.position;
+            if (c == '"') {
+                var builder = new StringBuilder();
+                this.position++;
+                while (this.position < n && text.charAt(this.position) != '"') {
+                    if (text.charAt(this.position) == '\\' && this.position + 1 < n) {
+                        this.position++;
+                    }
+                    builder.append(text.charAt(this.position++));
+                }
+                if (this.position >= n) {
+                    throw this.error("unterminated string");
+                }
+                this.position++;
+                this.token = builder.toString();
+                this.isId = true;
+            } else if (c == '<') {
+                // HTML string, only used as attribute value
+                int depth = 0;
+                do {
+                    if (text.charAt(this.position) == '<') depth++;
+                    if (text.charAt(this.position) == '>') depth--;
+                    this.position++;
+                } while (depth > 0 && this.position < n);
+                this.token = text.substring(start, this.position);
+                this.isId = true;
+            } else if (text.startsWith("->", this.position) || text.startsWith("--", this.position)) {
+                this.position += 2;
+                this.token = text.substring(start, this.position);
+                this.isId = false;
+            } else if (Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '-' || c > 127) {
+                this.position++;
+                while (this.position < n) {
+                    char d = text.charAt(this.position);
+                    if (!(Character.isLetterOrDigit(d) || d == '_' || d == '.' || d > 127)) break;
+                    this.position++;
+                }
+                this.token = text.substring(start, this.position);
+                this.isId = true;
+            } else {
+                this.position++;
+                this.token = String.valueOf(c);
+                this.isId = false;
+            }
+        }
+    }
+}
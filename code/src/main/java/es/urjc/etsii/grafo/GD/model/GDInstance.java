@@ -3,10 +3,19 @@ package es.urjc.etsii.grafo.GD.model;
 import es.urjc.etsii.grafo.io.Instance;
 import org.javatuples.Triplet;
 
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
 
 
 /**
@@ -17,6 +26,10 @@ import java.util.Map;
  * - A': short edges of the original graph and dummy edges. A' = A / AL U AL'
  * - nl: number of layers
  * - L: function that assigns a vertex to a layer
+ * <p>
+ * Instances are immutable: every attribute is computed in the constructor, collections are returned as unmodifiable
+ * views, and arrays are shared and must not be modified. Therefore, a single instance can be safely shared between
+ * threads, e.g. by parallel solvers working on the same instance, without any synchronization
  */
 public class GDInstance extends Instance {
 
@@ -42,33 +55,64 @@ public class GDInstance extends Instance {
     /**
      * List of all vertices V U V'
      */
-    private final HashSet<Integer> totalListOfVertices;
+    private final Set<Integer> totalListOfVertices;
 
     /**
      * List of real vertices V
      */
-    private final HashSet<Integer> listOfRealVertices;
+    private final Set<Integer> listOfRealVertices;
 
     /**
      * List of real vertices V with short edges
      */
-    private final HashSet<Integer> listOfRealVerticesWithShortEdges;
+    private final Set<Integer> listOfRealVerticesWithShortEdges;
 
     /**
      * List of real vertices V with long edges
      */
     private final HashSet<Integer> listOfRealVerticesWithLongEdges;
 
+    /**
+     * Classification of each vertex, as a combination of the bits DUMMY, LONG_EDGE_ENDPOINT and MOVABLE
+     */
+    private final byte[] vertexFlags;
+
+    /**
+     * Vertices of each layer that are neither dummy vertices nor endpoints of a long edge,
+     * in the same order as the list of vertices of the layer
+     */
+    private final int[][] movableVerticesInLayer;
+
+    /**
+     * Twin class of each vertex. Movable vertices of the same layer with the same adjacent vertices in the previous
+     * and in the next layer are twins and share their class, any other vertex is the only member of its class
+     */
+    private final int[] twinClass;
+
+    /**
+     * Vertices of each twin class, in the same order as the list of vertices of their layer
+     */
+    private final int[][] verticesOfTwinClass;
+
+    private static final byte DUMMY = 1;
+    private static final byte LONG_EDGE_ENDPOINT = 2;
+    private static final byte MOVABLE = 4;
+
 
     /**
      * Set of adjacent vertices of a long edge
      */
-    private final HashMap<Edge, HashSet<Integer>> adjacentVerticesWithLongEdgesOfLongEdge;
+    private final HashMap<Edge, Set<Integer>> adjacentVerticesWithLongEdgesOfLongEdge;
 
     /**
      * List of dummy vertices V'
      */
-    private final HashSet<Integer> listOfDummyVertices;
+    private final Set<Integer> listOfDummyVertices;
+
+    /**
+     * Long edges (index in the list of long edges) that each vertex belongs to, either as source, target or dummy vertex
+     */
+    private final int[][] longEdgesOfVertex;
 
 
     ////////////////////////////////////////
@@ -98,12 +142,27 @@ public class GDInstance extends Instance {
     /**
      * List of short edges A'
      */
-    private final ArrayList<Edge> listOfShortEdges;
+    private final List<Edge> listOfShortEdges;
 
     /**
      * List of long edges AL
      */
-    private final ArrayList<Edge> listOfLongEdges;
+    private final List<Edge> listOfLongEdges;
+
+    /**
+     * Index of each long edge in the list of long edges, used as its identifier
+     */
+    private final HashMap<Edge, Integer> indexOfLongEdge;
+
+    /**
+     * Index of each short edge in the list of short edges, used as its identifier
+     */
+    private final HashMap<Edge, Integer> indexOfShortEdge;
+
+    /**
+     * Vertices of each long edge (source, dummy vertices and target) ordered by layer, indexed by the identifier of the long edge
+     */
+    private final int[][] chainOfLongEdge;
 
     /**
      * List of vertices adjacent to a given vertex, connected by a short edge (not long arcs)
@@ -112,16 +171,19 @@ public class GDInstance extends Instance {
      * - Target vertices
      * - All vertices
      */
-    private final HashMap<Integer, Triplet<ArrayList<Integer>, ArrayList<Integer>, ArrayList<Integer>>> adjacentListOfShortEdgesOfVertex;
+    private final HashMap<Integer, Triplet<List<Integer>, List<Integer>, List<Integer>>> adjacentListOfShortEdgesOfVertex;
 
     /**
-     * Set of vertices adjacent to a given vertex, connected by a short edge (not long arcs)
-     * Set of vertices are classified into:
-     * - Source vertices
-     * - Target vertices
-     * - All vertices
+     * Vertices adjacent to a given vertex, connected by a short edge, in compressed sparse row format, indexed by the
+     * ordinal of TYPE_OF_ADJACENT_VERTEX. The vertices adjacent to v are adjacentVertices[type][adjacencyOffsets[type][v]]
+     * to adjacentVertices[type][adjacencyOffsets[type][v + 1] - 1], in the same order as the lists of adjacentListOfShortEdgesOfVertex
      */
-    private final HashMap<Integer, Triplet<HashSet<Integer>, HashSet<Integer>, HashSet<Integer>>> adjacentSetOfShortEdgesOfVertex;
+    private final int[][] adjacencyOffsets;
+
+    /**
+     * Vertices adjacent to each vertex, see adjacencyOffsets
+     */
+    private final int[][] adjacentVertices;
 
 
     /**
@@ -131,25 +193,30 @@ public class GDInstance extends Instance {
      * - Target vertices
      * - All vertices
      */
-    private final HashMap<Integer, Triplet<ArrayList<Integer>, ArrayList<Integer>, ArrayList<Integer>>> adjacentListOfDummyVerticesOfVertex;
+    private final HashMap<Integer, Triplet<List<Integer>, List<Integer>, List<Integer>>> adjacentListOfDummyVerticesOfVertex;
 
 
     /**
      * List of short edges assigned to each long edge AL'
      */
-    private final HashMap<Edge, ArrayList<Edge>> listOfShortEdgesOfLongEdge;
+    private final HashMap<Edge, List<Edge>> listOfShortEdgesOfLongEdge;
 
 
     /**
      * List of vertices of each layer L
      */
-    private final HashMap<Integer, ArrayList<Integer>> listOfVerticesInLayer;
+    private final HashMap<Integer, List<Integer>> listOfVerticesInLayer;
 
 
     /**
      * List of short edges of each layer L
      */
-    private final HashMap<Integer, ArrayList<Edge>> listOfShortEdgesInLayer;
+    private final HashMap<Integer, List<Edge>> listOfShortEdgesInLayer;
+
+    /**
+     * Arrays with the short edges between each layer and the next one
+     */
+    private final LayerPairEdges[] layerPairEdges;
 
 
     ////////////////////////////////////////
@@ -162,7 +229,7 @@ public class GDInstance extends Instance {
     private final int numberOfLayers;
 
     /**
-     * Number of vertices in a layer
+     * Number of vertices of the widest layer
      */
     private final int numVerticesInLayer;
 
@@ -171,9 +238,56 @@ public class GDInstance extends Instance {
      */
     private final int[] layerOfVertex;
 
+    /**
+     * Array that store for each vertex V U V' its index in the list of vertices of its layer
+     */
+    private final int[] indexInLayer;
+
+    /**
+     * Number of vertices of each layer
+     */
+    private final int[] numVerticesOfLayer;
+
+    /**
+     * Offset of the block of each layer in the flat crossing matrix.
+     * The block of layer h has numVerticesOfLayer[h] x numVerticesOfLayer[h] cells
+     */
+    private final int[] crossingMatrixOffset;
 
+    /**
+     * Index of the first host vertex of each layer. Layers may have different widths, so the host vertex of the
+     * position p of the layer h is layerStart[h] + p. The last entry stores the total number of host vertices
+     */
+    private final int[] layerStart;
+
+    /**
+     * Lower bound on the number of crossings of any layout, see LowerBound
+     */
+    private final int lowerBound;
+
+    /**
+     * Hash of the content of the instance, see getFingerprint
+     */
+    private final String fingerprint;
+
+    /**
+     * Create an instance. The instance takes ownership of the given collections, which must not be modified afterwards
+     */
     public GDInstance(String name, int totalNumVertices, int numRealVertices, int numDummyVertices, int numEdges, int numRealEdges, int numRealLongEdges, int numDummyEdges, int numberOfLayers, HashSet<Integer> totalListOfVertices, HashSet<Integer> listOfRealVertices, HashSet<Integer> listOfDummyVertices, ArrayList<Edge> listOfShortEdges, ArrayList<Edge> listOfLongEdges, HashMap<Integer, Triplet<ArrayList<Integer>, ArrayList<Integer>, ArrayList<Integer>>> adjacentListOfShortEdgesOfVertex, HashMap<Edge, ArrayList<Edge>> listOfShortEdgesOfLongEdge, HashMap<Integer, ArrayList<Integer>> listOfVerticesInLayer, int[] layerOfVertex) {
+        this(name, totalNumVertices, numRealVertices, numDummyVertices, numEdges, numRealEdges, numRealLongEdges, numDummyEdges, numberOfLayers,
+                totalListOfVertices, listOfRealVertices, listOfDummyVertices, listOfShortEdges, listOfLongEdges, adjacentListOfShortEdgesOfVertex, listOfShortEdgesOfLongEdge,
+                listOfVerticesInLayer, layerOfVertex, fingerprint(totalNumVertices, numberOfLayers, listOfShortEdges, listOfLongEdges, listOfShortEdgesOfLongEdge, listOfVerticesInLayer), null);
+    }
+
+    /**
+     * Create an instance, taking the derived structures from the cache if they are given
+     *
+     * @param fingerprint fingerprint of the instance, see fingerprint
+     * @param cached      derived structures of an instance with the same fingerprint, or null to build them
+     */
+    GDInstance(String name, int totalNumVertices, int numRealVertices, int numDummyVertices, int numEdges, int numRealEdges, int numRealLongEdges, int numDummyEdges, int numberOfLayers, HashSet<Integer> totalListOfVertices, HashSet<Integer> listOfRealVertices, HashSet<Integer> listOfDummyVertices, ArrayList<Edge> listOfShortEdges, ArrayList<Edge> listOfLongEdges, HashMap<Integer, Triplet<ArrayList<Integer>, ArrayList<Integer>, ArrayList<Integer>>> adjacentListOfShortEdgesOfVertex, HashMap<Edge, ArrayList<Edge>> listOfShortEdgesOfLongEdge, HashMap<Integer, ArrayList<Integer>> listOfVerticesInLayer, int[] layerOfVertex, String fingerprint, GDInstanceCache.Entry cached) {
         super(name);
+        this.fingerprint = fingerprint;
         this.totalNumVertices = totalNumVertices;
         this.numRealVertices = numRealVertices;
         this.numDummyVertices = numDummyVertices;
@@ -182,30 +296,147 @@ public class GDInstance extends Instance {
         this.numRealLongEdges = numRealLongEdges;
         this.numDummyEdges = numDummyEdges;
         this.numberOfLayers = numberOfLayers;
-        this.totalListOfVertices = totalListOfVertices;
-        this.listOfRealVertices = listOfRealVertices;
-        this.listOfDummyVertices = listOfDummyVertices;
-        this.listOfShortEdges = listOfShortEdges;
-        this.listOfLongEdges = listOfLongEdges;
-        this.adjacentListOfShortEdgesOfVertex = adjacentListOfShortEdgesOfVertex;
-        this.listOfShortEdgesOfLongEdge = listOfShortEdgesOfLongEdge;
-        this.listOfVerticesInLayer = listOfVerticesInLayer;
+        // The collections are wrapped once, so the getters return them without allocating a view on every call
+        this.totalListOfVertices = Collections.unmodifiableSet(totalListOfVertices);
+        this.listOfRealVertices = Collections.unmodifiableSet(listOfRealVertices);
+        this.listOfDummyVertices = Collections.unmodifiableSet(listOfDummyVertices);
+        this.listOfShortEdges = Collections.unmodifiableList(listOfShortEdges);
+        this.listOfLongEdges = Collections.unmodifiableList(listOfLongEdges);
+        this.adjacentListOfShortEdgesOfVertex = unmodifiableTriplets(adjacentListOfShortEdgesOfVertex);
+        this.listOfShortEdgesOfLongEdge = unmodifiableLists(listOfShortEdgesOfLongEdge);
+        this.listOfVerticesInLayer = unmodifiableLists(listOfVerticesInLayer);
         this.layerOfVertex = layerOfVertex;
-        this.numVerticesInLayer = this.listOfVerticesInLayer.get(0).size();
-        this.adjacentSetOfShortEdgesOfVertex = generateAdjacentSet(this.adjacentListOfShortEdgesOfVertex);
+        this.indexInLayer = new int[totalNumVertices];
+        this.numVerticesOfLayer = new int[numberOfLayers];
+        this.crossingMatrixOffset = new int[numberOfLayers + 1];
+        this.layerStart = new int[numberOfLayers + 1];
+        generateCrossingMatrixLayout();
+        this.numVerticesInLayer = getMaxNumVerticesInLayers();
+        if (cached != null) {
+            this.adjacencyOffsets = cached.adjacencyOffsets();
+            this.adjacentVertices = cached.adjacentVertices();
+        } else {
+            this.adjacencyOffsets = new int[TYPE_OF_ADJACENT_VERTEX.values().length][];
+            this.adjacentVertices = new int[TYPE_OF_ADJACENT_VERTEX.values().length][];
+            generateAdjacencyArrays();
+        }
         this.adjacentListOfDummyVerticesOfVertex = generateListOfAdjacentDummyVertices();
         this.listOfShortEdgesInLayer = generateListOfShortEdgesInLayer();
+        this.layerPairEdges = generateLayerPairEdges();
         this.listOfRealVerticesWithLongEdges = generateListOfRealVerticesWithLongEdges();
+        this.vertexFlags = cached != null ? cached.vertexFlags() : generateVertexFlags();
+        this.movableVerticesInLayer = generateMovableVerticesInLayer();
+        this.twinClass = cached != null ? cached.twinClass() : generateTwinClasses();
+        this.verticesOfTwinClass = generateVerticesOfTwinClass();
         this.listOfRealVerticesWithShortEdges = generateListOfRealVerticesWithShortEdges();
-        this.adjacentVerticesWithLongEdgesOfLongEdge = generateAdjacentVerticesOfLongEdge();
+        this.adjacentVerticesWithLongEdgesOfLongEdge = cached != null ? toAdjacentVerticesOfLongEdge(cached.adjacentVerticesWithLongEdgesOfLongEdge()) : generateAdjacentVerticesOfLongEdge();
+        this.indexOfLongEdge = generateIndex(this.listOfLongEdges);
+        this.indexOfShortEdge = generateIndex(this.listOfShortEdges);
+        this.chainOfLongEdge = cached != null ? cached.chainOfLongEdge() : generateChainOfLongEdge();
+        this.longEdgesOfVertex = cached != null ? cached.longEdgesOfVertex() : generateLongEdgesOfVertex();
+        this.lowerBound = cached != null ? cached.lowerBound() : LowerBound.of(this);
         this.setProperty("numV", totalNumVertices);
         this.setProperty("numE", numEdges);
         this.setProperty("numL", numberOfLayers);
         this.setProperty("numLE", numRealLongEdges);
+        this.setProperty("numRV", numRealVertices);
+        this.setProperty("numRE", numRealEdges);
+        this.setProperty("LB", this.lowerBound);
+    }
+
+    /**
+     * Copy a map replacing each list by an unmodifiable view of it
+     *
+     * @param map map of lists
+     * @return map of unmodifiable lists
+     */
+    private static <K, V> HashMap<K, List<V>> unmodifiableLists(Map<K, ? extends List<V>> map) {
+        HashMap<K, List<V>> unmodifiable = new HashMap<>(map.size() * 4 / 3 + 1);
+        for (var entry : map.entrySet()) {
+            unmodifiable.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+        }
+        return unmodifiable;
+    }
+
+    /**
+     * Copy a map replacing the lists of each triplet by unmodifiable views of them
+     *
+     * @param map map of triplets of lists
+     * @return map of triplets of unmodifiable lists
+     */
+    private static HashMap<Integer, Triplet<List<Integer>, List<Integer>, List<Integer>>> unmodifiableTriplets(Map<Integer, Triplet<ArrayList<Integer>, ArrayList<Integer>, ArrayList<Integer>>> map) {
+        HashMap<Integer, Triplet<List<Integer>, List<Integer>, List<Integer>>> unmodifiable = new HashMap<>(map.size() * 4 / 3 + 1);
+        for (var entry : map.entrySet()) {
+            var lists = entry.getValue();
+            unmodifiable.put(entry.getKey(), new Triplet<>(Collections.unmodifiableList(lists.getValue0()), Collections.unmodifiableList(lists.getValue1()), Collections.unmodifiableList(lists.getValue2())));
+        }
+        return unmodifiable;
+    }
+
+    private HashMap<Edge, Integer> generateIndex(List<Edge> listOfEdges) {
+        HashMap<Edge, Integer> index = new HashMap<>(listOfEdges.size());
+        for (int i = 0; i < listOfEdges.size(); i++) {
+            index.put(listOfEdges.get(i), i);
+        }
+        return index;
     }
 
-    private HashMap<Edge, HashSet<Integer>> generateAdjacentVerticesOfLongEdge() {
-        HashMap<Edge, HashSet<Integer>> adjacentVerticesOfLongEdge = new HashMap<>();
+    private int[][] generateChainOfLongEdge() {
+        int[][] chains = new int[this.listOfLongEdges.size()][];
+        for (int i = 0; i < this.listOfLongEdges.size(); i++) {
+            Edge longEdge = this.listOfLongEdges.get(i);
+            var listOfShortEdges = this.listOfShortEdgesOfLongEdge.get(longEdge);
+            chains[i] = new int[listOfShortEdges.size() + 1];
+            chains[i][0] = longEdge.source();
+            for (int k = 0; k < listOfShortEdges.size(); k++) {
+                chains[i][k + 1] = listOfShortEdges.get(k).target();
+            }
+        }
+        return chains;
+    }
+
+    private int[][] generateLongEdgesOfVertex() {
+        int[] count = new int[this.totalNumVertices];
+        for (int[] chain : this.chainOfLongEdge) {
+            for (int vertex : chain) {
+                count[vertex]++;
+            }
+        }
+        int[][] longEdges = new int[this.totalNumVertices][];
+        for (int v = 0; v < this.totalNumVertices; v++) {
+            longEdges[v] = new int[count[v]];
+            count[v] = 0;
+        }
+        for (int i = 0; i < this.chainOfLongEdge.length; i++) {
+            for (int vertex : this.chainOfLongEdge[i]) {
+                longEdges[vertex][count[vertex]++] = i;
+            }
+        }
+        return longEdges;
+    }
+
+    private void generateCrossingMatrixLayout() {
+        for (int h = 0; h < this.numberOfLayers; h++) {
+            var vertices = this.listOfVerticesInLayer.get(h);
+            this.numVerticesOfLayer[h] = vertices.size();
+            for (int i = 0; i < vertices.size(); i++) {
+                this.indexInLayer[vertices.get(i)] = i;
+            }
+            this.crossingMatrixOffset[h + 1] = this.crossingMatrixOffset[h] + vertices.size() * vertices.size();
+            this.layerStart[h + 1] = this.layerStart[h] + vertices.size();
+        }
+    }
+
+    private int getMaxNumVerticesInLayers() {
+        int max = 0;
+        for (int h = 0; h < this.numberOfLayers; h++) {
+            max = Math.max(max, this.numVerticesOfLayer[h]);
+        }
+        return max;
+    }
+
+    private HashMap<Edge, Set<Integer>> generateAdjacentVerticesOfLongEdge() {
+        HashMap<Edge, Set<Integer>> adjacentVerticesOfLongEdge = new HashMap<>();
         for (Edge longEdge : this.listOfLongEdges) {
             HashSet<Integer> adjacentVertices = new HashSet<>();
             var source = longEdge.source();
@@ -220,11 +451,68 @@ public class GDInstance extends Instance {
                     adjacentVertices.add(vertex);
                 }
             }
-            adjacentVerticesOfLongEdge.put(longEdge, adjacentVertices);
+            adjacentVerticesOfLongEdge.put(longEdge, Collections.unmodifiableSet(adjacentVertices));
         }
         return adjacentVerticesOfLongEdge;
     }
 
+    private HashMap<Edge, Set<Integer>> toAdjacentVerticesOfLongEdge(int[][] adjacentVerticesOfLongEdgeById) {
+        HashMap<Edge, Set<Integer>> adjacentVerticesOfLongEdge = new HashMap<>();
+        for (int i = 0; i < this.listOfLongEdges.size(); i++) {
+            HashSet<Integer> adjacentVertices = new HashSet<>();
+            for (int vertex : adjacentVerticesOfLongEdgeById[i]) {
+                adjacentVertices.add(vertex);
+            }
+            adjacentVerticesOfLongEdge.put(this.listOfLongEdges.get(i), Collections.unmodifiableSet(adjacentVertices));
+        }
+        return adjacentVerticesOfLongEdge;
+    }
+
+    /**
+     * Compute the fingerprint of the content of an instance (see getFingerprint)
+     *
+     * @return SHA-256 hash of the content of the instance, in hexadecimal
+     */
+    static String fingerprint(int totalNumVertices, int numberOfLayers, List<Edge> listOfShortEdges, List<Edge> listOfLongEdges, Map<Edge, ? extends List<Edge>> listOfShortEdgesOfLongEdge, Map<Integer, ? extends List<Integer>> listOfVerticesInLayer) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        var buffer = ByteBuffer.allocate(8 * 1024);
+        IntConsumer write = value -> {
+            if (!buffer.hasRemaining()) {
+                digest.update(buffer.flip());
+                buffer.clear();
+            }
+            buffer.putInt(value);
+        };
+        write.accept(totalNumVertices);
+        write.accept(numberOfLayers);
+        for (int h = 0; h < numberOfLayers; h++) {
+            var vertices = listOfVerticesInLayer.get(h);
+            write.accept(vertices.size());
+            vertices.forEach(write::accept);
+        }
+        write.accept(listOfShortEdges.size());
+        for (Edge edge : listOfShortEdges) {
+            write.accept(edge.source());
+            write.accept(edge.target());
+        }
+        write.accept(listOfLongEdges.size());
+        for (Edge longEdge : listOfLongEdges) {
+            var shortEdges = listOfShortEdgesOfLongEdge.get(longEdge);
+            write.accept(shortEdges.size());
+            for (Edge edge : shortEdges) {
+                write.accept(edge.source());
+                write.accept(edge.target());
+            }
+        }
+        digest.update(buffer.flip());
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
     private HashSet<Integer> generateListOfRealVerticesWithLongEdges() {
         HashSet<Integer> listOfRealVerticesWithLongEdges = new HashSet<>();
         for (Edge longEdge : this.listOfLongEdges) {
@@ -234,16 +522,85 @@ public class GDInstance extends Instance {
         return listOfRealVerticesWithLongEdges;
     }
 
-    private HashSet<Integer> generateListOfRealVerticesWithShortEdges() {
+    private byte[] generateVertexFlags() {
+        byte[] flags = new byte[this.totalNumVertices];
+        for (int v = 0; v < this.totalNumVertices; v++) {
+            if (this.listOfDummyVertices.contains(v)) flags[v] |= DUMMY;
+            if (this.listOfRealVerticesWithLongEdges.contains(v)) flags[v] |= LONG_EDGE_ENDPOINT;
+            if (flags[v] == 0) flags[v] = MOVABLE;
+        }
+        return flags;
+    }
+
+    private int[][] generateMovableVerticesInLayer() {
+        int[][] movable = new int[this.numberOfLayers][];
+        for (int h = 0; h < this.numberOfLayers; h++) {
+            movable[h] = this.listOfVerticesInLayer.get(h).stream().mapToInt(Integer::intValue).filter(v -> (this.vertexFlags[v] & MOVABLE) != 0).toArray();
+        }
+        return movable;
+    }
+
+    private int[] generateTwinClasses() {
+        int[] classes = new int[this.totalNumVertices];
+        int numberOfClasses = 0;
+        for (int h = 0; h < this.numberOfLayers; h++) {
+            HashMap<List<Integer>, Integer> classOfAdjacency = new HashMap<>();
+            for (int v : this.listOfVerticesInLayer.get(h)) {
+                if (!this.isMovable(v)) {
+                    classes[v] = numberOfClasses++;
+                    continue;
+                }
+                var adjacency = new ArrayList<Integer>(this.getDegree(v, TYPE_OF_ADJACENT_VERTEX.ALL) + 1);
+                addSortedAdjacentVertices(adjacency, v, TYPE_OF_ADJACENT_VERTEX.SOURCE);
+                adjacency.add(-1);
+                addSortedAdjacentVertices(adjacency, v, TYPE_OF_ADJACENT_VERTEX.TARGET);
+                Integer twin = classOfAdjacency.putIfAbsent(adjacency, numberOfClasses);
+                classes[v] = twin == null ? numberOfClasses++ : twin;
+            }
+        }
+        return classes;
+    }
+
+    private void addSortedAdjacentVertices(ArrayList<Integer> adjacency, int vertex, TYPE_OF_ADJACENT_VERTEX type) {
+        int[] offsets = this.adjacencyOffsets[type.ordinal()];
+        int[] adjacent = Arrays.copyOfRange(this.adjacentVertices[type.ordinal()], offsets[vertex], offsets[vertex + 1]);
+        Arrays.sort(adjacent);
+        for (int u : adjacent) {
+            adjacency.add(u);
+        }
+    }
+
+    private int[][] generateVerticesOfTwinClass() {
+        int numberOfClasses = 0;
+        int[] size = new int[this.totalNumVertices];
+        for (int v = 0; v < this.totalNumVertices; v++) {
+            numberOfClasses = Math.max(numberOfClasses, this.twinClass[v] + 1);
+            size[this.twinClass[v]]++;
+        }
+        int[][] vertices = new int[numberOfClasses][];
+        for (int c = 0; c < numberOfClasses; c++) {
+            vertices[c] = new int[size[c]];
+            size[c] = 0;
+        }
+        for (int h = 0; h < this.numberOfLayers; h++) {
+            for (int v : this.listOfVerticesInLayer.get(h)) {
+                int c = this.twinClass[v];
+                vertices[c][size[c]++] = v;
+            }
+        }
+        return vertices;
+    }
+
+    private Set<Integer> generateListOfRealVerticesWithShortEdges() {
         HashSet<Integer> listOfRealVerticesWithShortEdges = new HashSet<>();
         for (Edge longEdge : this.getListOfShortEdges()) {
             listOfRealVerticesWithShortEdges.add(longEdge.source);
             listOfRealVerticesWithShortEdges.add(longEdge.target);
         }
-        return listOfRealVerticesWithShortEdges;
+        return Collections.unmodifiableSet(listOfRealVerticesWithShortEdges);
     }
 
-    private HashMap<Integer, ArrayList<Edge>> generateListOfShortEdgesInLayer() {
+    private HashMap<Integer, List<Edge>> generateListOfShortEdgesInLayer() {
         HashMap<Integer, ArrayList<Edge>> listOfShortEdgesInLayer = new HashMap<>();
         for (int h = 0; h < this.numberOfLayers; h++) {
             listOfShortEdgesInLayer.put(h, new ArrayList<>());
@@ -251,12 +608,20 @@ public class GDInstance extends Instance {
         for (Edge e : this.listOfShortEdges) {
             listOfShortEdgesInLayer.get(this.layerOfVertex[e.source()]).add(e);
         }
-        return listOfShortEdgesInLayer;
+        return unmodifiableLists(listOfShortEdgesInLayer);
+    }
+
+    private LayerPairEdges[] generateLayerPairEdges() {
+        LayerPairEdges[] pairs = new LayerPairEdges[Math.max(0, this.numberOfLayers - 1)];
+        for (int h = 0; h < pairs.length; h++) {
+            pairs[h] = new LayerPairEdges(this, h, this.listOfShortEdgesInLayer.get(h));
+        }
+        return pairs;
     }
 
-    private HashMap<Integer, Triplet<ArrayList<Integer>, ArrayList<Integer>, ArrayList<Integer>>> generateListOfAdjacentDummyVertices() {
+    private HashMap<Integer, Triplet<List<Integer>, List<Integer>, List<Integer>>> generateListOfAdjacentDummyVertices() {
         HashMap<Integer, Triplet<ArrayList<Integer>, ArrayList<Integer>, ArrayList<Integer>>> hashMap = new HashMap<>(this.numRealLongEdges);
-        for (Map.Entry<Edge, ArrayList<Edge>> entry : listOfShortEdgesOfLongEdge.entrySet()) {
+        for (Map.Entry<Edge, List<Edge>> entry : listOfShortEdgesOfLongEdge.entrySet()) {
             var longEdge = entry.getKey();
             var listOfEdges = entry.getValue();
             hashMap.putIfAbsent(longEdge.source(), new Triplet<>(new ArrayList<Integer>(this.numVerticesInLayer), new ArrayList<Integer>(this.numVerticesInLayer), new ArrayList<Integer>(this.numVerticesInLayer)));
@@ -268,18 +633,25 @@ public class GDInstance extends Instance {
             targetEntry.getValue1().add(listOfEdges.get(listOfEdges.size() - 1).source());
             targetEntry.getValue2().add(listOfEdges.get(listOfEdges.size() - 1).source());
         }
-        return hashMap;
+        return unmodifiableTriplets(hashMap);
     }
 
-    private HashMap<Integer, Triplet<HashSet<Integer>, HashSet<Integer>, HashSet<Integer>>> generateAdjacentSet(HashMap<Integer, Triplet<ArrayList<Integer>, ArrayList<Integer>, ArrayList<Integer>>> adjacentShortVertexListOfVertex) {
-        HashMap<Integer, Triplet<HashSet<Integer>, HashSet<Integer>, HashSet<Integer>>> as = new HashMap<>(adjacentShortVertexListOfVertex.size());
-        for (Map.Entry<Integer, Triplet<ArrayList<Integer>, ArrayList<Integer>, ArrayList<Integer>>> tripletEntry : adjacentShortVertexListOfVertex.entrySet()) {
-            var listSource = tripletEntry.getValue().getValue0();
-            var listTarget = tripletEntry.getValue().getValue1();
-            var listAll = tripletEntry.getValue().getValue2();
-            as.put(tripletEntry.getKey(), new Triplet<>(new HashSet<>(listSource), new HashSet<>(listTarget), new HashSet<>(listAll)));
+    private void generateAdjacencyArrays() {
+        for (TYPE_OF_ADJACENT_VERTEX type : TYPE_OF_ADJACENT_VERTEX.values()) {
+            int[] offsets = new int[this.totalNumVertices + 1];
+            for (int v = 0; v < this.totalNumVertices; v++) {
+                offsets[v + 1] = offsets[v] + this.adjacentShortVertices(v, type).size();
+            }
+            int[] vertices = new int[offsets[this.totalNumVertices]];
+            for (int v = 0; v < this.totalNumVertices; v++) {
+                int i = offsets[v];
+                for (int u : this.adjacentShortVertices(v, type)) {
+                    vertices[i++] = u;
+                }
+            }
+            this.adjacencyOffsets[type.ordinal()] = offsets;
+            this.adjacentVertices[type.ordinal()] = vertices;
         }
-        return as;
     }
 
     /**
@@ -360,7 +732,7 @@ public class GDInstance extends Instance {
      *
      * @return the list of vertices of the graph
      */
-    public HashSet<Integer> getTotalListOfVertices() {
+    public Set<Integer> getTotalListOfVertices() {
         return totalListOfVertices;
     }
 
@@ -369,7 +741,7 @@ public class GDInstance extends Instance {
      *
      * @return the list of real vertices
      */
-    public HashSet<Integer> getListOfRealVertices() {
+    public Set<Integer> getListOfRealVertices() {
         return listOfRealVertices;
     }
 
@@ -378,7 +750,7 @@ public class GDInstance extends Instance {
      *
      * @return the list of dummy vertices
      */
-    public HashSet<Integer> getListOfDummyVertices() {
+    public Set<Integer> getListOfDummyVertices() {
         return listOfDummyVertices;
     }
 
@@ -387,7 +759,7 @@ public class GDInstance extends Instance {
      *
      * @return list of short edges
      */
-    public ArrayList<Edge> getListOfShortEdges() {
+    public List<Edge> getListOfShortEdges() {
         return listOfShortEdges;
     }
 
@@ -397,16 +769,77 @@ public class GDInstance extends Instance {
      *
      * @return list of long edges
      */
-    public ArrayList<Edge> getListOfLongEdges() {
+    public List<Edge> getListOfLongEdges() {
         return listOfLongEdges;
     }
 
+    /**
+     * Get the index of a long edge in the list of long edges, used as its identifier
+     *
+     * @param longEdge long edge
+     * @return index of the long edge
+     */
+    public int getIndexOfLongEdge(Edge longEdge) {
+        return indexOfLongEdge.get(longEdge);
+    }
+
+    /**
+     * Get a long edge given its identifier
+     *
+     * @param id index of the long edge in the list of long edges
+     * @return the long edge
+     */
+    public Edge getLongEdge(int id) {
+        return listOfLongEdges.get(id);
+    }
+
+    /**
+     * Get the vertices of a long edge (source, dummy vertices and target) ordered by layer.
+     * The array is shared and must not be modified
+     *
+     * @param id index of the long edge in the list of long edges
+     * @return vertices of the long edge
+     */
+    public int[] getChainOfLongEdge(int id) {
+        return chainOfLongEdge[id];
+    }
+
+    /**
+     * Get the index of a short edge in the list of short edges, used as its identifier
+     *
+     * @param shortEdge short edge
+     * @return index of the short edge
+     */
+    public int getIndexOfShortEdge(Edge shortEdge) {
+        return indexOfShortEdge.get(shortEdge);
+    }
+
+    /**
+     * Get a short edge given its identifier
+     *
+     * @param id index of the short edge in the list of short edges
+     * @return the short edge
+     */
+    public Edge getShortEdge(int id) {
+        return listOfShortEdges.get(id);
+    }
+
+    /**
+     * Get the long edges that a vertex belongs to, either as source, target or dummy vertex
+     *
+     * @param vertex vertex
+     * @return indexes of the long edges in the list of long edges
+     */
+    public int[] getLongEdgesOfVertex(int vertex) {
+        return longEdgesOfVertex[vertex];
+    }
+
     /**
      * Get list of short edges given a long edge
      *
      * @return list of short edges
      */
-    public ArrayList<Edge> getListOfShortEdgesOfLongEdge(Edge longEdge) {
+    public List<Edge> getListOfShortEdgesOfLongEdge(Edge longEdge) {
         return listOfShortEdgesOfLongEdge.get(longEdge);
     }
 
@@ -415,7 +848,7 @@ public class GDInstance extends Instance {
      *
      * @return set of all adjacent vertices to a long edge
      */
-    public HashSet<Integer> getSetOfAdjacentVerticesWithLongEdgesOfLongEdge(Edge longEdge) {
+    public Set<Integer> getSetOfAdjacentVerticesWithLongEdgesOfLongEdge(Edge longEdge) {
         return this.adjacentVerticesWithLongEdgesOfLongEdge.get(longEdge);
     }
 
@@ -424,7 +857,7 @@ public class GDInstance extends Instance {
      *
      * @return list of vertices
      */
-    public ArrayList<Integer> getListOfVerticesInLayer(int layer) {
+    public List<Integer> getListOfVerticesInLayer(int layer) {
         return listOfVerticesInLayer.get(layer);
     }
 
@@ -445,17 +878,90 @@ public class GDInstance extends Instance {
      * @param  layer layer
      * @return list of short edges of a layer
      */
-    public ArrayList<Edge> shortEdgesOfLayer(int layer) {
+    public List<Edge> shortEdgesOfLayer(int layer) {
         return this.listOfShortEdgesInLayer.get(layer);
     }
 
+    /**
+     * Get the arrays with the short edges between a layer and the next one, in the same order as shortEdgesOfLayer
+     *
+     * @param layer upper layer of the pair, lower than NumberOfLayers() - 1
+     * @return short edges between the layer and the next one
+     */
+    public LayerPairEdges getLayerPairEdges(int layer) {
+        return this.layerPairEdges[layer];
+    }
+
     /**
      * Check if a vertex is dummy
      * @param vertex vertex
      * @return true if the vertex is dummy
      */
     public boolean isDummy(int vertex) {
-        return this.listOfDummyVertices.contains(vertex);
+        return (this.vertexFlags[vertex] & DUMMY) != 0;
+    }
+
+    /**
+     * Check if a vertex can be moved freely in its layer, i.e., it is neither a dummy vertex nor an endpoint of a long edge
+     *
+     * @param vertex vertex
+     * @return true if the vertex is movable, false in other case
+     */
+    public boolean isMovable(int vertex) {
+        return (this.vertexFlags[vertex] & MOVABLE) != 0;
+    }
+
+    /**
+     * Get the vertices of a layer that are neither dummy vertices nor endpoints of a long edge,
+     * in the same order as getListOfVerticesInLayer. The array is shared and must not be modified
+     *
+     * @param layer layer
+     * @return movable vertices of the layer
+     */
+    public int[] getMovableVerticesInLayer(int layer) {
+        return this.movableVerticesInLayer[layer];
+    }
+
+    /**
+     * Get the twin class of a vertex. Twins are interchangeable: swapping two twins never changes the number of crossings
+     *
+     * @param vertex vertex
+     * @return twin class of the vertex
+     */
+    public int getTwinClass(int vertex) {
+        return this.twinClass[vertex];
+    }
+
+    /**
+     * Get the number of twin classes of the instance
+     *
+     * @return number of twin classes
+     */
+    public int getNumberOfTwinClasses() {
+        return this.verticesOfTwinClass.length;
+    }
+
+    /**
+     * Get the vertices of the twin class of a vertex, including the vertex itself.
+     * The array is shared and must not be modified
+     *
+     * @param vertex vertex
+     * @return vertices of the twin class of the vertex
+     */
+    public int[] getTwinsOfVertex(int vertex) {
+        return this.verticesOfTwinClass[this.twinClass[vertex]];
+    }
+
+    /**
+     * Check if two different vertices are twins, i.e. they are movable vertices of the same layer with the same
+     * adjacent vertices in the previous and in the next layer
+     *
+     * @param u vertex
+     * @param v vertex
+     * @return true if the vertices are twins, false in other case
+     */
+    public boolean areTwins(int u, int v) {
+        return u != v && this.twinClass[u] == this.twinClass[v];
     }
 
     /**
@@ -476,15 +982,65 @@ public class GDInstance extends Instance {
      * @param type   source, target or all
      * @return list of vertices
      */
-    public ArrayList<Integer> getAdjacentShortVertexListOfVertex(int vertex, TYPE_OF_ADJACENT_VERTEX type) {
+    public List<Integer> getAdjacentShortVertexListOfVertex(int vertex, TYPE_OF_ADJACENT_VERTEX type) {
+        return adjacentShortVertices(vertex, type);
+    }
+
+    /**
+     * Get the list of adjacent vertices of a vertex given a type, or an empty list if the vertex has no short edges
+     *
+     * @param vertex vertex
+     * @param type   source, target or all
+     * @return list of vertices
+     */
+    private List<Integer> adjacentShortVertices(int vertex, TYPE_OF_ADJACENT_VERTEX type) {
+        var adjacent = adjacentListOfShortEdgesOfVertex.get(vertex);
+        if (adjacent == null) {
+            return Collections.emptyList();
+        }
         return switch (type) {
-            case SOURCE -> adjacentListOfShortEdgesOfVertex.get(vertex).getValue0();
-            case TARGET -> adjacentListOfShortEdgesOfVertex.get(vertex).getValue1();
-            case ALL -> adjacentListOfShortEdgesOfVertex.get(vertex).getValue2();
+            case SOURCE -> adjacent.getValue0();
+            case TARGET -> adjacent.getValue1();
+            case ALL -> adjacent.getValue2();
         };
     }
 
 
+    /**
+     * Get the offsets of the adjacency arrays of a type (compressed sparse row format).
+     * The vertices adjacent to v are getAdjacentVertices(type)[offsets[v]] to getAdjacentVertices(type)[offsets[v + 1] - 1].
+     * The array is shared and must not be modified
+     *
+     * @param type source, target or all
+     * @return offsets of the adjacent vertices of each vertex
+     */
+    public int[] getAdjacencyOffsets(TYPE_OF_ADJACENT_VERTEX type) {
+        return adjacencyOffsets[type.ordinal()];
+    }
+
+    /**
+     * Get the adjacent vertices of every vertex of a type (compressed sparse row format), in the same order as
+     * getAdjacentShortVertexListOfVertex. The array is shared and must not be modified
+     *
+     * @param type source, target or all
+     * @return adjacent vertices of each vertex, see getAdjacencyOffsets
+     */
+    public int[] getAdjacentVertices(TYPE_OF_ADJACENT_VERTEX type) {
+        return adjacentVertices[type.ordinal()];
+    }
+
+    /**
+     * Get the number of adjacent vertices of a vertex given a type
+     *
+     * @param vertex vertex
+     * @param type   source, target or all
+     * @return number of adjacent vertices
+     */
+    public int getDegree(int vertex, TYPE_OF_ADJACENT_VERTEX type) {
+        int[] offsets = adjacencyOffsets[type.ordinal()];
+        return offsets[vertex + 1] - offsets[vertex];
+    }
+
     /**
      * Get list of adjacent vertices given a vertex and a type
      *
@@ -492,7 +1048,7 @@ public class GDInstance extends Instance {
      * @param type   source, target or all
      * @return list of vertices
      */
-    public ArrayList<Integer> getAdjacentDummyVerticesOfLongEdgeOfVertex(int vertex, TYPE_OF_ADJACENT_VERTEX type) {
+    public List<Integer> getAdjacentDummyVerticesOfLongEdgeOfVertex(int vertex, TYPE_OF_ADJACENT_VERTEX type) {
         return switch (type) {
             case SOURCE -> adjacentListOfDummyVerticesOfVertex.get(vertex).getValue0();
             case TARGET -> adjacentListOfDummyVerticesOfVertex.get(vertex).getValue1();
@@ -500,10 +1056,117 @@ public class GDInstance extends Instance {
         };
     }
 
+    /**
+     * Get the number of vertices of the widest layer.
+     * Layers may have different widths, use NumVerticesInLayer(layer) to get the width of a given layer
+     *
+     * @return number of vertices of the widest layer
+     */
     public int NumVerticesInLayer() {
         return numVerticesInLayer;
     }
 
+    /**
+     * Get a lower bound on the number of crossings of any layout of the instance (see LowerBound)
+     *
+     * @return lower bound on the number of crossings
+     */
+    public int getLowerBound() {
+        return lowerBound;
+    }
+
+    /**
+     * Get the fingerprint of the instance, a hash of its layers, short edges and long edges that does not depend on
+     * the name of the instance. Instances with the same fingerprint have the same derived structures
+     *
+     * @return SHA-256 hash of the content of the instance, in hexadecimal
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Get the derived structures of the instance that are stored in the cache
+     *
+     * @return derived structures of the instance
+     */
+    GDInstanceCache.Entry getDerivedStructures() {
+        int[][] adjacentVerticesOfLongEdgeById = new int[this.listOfLongEdges.size()][];
+        for (int i = 0; i < this.listOfLongEdges.size(); i++) {
+            adjacentVerticesOfLongEdgeById[i] = this.adjacentVerticesWithLongEdgesOfLongEdge.get(this.listOfLongEdges.get(i)).stream().mapToInt(Integer::intValue).toArray();
+        }
+        return new GDInstanceCache.Entry(adjacencyOffsets, adjacentVertices, vertexFlags, twinClass, chainOfLongEdge, longEdgesOfVertex, adjacentVerticesOfLongEdgeById, lowerBound);
+    }
+
+    /**
+     * Get the number of vertices of a given layer
+     *
+     * @param layer layer
+     * @return number of vertices of the layer
+     */
+    public int NumVerticesInLayer(int layer) {
+        return numVerticesOfLayer[layer];
+    }
+
+    /**
+     * Get the index of the first host vertex of a given layer, i.e. the number of vertices of the previous layers
+     *
+     * @param layer layer
+     * @return index of the first host vertex of the layer
+     */
+    public int getLayerStart(int layer) {
+        return layerStart[layer];
+    }
+
+    /**
+     * Get the minimum width of the layers between two given layers, both included.
+     * A long edge spanning those layers can only be located in a position lower than this width
+     *
+     * @param firstLayer first layer
+     * @param lastLayer  last layer
+     * @return minimum number of vertices of the layers in the range
+     */
+    public int getMinNumVerticesInLayers(int firstLayer, int lastLayer) {
+        int min = Integer.MAX_VALUE;
+        for (int h = firstLayer; h <= lastLayer; h++) {
+            min = Math.min(min, numVerticesOfLayer[h]);
+        }
+        return min;
+    }
+
+    /**
+     * Get the index of a vertex in the list of vertices of its layer
+     *
+     * @param vertex vertex
+     * @return index of the vertex in its layer
+     */
+    public int getIndexInLayer(int vertex) {
+        return indexInLayer[vertex];
+    }
+
+    /**
+     * Get the number of cells of the crossing matrix, i.e. the sum of the squared size of each layer.
+     * Only pairs of vertices of the same layer have a cell in the matrix.
+     *
+     * @return number of cells of the crossing matrix
+     */
+    public int getCrossingMatrixSize() {
+        return crossingMatrixOffset[numberOfLayers];
+    }
+
+    /**
+     * Get the cell of the crossing matrix associated to a pair of vertices (u,v) of the same layer
+     *
+     * @param u vertex
+     * @param v vertex in the same layer as u
+     * @return index of the cell (u,v) in the crossing matrix
+     */
+    public int getCrossingMatrixCell(int u, int v) {
+        assert layerOfVertex[u] == layerOfVertex[v];
+        int layer = layerOfVertex[u];
+        return crossingMatrixOffset[layer] + indexInLayer[u] * numVerticesOfLayer[layer] + indexInLayer[v];
+    }
+
 
     /**
      * Check if two vertices are adjacent
@@ -513,11 +1176,12 @@ public class GDInstance extends Instance {
      * @return true if are adjacent, false in other case
      */
     public boolean areAdjacent(int u, int v, TYPE_OF_ADJACENT_VERTEX type) {
-        return switch (type) {
-            case SOURCE -> this.adjacentSetOfShortEdgesOfVertex.get(u).getValue0().contains(v);
-            case TARGET -> this.adjacentSetOfShortEdgesOfVertex.get(u).getValue1().contains(v);
-            case ALL -> this.adjacentSetOfShortEdgesOfVertex.get(u).getValue2().contains(v);
-        };
+        int[] offsets = this.adjacencyOffsets[type.ordinal()];
+        int[] vertices = this.adjacentVertices[type.ordinal()];
+        for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+            if (vertices[i] == v) return true;
+        }
+        return false;
     }
 
     /**
@@ -528,11 +1192,11 @@ public class GDInstance extends Instance {
      * @return true if are adjacent, false in other case
      */
     public boolean areAdjacent(int u, int v) {
-        return this.adjacentSetOfShortEdgesOfVertex.get(u).getValue2().contains(v);
+        return this.areAdjacent(u, v, TYPE_OF_ADJACENT_VERTEX.ALL);
     }
 
 
-    public HashSet<Integer> getListOfRealVerticesWithShortEdges() {
+    public Set<Integer> getListOfRealVerticesWithShortEdges() {
         return this.listOfRealVerticesWithShortEdges;
     }
 
@@ -553,7 +1217,7 @@ public class GDInstance extends Instance {
      * @return true if the vertex has a long edge, false in other case
      */
     public boolean hasLongEdge (int vertex) {
-        return this.listOfRealVerticesWithLongEdges.contains(vertex);
+        return (this.vertexFlags[vertex] & LONG_EDGE_ENDPOINT) != 0;
     }
 
     /**
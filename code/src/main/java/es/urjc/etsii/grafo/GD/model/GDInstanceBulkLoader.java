@@ -0,0 +1,181 @@
+package es.urjc.etsii.grafo.GD.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Loader of every instance of a folder, which loads several files at the same time.
+ * <p>
+ * Instances are loaded with a GDInstanceImporter (so text and binary files are supported, and the caches of the
+ * importer are used) in a pool with a bounded number of threads, and they are returned in the order of their paths,
+ * whatever the order in which they are loaded. At most a bounded number of instances are loaded ahead of the one being
+ * consumed, so the instances of large folders are not kept in memory at the same time.
+ * <p>
+ * The properties of the instances (numV, numE, numL, numLE, numRV, numRE, LB) are set while each file is parsed, in the
+ * threads of the loader, so they are available in the returned instances without another pass over them.
+ * <p>
+ * GDInstanceImporter uses it to preload the instances of a folder into its memory cache, see the property
+ * instances.preload-threads
+ */
+public class GDInstanceBulkLoader {
+
+    /**
+     * Importer used to load each file
+     */
+    private final GDInstanceImporter importer;
+
+    /**
+     * Number of threads used to load the files
+     */
+    private final int numThreads;
+
+    /**
+     * Create a loader that uses a thread per available processor
+     *
+     * @param importer importer used to load each file
+     */
+    public GDInstanceBulkLoader(GDInstanceImporter importer) {
+        this(importer, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a loader
+     *
+     * @param importer   importer used to load each file
+     * @param numThreads number of threads used to load the files
+     */
+    public GDInstanceBulkLoader(GDInstanceImporter importer, int numThreads) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("numThreads must be positive: " + numThreads);
+        }
+        this.importer = importer;
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Get the instance files of a folder and its subfolders, sorted by path. Hidden files are ignored
+     *
+     * @param folder folder, or a single instance file
+     * @return instance files
+     * @throws IOException if the folder can not be listed
+     */
+    public static List<Path> listInstanceFiles(Path folder) throws IOException {
+        try (Stream<Path> walk = Files.walk(folder)) {
+            return walk.filter(Files::isRegularFile).filter(f -> !f.getFileName().toString().startsWith(".")).sorted().toList();
+        }
+    }
+
+    /**
+     * Load every instance of a folder and its subfolders, see listInstanceFiles.
+     * The stream must be closed to stop the threads of the loader if it is not fully consumed
+     *
+     * @param folder folder, or a single instance file
+     * @return instances, in the order of their paths
+     * @throws IOException if the folder can not be listed
+     */
+    public Stream<GDInstance> load(Path folder) throws IOException {
+        return this.load(listInstanceFiles(folder));
+    }
+
+    /**
+     * Load the instances of the given files.
+     * The stream must be closed to stop the threads of the loader if it is not fully consumed.
+     * Errors loading a file are thrown when its instance is consumed, as an UncheckedIOException caused by the error
+     *
+     * @param files instance files
+     * @return instances, in the order of the files
+     */
+    public Stream<GDInstance> load(List<Path> files) {
+        var executor = Executors.newFixedThreadPool(Math.min(this.numThreads, Math.max(1, files.size())), r -> {
+            var thread = new Thread(r, "instance-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        var instances = new InstanceIterator(files, executor, 2 * this.numThreads);
+        return StreamSupport.stream(Spliterators.spliterator(instances, files.size(), Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(executor::shutdownNow);
+    }
+
+    /**
+     * Iterator over the instances of a list of files, which keeps a bounded number of files loading ahead of the
+     * instance being consumed
+     */
+    private class InstanceIterator implements Iterator<GDInstance> {
+
+        private final List<Path> files;
+
+        private final ExecutorService executor;
+
+        private final int window;
+
+        /**
+         * Loads of the next instances, in the order of the files
+         */
+        private final ArrayDeque<Future<GDInstance>> pending = new ArrayDeque<>();
+
+        /**
+         * Index of the next file to submit
+         */
+        private int nextFile;
+
+        /**
+         * Index of the next file to consume
+         */
+        private int nextInstance;
+
+        private InstanceIterator(List<Path> files, ExecutorService executor, int window) {
+            this.files = files;
+            this.executor = executor;
+            this.window = window;
+            this.submit();
+        }
+
+        private void submit() {
+            while (this.pending.size() < this.window && this.nextFile < this.files.size()) {
+                File file = this.files.get(this.nextFile++).toFile();
+                this.pending.add(this.executor.submit(() -> importer.importInstance(file)));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.nextInstance < this.files.size();
+        }
+
+        @Override
+        public GDInstance next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            var path = this.files.get(this.nextInstance++);
+            var future = this.pending.remove();
+            this.submit();
+            if (!this.hasNext()) {
+                this.executor.shutdown();
+            }
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while loading " + path, e);
+            } catch (ExecutionException e) {
+                throw new UncheckedIOException(new IOException("Could not load " + path, e.getCause()));
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package es.urjc.etsii.grafo.GD.model;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * On-disk cache of the structures derived from the instances, so repeated executions over the same instances
+ * (e.g. irace runs) do not rebuild them. The structures of each instance are stored in a compact binary file of the
+ * cache folder, named after the fingerprint of the instance (see GDInstance.getFingerprint).
+ * <p>
+ * Files are written to a temporary file and then moved into place, so several processes can share the same folder.
+ * Unreadable files, or files written by a different version of the format, are ignored and overwritten
+ */
+public class GDInstanceCache {
+
+    private static final Logger log = LoggerFactory.getLogger(GDInstanceCache.class);
+
+    /**
+     * First bytes of every file of the cache
+     */
+    private static final int MAGIC = 0x47444943;
+
+    /**
+     * Version of the format of the files. It must be increased when the stored structures, or the way they are
+     * derived from the instance, change
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Folder of the cache
+     */
+    private final Path folder;
+
+    /**
+     * Create a cache stored in the given folder. The folder is created when the first instance is stored
+     *
+     * @param folder folder of the cache
+     */
+    public GDInstanceCache(Path folder) {
+        this.folder = folder;
+    }
+
+    /**
+     * Get the folder of the cache
+     *
+     * @return folder of the cache
+     */
+    public Path getFolder() {
+        return folder;
+    }
+
+    /**
+     * Load the derived structures of an instance. Files whose structures do not match the size of the instance, or
+     * whose offsets are not valid, are ignored as unreadable files
+     *
+     * @param fingerprint      fingerprint of the instance
+     * @param totalNumVertices number of vertices of the instance, including dummy vertices
+     * @param numLongEdges     number of long edges of the instance
+     * @return the derived structures, or null if they are not in the cache
+     */
+    Entry load(String fingerprint, int totalNumVertices, int numLongEdges) {
+        var file = this.fileOf(fingerprint);
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            // No array of the file can have more values than the file, even if its length is corrupt
+            int maxLength = (int) Math.min(Integer.MAX_VALUE, Files.size(file) / Integer.BYTES);
+            int numTypes = in.readInt();
+            if (numTypes != GDInstance.TYPE_OF_ADJACENT_VERTEX.values().length) {
+                throw new IOException("expected " + GDInstance.TYPE_OF_ADJACENT_VERTEX.values().length + " types of adjacent vertices, found " + numTypes);
+            }
+            int[][] adjacencyOffsets = new int[numTypes][];
+            int[][] adjacentVertices = new int[numTypes][];
+            for (int type = 0; type < numTypes; type++) {
+                adjacencyOffsets[type] = readArray(in, totalNumVertices + 1, maxLength, Integer.MAX_VALUE);
+                adjacentVertices[type] = readArray(in, -1, maxLength, totalNumVertices);
+                checkOffsets(adjacencyOffsets[type], adjacentVertices[type].length);
+            }
+            byte[] vertexFlags = new byte[readLength(in, totalNumVertices, maxLength)];
+            in.readFully(vertexFlags);
+            int[] twinClass = readArray(in, totalNumVertices, maxLength, totalNumVertices);
+            int[][] chainOfLongEdge = readArrays(in, numLongEdges, maxLength, totalNumVertices);
+            int[][] longEdgesOfVertex = readArrays(in, totalNumVertices, maxLength, numLongEdges);
+            int[][] adjacentVerticesWithLongEdgesOfLongEdge = readArrays(in, numLongEdges, maxLength, totalNumVertices);
+            int lowerBound = in.readInt();
+            return new Entry(adjacencyOffsets, adjacentVertices, vertexFlags, twinClass, chainOfLongEdge, longEdgesOfVertex, adjacentVerticesWithLongEdgesOfLongEdge, lowerBound);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable cache file {}: {}", file, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Store the derived structures of an instance, replacing the previous ones if any.
+     * Errors are logged and ignored, since the structures can always be rebuilt
+     *
+     * @param instance instance
+     */
+    public void store(GDInstance instance) {
+        var file = this.fileOf(instance.getFingerprint());
+        var entry = instance.getDerivedStructures();
+        try {
+            Files.createDirectories(this.folder);
+            var tmp = Files.createTempFile(this.folder, instance.getFingerprint(), ".tmp");
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(entry.adjacencyOffsets().length);
+                for (int type = 0; type < entry.adjacencyOffsets().length; type++) {
+                    writeArray(out, entry.adjacencyOffsets()[type]);
+                    writeArray(out, entry.adjacentVertices()[type]);
+                }
+                out.writeInt(entry.vertexFlags().length);
+                out.write(entry.vertexFlags());
+                writeArray(out, entry.twinClass());
+                writeArrays(out, entry.chainOfLongEdge());
+                writeArrays(out, entry.longEdgesOfVertex());
+                writeArrays(out, entry.adjacentVerticesWithLongEdgesOfLongEdge());
+                out.writeInt(entry.lowerBound());
+            } catch (IOException e) {
+                Files.deleteIfExists(tmp);
+                throw e;
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not store {} in the cache: {}", instance.getId(), e.toString());
+        }
+    }
+
+    private Path fileOf(String fingerprint) {
+        return this.folder.resolve(fingerprint + ".bin");
+    }
+
+    private static void writeArray(DataOutputStream out, int[] array) throws IOException {
+        out.writeInt(array.length);
+        for (int value : array) {
+            out.writeInt(value);
+        }
+    }
+
+    private static void writeArrays(DataOutputStream out, int[][] arrays) throws IOException {
+        out.writeInt(arrays.length);
+        for (int[] array : arrays) {
+            writeArray(out, array);
+        }
+    }
+
+    /**
+     * Read the length of an array
+     *
+     * @param expected expected length, or -1 if it is not known
+     * @param max      maximum length
+     */
+    private static int readLength(DataInputStream in, int expected, int max) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > max || (expected >= 0 && length != expected)) {
+            throw new IOException("invalid length " + length + (expected >= 0 ? ", expected " + expected : ""));
+        }
+        return length;
+    }
+
+    /**
+     * Read an array whose values must be in [0, bound)
+     *
+     * @param expected expected length, or -1 if it is not known
+     * @param max      maximum length
+     */
+    private static int[] readArray(DataInputStream in, int expected, int max, int bound) throws IOException {
+        int[] array = new int[readLength(in, expected, max)];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = in.readInt();
+            if (array[i] < 0 || array[i] >= bound) {
+                throw new IOException("value " + array[i] + " out of range [0, " + (bound - 1) + "]");
+            }
+        }
+        return array;
+    }
+
+    private static int[][] readArrays(DataInputStream in, int expected, int max, int bound) throws IOException {
+        int[][] arrays = new int[readLength(in, expected, max)][];
+        for (int i = 0; i < arrays.length; i++) {
+            arrays[i] = readArray(in, -1, max, bound);
+        }
+        return arrays;
+    }
+
+    /**
+     * Check that the offsets of a CSR structure start at 0, never decrease and end at its number of values
+     */
+    private static void checkOffsets(int[] offsets, int total) throws IOException {
+        if (offsets[0] != 0 || offsets[offsets.length - 1] != total) {
+            throw new IOException("invalid offsets of the adjacent vertices");
+        }
+        for (int i = 0; i + 1 < offsets.length; i++) {
+            if (offsets[i] > offsets[i + 1]) {
+                throw new IOException("invalid offsets of the adjacent vertices");
+            }
+        }
+    }
+
+    /**
+     * Structures derived from an instance that are stored in the cache, see the attributes of GDInstance with the
+     * same names. The adjacent vertices with long edges of each long edge are indexed by the index of the long edge
+     */
+    record Entry(int[][] adjacencyOffsets, int[][] adjacentVertices, byte[] vertexFlags, int[] twinClass,
+                 int[][] chainOfLongEdge, int[][] longEdgesOfVertex, int[][] adjacentVerticesWithLongEdgesOfLongEdge,
+                 int lowerBound) {
+    }
+}
@@ -2,26 +2,319 @@ package es.urjc.etsii.grafo.GD.model;
 
 import es.urjc.etsii.grafo.io.InstanceImporter;
 import org.javatuples.Triplet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class GDInstanceImporter extends InstanceImporter<GDInstance> {
 
+    private static final Logger log = LoggerFactory.getLogger(GDInstanceImporter.class);
+
+    /**
+     * Cache of the structures derived from the instances, or null if the cache is disabled
+     */
+    private final GDInstanceCache cache;
+
+    /**
+     * Cache of the loaded instances, or null if the cache is disabled
+     */
+    private final GDInstanceMemoryCache memoryCache;
+
+    /**
+     * Loader of the instances of a folder in the background, or null if preloading is disabled
+     */
+    private final GDInstanceBulkLoader preloader;
+
+    /**
+     * Folders whose instances have been preloaded
+     */
+    private final Set<Path> preloadedFolders = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Create an importer that builds the derived structures of every instance
+     */
+    public GDInstanceImporter() {
+        this.cache = null;
+        this.memoryCache = null;
+        this.preloader = null;
+    }
+
+    /**
+     * Create an importer that keeps the derived structures of the instances in an on-disk cache
+     *
+     * @param cacheFolder folder of the cache (see GDInstanceCache), or an empty string to disable the cache
+     */
+    public GDInstanceImporter(String cacheFolder) {
+        this(cacheFolder, 0, 0);
+    }
+
+    /**
+     * Create an importer that keeps the derived structures of the instances in an on-disk cache, and the loaded
+     * instances in memory
+     *
+     * @param cacheFolder          folder of the cache (see GDInstanceCache), or an empty string to disable the cache
+     * @param memoryCacheMaxWeight maximum weight of the instances kept in memory (see GDInstanceMemoryCache), or 0 to
+     *                             disable the cache
+     */
+    public GDInstanceImporter(String cacheFolder, long memoryCacheMaxWeight) {
+        this(cacheFolder, memoryCacheMaxWeight, 0);
+    }
+
+    /**
+     * Create an importer that keeps the derived structures of the instances in an on-disk cache, and the loaded
+     * instances in memory. When preloading is enabled, the first instance requested from a folder starts loading every
+     * instance of the folder and its subfolders into the memory cache in the background (see GDInstanceBulkLoader),
+     * so the next instances are already loaded when they are requested
+     *
+     * @param cacheFolder          folder of the cache (see GDInstanceCache), or an empty string to disable the cache
+     * @param memoryCacheMaxWeight maximum weight of the instances kept in memory (see GDInstanceMemoryCache), or 0 to
+     *                             disable the cache
+     * @param preloadThreads       number of threads used to preload the instances, or 0 to disable preloading. It
+     *                             requires the memory cache
+     */
+    @Autowired
+    public GDInstanceImporter(@Value("${instances.cache.folder:}") String cacheFolder, @Value("${instances.cache.memory-max-weight:0}") long memoryCacheMaxWeight,
+                              @Value("${instances.preload-threads:0}") int preloadThreads) {
+        if (preloadThreads < 0) {
+            throw new IllegalArgumentException("instances.preload-threads must not be negative: " + preloadThreads);
+        }
+        if (preloadThreads > 0 && memoryCacheMaxWeight <= 0) {
+            throw new IllegalArgumentException("instances.preload-threads requires the memory cache, set instances.cache.memory-max-weight");
+        }
+        this.cache = cacheFolder.isBlank() ? null : new GDInstanceCache(Path.of(cacheFolder));
+        this.memoryCache = memoryCacheMaxWeight <= 0 ? null : new GDInstanceMemoryCache(memoryCacheMaxWeight);
+        this.preloader = preloadThreads == 0 ? null : new GDInstanceBulkLoader(this, preloadThreads);
+    }
+
+    @Override
+    public GDInstance importInstance(File f) {
+        if (this.memoryCache == null) {
+            return this.load(f.toPath());
+        }
+        if (this.preloader != null) {
+            this.preload(f.toPath().toAbsolutePath().normalize().getParent());
+        }
+        return this.memoryCache.get(f.toPath(), this::load);
+    }
+
+    /**
+     * Get the cache of the loaded instances
+     *
+     * @return cache of the loaded instances, or null if the cache is disabled
+     */
+    GDInstanceMemoryCache getMemoryCache() {
+        return this.memoryCache;
+    }
+
+    /**
+     * Start loading the instances of a folder and its subfolders into the memory cache, unless they have already been
+     * preloaded. Instances requested while they are being preloaded wait for them instead of loading them again
+     *
+     * @param folder folder of the instances
+     */
+    private void preload(Path folder) {
+        if (folder == null || !this.preloadedFolders.add(folder)) {
+            return;
+        }
+        List<Path> files;
+        try {
+            files = GDInstanceBulkLoader.listInstanceFiles(folder);
+        } catch (IOException e) {
+            log.warn("Could not list the instances of {} to preload them: {}", folder, e.toString());
+            return;
+        }
+        for (var file : files) {
+            this.preloadedFolders.add(file.toAbsolutePath().normalize().getParent());
+        }
+        var thread = new Thread(() -> {
+            try (var instances = this.preloader.load(files)) {
+                var iterator = instances.iterator();
+                while (iterator.hasNext()) {
+                    try {
+                        iterator.next();
+                    } catch (RuntimeException e) {
+                        // Reported again if the instance is requested, since failed loads are not cached
+                        log.debug("Could not preload an instance: {}", e.toString());
+                    }
+                }
+            }
+            log.debug("Preloaded {} files of {}", files.size(), folder);
+        }, "instance-preloader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private GDInstance load(Path path) {
+        var filename = path.getFileName().toString();
+        if (!filename.endsWith(GDBinaryFormat.EXTENSION)) {
+            return super.importInstance(path.toFile());
+        }
+        // Both files would be loaded as the same instance, with the same name
+        var textFile = path.resolveSibling(filename.substring(0, filename.length() - GDBinaryFormat.EXTENSION.length()));
+        if (Files.exists(textFile)) {
+            throw new IllegalArgumentException("Instance " + textFile.getFileName() + " is both in " + textFile + " and in " + path + ", remove one of them");
+        }
+        try {
+            return GDBinaryFormat.read(this, path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     @Override
     public GDInstance importInstance(BufferedReader reader, String filename) throws IOException {
+        if (GDGraphImporter.isGraphFile(filename)) {
+            return new GDGraphImporter(this).importGraph(reader, filename);
+        }
 
         int totalNumVertices;
+        int numEdges;
+        int numberOfLayers;
+        int numRealLongEdges;
+
+
+        var tokens = new InstanceTokenizer(reader, filename);
+        totalNumVertices = tokens.nextInt();
+        numEdges = tokens.nextInt();
+        numberOfLayers = tokens.nextInt();
+        numRealLongEdges = tokens.nextInt(); // Number of long edges
+        tokens.endLine();
+
+
+        // Edges are parsed before building the collections, so they are allocated with their final size
+        int[] sources = new int[numEdges];
+        int[] targets = new int[numEdges];
+        for (int e = 0; e < numEdges; e++) {
+            sources[e] = tokens.nextInt(1, totalNumVertices, "vertex") - 1;
+            targets[e] = tokens.nextInt(1, totalNumVertices, "vertex") - 1;
+            tokens.endLine();
+        }
+
+
+        // Vertices of the current line, a layer has at most all the vertices and a long edge a vertex in each layer
+        int[] line = new int[Math.max(totalNumVertices, numberOfLayers)];
+        int[][] verticesOfLayer = new int[numberOfLayers][];
+        // Layer of each vertex plus one, 0 if the vertex has not been read yet
+        int[] layerOfVertex = new int[totalNumVertices];
+        for (int layer = 0; layer < numberOfLayers; layer++) {
+            int length = 0;
+            while (tokens.hasNextInLine()) {
+                int vertex = tokens.nextInt(1, totalNumVertices, "vertex") - 1;
+                if (layerOfVertex[vertex] != 0) {
+                    throw tokens.error("vertex " + (vertex + 1) + " is already in layer " + layerOfVertex[vertex]);
+                }
+                layerOfVertex[vertex] = layer + 1;
+                line[length++] = vertex;
+            }
+            if (length == 0) {
+                throw tokens.error("layer " + (layer + 1) + " has no vertices");
+            }
+            tokens.endLine();
+            verticesOfLayer[layer] = Arrays.copyOf(line, length);
+        }
+        for (int v = 0; v < totalNumVertices; v++) {
+            if (layerOfVertex[v] == 0) {
+                throw tokens.error("vertex " + (v + 1) + " is in no layer");
+            }
+        }
+
+
+        int[][] chainOfLongEdge = new int[numRealLongEdges][];
+        for (int e = 0; e < numRealLongEdges; e++) {
+            int length = 0;
+            while (tokens.hasNextInLine()) {
+                int vertex = tokens.nextInt(1, totalNumVertices, "vertex") - 1;
+                if (length == numberOfLayers) {
+                    throw tokens.error("long edge with more vertices than layers");
+                }
+                line[length++] = vertex;
+            }
+            if (length < 2) {
+                throw tokens.error("long edge with less than two vertices");
+            }
+            tokens.endLine();
+            chainOfLongEdge[e] = Arrays.copyOf(line, length);
+        }
+
+        return this.importInstance(filename, totalNumVertices, sources, targets, verticesOfLayer, chainOfLongEdge);
+    }
+
+    /**
+     * Build an instance from its edges, layers and long edges, whatever the format it was read from.
+     * Vertices are numbered from 0, and they must be in range
+     *
+     * @param filename         name of the instance
+     * @param totalNumVertices number of vertices, including dummy vertices
+     * @param sources          source vertex of each short edge
+     * @param targets          target vertex of each short edge
+     * @param verticesOfLayer  vertices of each layer, in order, no layer can be empty
+     * @param chainOfLongEdge  vertices of each long edge, from its source to its target, with at least two vertices
+     * @return instance
+     */
+    GDInstance importInstance(String filename, int totalNumVertices, int[] sources, int[] targets, int[][] verticesOfLayer, int[][] chainOfLongEdge) {
+        return this.importInstance(filename, totalNumVertices, sources, targets, verticesOfLayer, chainOfLongEdge, new int[0][]);
+    }
+
+    /**
+     * Build an instance from its edges, layers and long edges, whatever the format it was read from.
+     * Vertices are numbered from 0, and they must be in range
+     *
+     * @param filename         name of the instance
+     * @param totalNumVertices number of vertices, including dummy vertices
+     * @param sources          source vertex of each short edge
+     * @param targets          target vertex of each short edge
+     * @param verticesOfLayer  vertices of each layer, in order, no layer can be empty
+     * @param chainOfLongEdge  vertices of each long edge, from its source to its target, with at least two vertices
+     * @param unalignedChains  vertices of each real edge split into short edges that is not a long edge, from its
+     *                         source to its target. Its inner vertices are placed as ordinary vertices, but they are
+     *                         counted as dummy vertices, and its short edges as a single real edge
+     * @return instance
+     */
+    GDInstance importInstance(String filename, int totalNumVertices, int[] sources, int[] targets, int[][] verticesOfLayer, int[][] chainOfLongEdge, int[][] unalignedChains) {
+        return this.importInstance(filename, totalNumVertices, sources, targets, verticesOfLayer, chainOfLongEdge, unalignedChains, null);
+    }
+
+    /**
+     * Build an instance from its edges, layers and long edges, taking its counters, fingerprint and derived
+     * structures from a file where they were stored with the instance (see GDBinaryFormat)
+     *
+     * @param filename         name of the instance
+     * @param totalNumVertices number of vertices, including dummy vertices
+     * @param sources          source vertex of each short edge
+     * @param targets          target vertex of each short edge
+     * @param verticesOfLayer  vertices of each layer, in order, no layer can be empty
+     * @param chainOfLongEdge  vertices of each long edge, from its source to its target, with at least two vertices
+     * @param precomputed      counters, fingerprint and derived structures of the instance
+     * @return instance
+     */
+    GDInstance importInstance(String filename, int totalNumVertices, int[] sources, int[] targets, int[][] verticesOfLayer, int[][] chainOfLongEdge, Precomputed precomputed) {
+        return this.importInstance(filename, totalNumVertices, sources, targets, verticesOfLayer, chainOfLongEdge, new int[0][], precomputed);
+    }
+
+    private GDInstance importInstance(String filename, int totalNumVertices, int[] sources, int[] targets, int[][] verticesOfLayer, int[][] chainOfLongEdge, int[][] unalignedChains, Precomputed precomputed) {
+
         int numRealVertices;
         int numDummyVertices;
-        int numEdges;
+        int numEdges = sources.length;
         int numRealEdges;
-        int numRealLongEdges;
+        int numRealLongEdges = chainOfLongEdge.length;
         int numDummyEdges;
-        int numberOfLayers;
+        int numberOfLayers = verticesOfLayer.length;
         HashSet<Integer> totalListOfVertices;
         HashSet<Integer> listOfRealVertices;
         HashSet<Integer> listOfDummyVertices;
@@ -33,26 +326,15 @@ public class GDInstanceImporter extends InstanceImporter<GDInstance> {
         int[] layerOfVertex;
 
 
-        String line = reader.readLine();
-        String[] splitLine = line.split(" ");
-        totalNumVertices = Integer.parseInt(splitLine[0]);
-        numEdges = Integer.parseInt(splitLine[1]);
-        numberOfLayers = Integer.parseInt(splitLine[2]);
-        numRealLongEdges = Integer.parseInt(splitLine[3]); // Number of long edges
-
-
         totalListOfVertices = new HashSet<>(totalNumVertices);
         listOfRealVertices = new HashSet<>(totalNumVertices);
         listOfShortEdges = new ArrayList<>(numEdges);
-        adjacentShortVertexListOfVertex = new HashMap<>(numEdges);
+        adjacentShortVertexListOfVertex = generateAdjacentListOfVertex(totalNumVertices, sources, targets);
         for (int e = 0; e < numEdges; e++) {
-            line = reader.readLine();
-            splitLine = line.split(" ");
-            GDInstance.Edge edge = new GDInstance.Edge(Integer.parseInt(splitLine[0]) - 1, Integer.parseInt(splitLine[1]) - 1);
+            GDInstance.Edge edge = new GDInstance.Edge(sources[e], targets[e]);
             addEdgeToSet(totalListOfVertices, edge);
             addEdgeToSet(listOfRealVertices,edge);
             listOfShortEdges.add(edge);
-            updateAdjacentListOfVertex(adjacentShortVertexListOfVertex, edge);
         }
 
 
@@ -60,10 +342,7 @@ public class GDInstanceImporter extends InstanceImporter<GDInstance> {
         listOfVerticesInLayer = new HashMap<>(numberOfLayers);
         layerOfVertex = new int[totalNumVertices];
         for (int layer = 0; layer < numberOfLayers; layer++) {
-            line = reader.readLine();
-            splitLine = line.split(" ");
-            for (String v : splitLine) {
-                int vertex = Integer.parseInt(v) - 1;
+            for (int vertex : verticesOfLayer[layer]) {
                 updateLayers(listOfVerticesInLayer, layerOfVertex, layer, vertex);
             }
         }
@@ -74,17 +353,16 @@ public class GDInstanceImporter extends InstanceImporter<GDInstance> {
         listOfShortEdgesOfLongEdge = new HashMap<>(numRealLongEdges);
         numRealEdges = numEdges;
         numDummyEdges = 0;
-        for (int e = 0; e < numRealLongEdges; e++) {
-            line = reader.readLine();
-            splitLine = line.split(" ");
-            GDInstance.Edge edge = new GDInstance.Edge(Integer.parseInt(splitLine[0]) - 1, Integer.parseInt(splitLine[splitLine.length - 1]) - 1);
+        for (int[] chain : chainOfLongEdge) {
+            GDInstance.Edge edge = new GDInstance.Edge(chain[0], chain[chain.length - 1]);
             numRealEdges++;
             listOfLongEdges.add(edge);
-            listOfShortEdgesOfLongEdge.put(edge, new ArrayList<>());
-            for (int v = 0; v < splitLine.length - 1; v++) {
-                GDInstance.Edge dEdge = new GDInstance.Edge(Integer.parseInt(splitLine[v]) - 1, Integer.parseInt(splitLine[v + 1]) - 1);
+            ArrayList<GDInstance.Edge> shortEdges = new ArrayList<>(chain.length - 1);
+            listOfShortEdgesOfLongEdge.put(edge, shortEdges);
+            for (int v = 0; v < chain.length - 1; v++) {
+                GDInstance.Edge dEdge = new GDInstance.Edge(chain[v], chain[v + 1]);
                 listOfDummyVertices.add(dEdge.target());
-                listOfShortEdgesOfLongEdge.get(edge).add(dEdge);
+                shortEdges.add(dEdge);
                 numDummyEdges++;
             }
             listOfDummyVertices.remove(edge.target());
@@ -93,14 +371,43 @@ public class GDInstanceImporter extends InstanceImporter<GDInstance> {
 
         numRealVertices = listOfRealVertices.size();
         numDummyVertices = listOfDummyVertices.size();
+        for (int[] chain : unalignedChains) {
+            numRealVertices -= chain.length - 2;
+            numDummyVertices += chain.length - 2;
+            numRealEdges++;
+            numDummyEdges += chain.length - 1;
+        }
         numRealEdges = numRealEdges - numDummyEdges;
 
 //        var info = (totalNumVertices + " " + numEdges + " " + numberOfLayers + " " + numRealLongEdges);
 //        System.out.println(info);
 
-        return new GDInstance(filename, totalNumVertices, numRealVertices, numDummyVertices, numEdges, numRealEdges, numRealLongEdges, numDummyEdges, numberOfLayers,
+        if (precomputed != null) {
+            return new GDInstance(filename, totalNumVertices, precomputed.numRealVertices(), precomputed.numDummyVertices(), numEdges, precomputed.numRealEdges(), numRealLongEdges, precomputed.numDummyEdges(), numberOfLayers,
+                    totalListOfVertices, listOfRealVertices, listOfDummyVertices, listOfShortEdges, listOfLongEdges, adjacentShortVertexListOfVertex, listOfShortEdgesOfLongEdge,
+                    listOfVerticesInLayer, layerOfVertex, precomputed.fingerprint(), precomputed.derived());
+        }
+        if (this.cache == null) {
+            return new GDInstance(filename, totalNumVertices, numRealVertices, numDummyVertices, numEdges, numRealEdges, numRealLongEdges, numDummyEdges, numberOfLayers,
+                    totalListOfVertices, listOfRealVertices, listOfDummyVertices, listOfShortEdges, listOfLongEdges, adjacentShortVertexListOfVertex, listOfShortEdgesOfLongEdge,
+                    listOfVerticesInLayer, layerOfVertex);
+        }
+        var fingerprint = GDInstance.fingerprint(totalNumVertices, numberOfLayers, listOfShortEdges, listOfLongEdges, listOfShortEdgesOfLongEdge, listOfVerticesInLayer);
+        var cached = this.cache.load(fingerprint, totalNumVertices, listOfLongEdges.size());
+        var instance = new GDInstance(filename, totalNumVertices, numRealVertices, numDummyVertices, numEdges, numRealEdges, numRealLongEdges, numDummyEdges, numberOfLayers,
                 totalListOfVertices, listOfRealVertices, listOfDummyVertices, listOfShortEdges, listOfLongEdges, adjacentShortVertexListOfVertex, listOfShortEdgesOfLongEdge,
-                listOfVerticesInLayer, layerOfVertex);
+                listOfVerticesInLayer, layerOfVertex, fingerprint, cached);
+        if (cached == null) {
+            this.cache.store(instance);
+        }
+        return instance;
+    }
+
+    /**
+     * Counters, fingerprint and derived structures of an instance that are stored with it, see the attributes of
+     * GDInstance with the same names
+     */
+    record Precomputed(int numRealVertices, int numDummyVertices, int numRealEdges, int numDummyEdges, String fingerprint, GDInstanceCache.Entry derived) {
     }
 
     private void addEdgeToSet(HashSet<Integer> totalListOfVertices, GDInstance.Edge edge) {
@@ -108,15 +415,41 @@ public class GDInstanceImporter extends InstanceImporter<GDInstance> {
         totalListOfVertices.add(edge.target());
     }
 
-    private void updateAdjacentListOfVertex(HashMap<Integer, Triplet<ArrayList<Integer>, ArrayList<Integer>, ArrayList<Integer>>> adjacentListOfVertex, GDInstance.Edge edge) {
-        int source = edge.source();
-        int target = edge.target();
-        adjacentListOfVertex.computeIfAbsent(source, k -> new Triplet<>(new ArrayList<>(), new ArrayList<>(), new ArrayList<>()));
-        adjacentListOfVertex.get(source).getValue0().add(target);
-        adjacentListOfVertex.get(source).getValue2().add(target);
-        adjacentListOfVertex.computeIfAbsent(target, k -> new Triplet<>(new ArrayList<>(), new ArrayList<>(), new ArrayList<>()));
-        adjacentListOfVertex.get(target).getValue1().add(source);
-        adjacentListOfVertex.get(target).getValue2().add(source);
+    /**
+     * Build the adjacent vertices of each vertex, in the order of the edges, with lists allocated with their final size
+     *
+     * @param totalNumVertices number of vertices
+     * @param sources          source vertex of each edge
+     * @param targets          target vertex of each edge
+     * @return adjacent vertices of each vertex with edges: targets of its edges, sources of its edges and both
+     */
+    @SuppressWarnings("unchecked")
+    private HashMap<Integer, Triplet<ArrayList<Integer>, ArrayList<Integer>, ArrayList<Integer>>> generateAdjacentListOfVertex(int totalNumVertices, int[] sources, int[] targets) {
+        int[] outDegree = new int[totalNumVertices];
+        int[] inDegree = new int[totalNumVertices];
+        for (int e = 0; e < sources.length; e++) {
+            outDegree[sources[e]]++;
+            inDegree[targets[e]]++;
+        }
+        HashMap<Integer, Triplet<ArrayList<Integer>, ArrayList<Integer>, ArrayList<Integer>>> adjacentListOfVertex = new HashMap<>(sources.length);
+        Triplet<ArrayList<Integer>, ArrayList<Integer>, ArrayList<Integer>>[] adjacentListOf = new Triplet[totalNumVertices];
+        for (int e = 0; e < sources.length; e++) {
+            int source = sources[e];
+            int target = targets[e];
+            if (adjacentListOf[source] == null) {
+                adjacentListOf[source] = new Triplet<>(new ArrayList<>(outDegree[source]), new ArrayList<>(inDegree[source]), new ArrayList<>(outDegree[source] + inDegree[source]));
+                adjacentListOfVertex.put(source, adjacentListOf[source]);
+            }
+            adjacentListOf[source].getValue0().add(target);
+            adjacentListOf[source].getValue2().add(target);
+            if (adjacentListOf[target] == null) {
+                adjacentListOf[target] = new Triplet<>(new ArrayList<>(outDegree[target]), new ArrayList<>(inDegree[target]), new ArrayList<>(outDegree[target] + inDegree[target]));
+                adjacentListOfVertex.put(target, adjacentListOf[target]);
+            }
+            adjacentListOf[target].getValue1().add(source);
+            adjacentListOf[target].getValue2().add(source);
+        }
+        return adjacentListOfVertex;
     }
 
     private Triplet<ArrayList<GDInstance.Edge>, ArrayList<GDInstance.Edge>, ArrayList<GDInstance.Edge>> getListOfEdges(ArrayList<GDInstance.Edge> edgeList, ArrayList<GDInstance.Edge> longEdgeList) {
@@ -0,0 +1,183 @@
+package es.urjc.etsii.grafo.GD.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * In-memory cache of the loaded instances, so experiments executed in the same JVM over the same instances reuse them
+ * instead of loading them again. Instances are immutable, so the same instance can be shared by every experiment.
+ * <p>
+ * Instances are identified by the path of their file, and an instance is loaded again when the modification time of
+ * its file changes. The size of the cache is bounded by the sum of the weights of its instances, where the weight of
+ * an instance is the square of its number of vertices, since the structures used by the algorithms (e.g. the matrix of
+ * cuts of the solutions) grow with it. When the bound is exceeded, the least recently used instances are evicted.
+ * <p>
+ * The cache can be used from several threads. Each file is loaded once even if several threads ask for it at the
+ * same time: the first thread loads it, and the rest wait for its instance. Different files are loaded at the same time.
+ */
+public class GDInstanceMemoryCache {
+
+    /**
+     * Maximum sum of the weights of the cached instances
+     */
+    private final long maxWeight;
+
+    /**
+     * Cached instances, and instances being loaded, by absolute path of their file, in access order
+     */
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Sum of the weights of the cached instances
+     */
+    private long weight;
+
+    /**
+     * Create a cache
+     *
+     * @param maxWeight maximum sum of the weights of the cached instances (see getWeight)
+     */
+    public GDInstanceMemoryCache(long maxWeight) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("maxWeight must be positive: " + maxWeight);
+        }
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Get the weight of an instance in the cache
+     *
+     * @param instance instance
+     * @return square of the number of vertices of the instance, at least 1
+     */
+    public static long getWeight(GDInstance instance) {
+        return Math.max(1, (long) instance.TotalNumVertices() * instance.TotalNumVertices());
+    }
+
+    /**
+     * Get the instance of a file, loading it if it is not in the cache or its file was modified after it was loaded.
+     * If another thread is already loading the file, wait for its instance instead of loading it again
+     *
+     * @param path   file of the instance
+     * @param loader function that loads the instance of a file
+     * @return instance
+     */
+    public GDInstance get(Path path, Function<Path, GDInstance> loader) {
+        var key = path.toAbsolutePath().normalize();
+        FileTime modified;
+        try {
+            modified = Files.getLastModifiedTime(key);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Entry entry;
+        boolean load = false;
+        synchronized (this) {
+            entry = this.entries.get(key);
+            if (entry == null || !entry.modified().equals(modified)) {
+                this.remove(key);
+                entry = new Entry(new CompletableFuture<>(), modified, 0);
+                this.entries.put(key, entry);
+                load = true;
+            }
+        }
+        if (load) {
+            // The instance is loaded outside the lock, so other instances can be loaded at the same time
+            GDInstance instance;
+            try {
+                instance = loader.apply(path);
+            } catch (RuntimeException | Error e) {
+                // Not cached, so the next call tries again
+                synchronized (this) {
+                    this.entries.remove(key, entry);
+                }
+                entry.instance().completeExceptionally(e);
+                throw e;
+            }
+            entry.instance().complete(instance);
+            this.loaded(key, entry, getWeight(instance));
+            return instance;
+        }
+        try {
+            return entry.instance().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private synchronized void remove(Path key) {
+        var previous = this.entries.remove(key);
+        if (previous != null) {
+            this.weight -= previous.weight();
+        }
+    }
+
+    /**
+     * Set the weight of an instance that has been loaded, evicting the least recently used instances if the bound is
+     * exceeded. Instances that are being loaded are never evicted
+     */
+    private synchronized void loaded(Path key, Entry loading, long weight) {
+        if (this.entries.get(key) != loading) {
+            // Replaced by a newer version of the file while it was loaded
+            return;
+        }
+        if (weight > this.maxWeight) {
+            this.entries.remove(key);
+            return;
+        }
+        this.entries.put(key, new Entry(loading.instance(), loading.modified(), weight));
+        this.weight += weight;
+        Iterator<Entry> leastRecentlyUsed = this.entries.values().iterator();
+        while (this.weight > this.maxWeight) {
+            var entry = leastRecentlyUsed.next();
+            if (entry.instance().isDone()) {
+                this.weight -= entry.weight();
+                leastRecentlyUsed.remove();
+            }
+        }
+    }
+
+    /**
+     * Get the number of cached instances
+     *
+     * @return number of cached instances
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Get the sum of the weights of the cached instances
+     *
+     * @return sum of the weights of the cached instances
+     */
+    public synchronized long getWeight() {
+        return this.weight;
+    }
+
+    /**
+     * Remove every instance from the cache
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+        this.weight = 0;
+    }
+
+    /**
+     * Instance of a file, or its load if it is being loaded, with the modification time of the file when it was
+     * loaded. The weight of instances being loaded is 0
+     */
+    private record Entry(CompletableFuture<GDInstance> instance, FileTime modified, long weight) {
+    }
+}
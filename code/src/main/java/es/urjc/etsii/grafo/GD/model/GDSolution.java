@@ -2,9 +2,9 @@ package es.urjc.etsii.grafo.GD.model;
 
 import es.urjc.etsii.grafo.solution.Solution;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 
@@ -59,6 +59,26 @@ public class GDSolution extends Solution<GDSolution, GDInstance> {
      */
     private final int[] inputGraph;
 
+    /**
+     * Position in its layer of each vertex of the input graph. It is redundant with inputGraph, but it avoids
+     * recomputing the position from the host vertex in the hot loops of the local searches
+     * <p>
+     * index: vertices of the input graph  [0][1][2][3][4][5][6][7][8][...]
+     * content: position in the layer      [0][1][1][2][2][0][2][0][1][...]
+     */
+    private final int[] position;
+
+    /**
+     * Zobrist hash of the layout, i.e., the XOR of a random key for each pair (vertex, position) of the solution.
+     * It is updated in O(1) each time a vertex is moved
+     */
+    private long layoutHash;
+
+    /**
+     * Index of the first host vertex of each layer, layers of the host graph may have different widths
+     */
+    private final int[] layerStart;
+
     /**
      * Objective function of the solution
      */
@@ -71,9 +91,160 @@ public class GDSolution extends Solution<GDSolution, GDInstance> {
 //    private HashMap<GDInstance.Edge, Integer> cutsOfEdge;
 
 
-    private int[][] matrixCuts;
+    /**
+     * Cuts between each pair of vertices of the same layer. For a pair (u,v) with u < v, the cell (u,v) stores the
+     * number of crossings between the edges of u and v in the current layout, while the cell (v,u) stores the
+     * number of crossings if u and v exchange their relative order. Each layer owns a block of the flat array,
+     * see GDInstance.getCrossingMatrixCell
+     */
+    private int[] matrixCuts;
+
+    /**
+     * True if matrixCuts is consistent with the current layout. The matrix is only built when
+     * a move that relies on it is evaluated or applied, see updateMatrixCuts
+     */
+    private boolean matrixCutsUpdated;
+
+    /**
+     * Algorithm used to count the crossings of the solution from scratch
+     */
+    private CrossingCounting crossingCounting;
+
+    /**
+     * Crossings between each layer and the next one. The objective function is the sum of these subtotals
+     */
+    private final int[] crossingsOfLayerPair;
+
+    /**
+     * True for the pairs of layers whose subtotal is not consistent with the current layout, since a vertex of one of
+     * both layers has been moved after the subtotal was counted
+     */
+    private final boolean[] dirtyLayerPair;
+
+    /**
+     * Number of dirty pairs of layers
+     */
+    private int numDirtyLayerPairs;
+
+    /**
+     * Whether the crossings of each layer are equal to its lower bound (see LowerBound.isReachedInLayer): one of the
+     * LAYER_BOUND_ constants. It is forgotten when a vertex of the layer or of an adjacent layer is moved, since the
+     * cost of the pairs of vertices of the layer depends on the positions of their adjacent vertices
+     */
+    private final byte[] layerBoundState;
+
+    /**
+     * Accumulator tree used to count the crossings of the dirty pairs of layers (created on demand, not shared between clones)
+     */
+    private AccumulatorTreeCrossingCounter crossingCounter;
+
+    /**
+     * Edges of each pair of layers sorted by the position of their endpoints (created on demand, not shared between clones)
+     */
+    private LayerPairEdges.SortedView[] sortedViews;
+
+    /**
+     * Alignment of the solution, i.e., the sum of the alignment of each long edge
+     */
+    private int alignment;
+
+    /**
+     * Alignment of each long edge (indexed as the list of long edges of the instance)
+     */
+    private final int[] alignmentOfLongEdge;
+
+    /**
+     * True if the alignment is consistent with the current layout. It is maintained by every swap once computed
+     */
+    private boolean alignmentUpdated;
+
+    /**
+     * Scratch array of getAlignmentVariationOfLongEdgeSwap: a long edge has already been visited in the current call
+     * if its stamp is equal to visitEpoch (created on demand, not shared between clones)
+     */
+    private int[] visitStamp;
+
+    /**
+     * Stamp of the current call to getAlignmentVariationOfLongEdgeSwap
+     */
+    private int visitEpoch;
+
+    /**
+     * Undo journal of the changes applied since the last call to beginMove.
+     * Each entry is a triplet (structure, index, old value), see JOURNAL_ constants
+     */
+    private int[] journal;
+
+    /**
+     * Number of ints of the journal in use
+     */
+    private int journalSize;
+
+    /**
+     * True if the changes of the solution are being recorded in the journal
+     */
+    private boolean journaling;
+
+    /**
+     * Objective function when the journaled move started
+     */
+    private int journaledObjectiveFunction;
+
+    /**
+     * True if the matrix of cuts has been replaced or invalidated during the journaled move.
+     * Changes to the matrix are no longer recorded since the whole matrix is restored on rollback
+     */
+    private boolean journaledMatrixCutsReplaced;
+
+    /**
+     * Matrix of cuts when the journaled move replaced it
+     */
+    private int[] journaledMatrixCuts;
+
+    /**
+     * State of matrixCutsUpdated when the journaled move replaced the matrix of cuts
+     */
+    private boolean journaledMatrixCutsUpdated;
+
+    /**
+     * Layout hash when the journaled move started
+     */
+    private long journaledLayoutHash;
 
-    private static final Map<String, Function<GDSolution, Integer>> customProperties = Map.of("alignment",  GDSolution::getAlignmentSt);
+    /**
+     * Number of dirty pairs of layers when the journaled move started
+     */
+    private int journaledNumDirtyLayerPairs;
+
+    /**
+     * Alignment when the journaled move started
+     */
+    private int journaledAlignment;
+
+    /**
+     * State of alignmentUpdated when the journaled move started
+     */
+    private boolean journaledAlignmentUpdated;
+
+    private static final int MATRIX_CUTS = 0;
+    private static final int HOST_GRAPH = 1;
+    private static final int INPUT_GRAPH = 2;
+    private static final int ALIGNMENT_OF_LONG_EDGE = 3;
+    private static final int POSITION = 4;
+    private static final int CROSSINGS_OF_LAYER_PAIR = 5;
+    private static final int DIRTY_LAYER_PAIR = 6;
+    private static final int LAYER_BOUND_STATE = 7;
+
+    private static final byte LAYER_BOUND_UNKNOWN = 0;
+    private static final byte LAYER_BOUND_REACHED = 1;
+    private static final byte LAYER_BOUND_NOT_REACHED = 2;
+
+    /**
+     * Types of adjacency of the edges towards the next layer and towards the previous layer
+     */
+    private static final GDInstance.TYPE_OF_ADJACENT_VERTEX[] ADJACENT_LAYERS = {GDInstance.TYPE_OF_ADJACENT_VERTEX.SOURCE, GDInstance.TYPE_OF_ADJACENT_VERTEX.TARGET};
+
+    private static final Map<String, Function<GDSolution, Integer>> customProperties = Map.of("alignment",  GDSolution::getAlignmentSt, "gap", GDSolution::getGapSt);
 
 
     /**
@@ -86,7 +257,24 @@ public class GDSolution extends Solution<GDSolution, GDInstance> {
         this.objectiveFunction = Integer.MAX_VALUE;
         this.hostGraph = new int[ins.TotalNumVertices()];
         this.inputGraph = new int[ins.TotalNumVertices()];
-        this.matrixCuts = new int[ins.TotalNumVertices()][ins.TotalNumVertices()];
+        this.position = new int[ins.TotalNumVertices()];
+        this.layerStart = new int[ins.NumberOfLayers()];
+        for (int h = 0; h < this.layerStart.length; h++) {
+            this.layerStart[h] = ins.getLayerStart(h);
+        }
+        for (int v = 0; v < this.position.length; v++) {
+            this.layoutHash ^= zobristKey(v, 0);
+        }
+        this.matrixCuts = null;
+        this.matrixCutsUpdated = false;
+        this.crossingCounting = CrossingCounting.ACCUMULATOR_TREE;
+        this.alignmentOfLongEdge = new int[ins.getListOfLongEdges().size()];
+        this.alignmentUpdated = false;
+        this.crossingsOfLayerPair = new int[Math.max(0, ins.NumberOfLayers() - 1)];
+        this.dirtyLayerPair = new boolean[this.crossingsOfLayerPair.length];
+        Arrays.fill(this.dirtyLayerPair, true);
+        this.numDirtyLayerPairs = this.dirtyLayerPair.length;
+        this.layerBoundState = new byte[ins.NumberOfLayers()];
     }
 
     /**
@@ -99,7 +287,19 @@ public class GDSolution extends Solution<GDSolution, GDInstance> {
         this.objectiveFunction = s.objectiveFunction;
         this.hostGraph = s.hostGraph.clone();
         this.inputGraph = s.inputGraph.clone();
-        this.matrixCuts = Arrays.stream(s.matrixCuts).map(int[]::clone).toArray(int[][]::new);
+        this.position = s.position.clone();
+        this.layerStart = s.layerStart;
+        this.layoutHash = s.layoutHash;
+        this.matrixCuts = s.matrixCutsUpdated ? s.matrixCuts.clone() : null;
+        this.matrixCutsUpdated = s.matrixCutsUpdated;
+        this.crossingCounting = s.crossingCounting;
+        this.alignment = s.alignment;
+        this.alignmentOfLongEdge = s.alignmentOfLongEdge.clone();
+        this.alignmentUpdated = s.alignmentUpdated;
+        this.crossingsOfLayerPair = s.crossingsOfLayerPair.clone();
+        this.dirtyLayerPair = s.dirtyLayerPair.clone();
+        this.numDirtyLayerPairs = s.numDirtyLayerPairs;
+        this.layerBoundState = s.layerBoundState.clone();
     }
 
 
@@ -146,7 +346,11 @@ public class GDSolution extends Solution<GDSolution, GDInstance> {
     @Override
     public double getScore() {
         if (this.objectiveFunction == Integer.MAX_VALUE) {
-            this.objectiveFunction = __recalculateScore(matrixCuts);
+            if (this.crossingCounting == CrossingCounting.PAIRWISE) {
+                this.updateMatrixCuts();
+            } else {
+                this.objectiveFunction = this.updateCrossingsOfLayerPairs();
+            }
         }
         return this.objectiveFunction;
     }
@@ -162,35 +366,246 @@ public class GDSolution extends Solution<GDSolution, GDInstance> {
      */
     @Override
     public double recalculateScore() {
-        var ins = this.getInstance();
-        this.matrixCuts = new int[ins.TotalNumVertices()][ins.TotalNumVertices()];
-        return __recalculateScore(matrixCuts);
+        if (this.crossingCounting == CrossingCounting.PAIRWISE) {
+            this.replaceMatrixCuts(new int[this.getInstance().getCrossingMatrixSize()], true);
+            return __recalculateScore(matrixCuts);
+        }
+        return this.countCrossings();
     }
 
+    /**
+     * Count the crossings of the current layout with the accumulator tree, without building the matrix of cuts
+     *
+     * @return number of crossings of the solution
+     */
+    private int countCrossings() {
+        var counter = new AccumulatorTreeCrossingCounter();
+        int score = 0;
+        for (int h = 0; h < this.crossingsOfLayerPair.length; h++) {
+            score += this.countCrossingsOfLayerPair(h, counter);
+        }
+        return score;
+    }
 
     /**
-     * Get the current solution score.
-     * The difference between this method and recalculateScore is that
-     * this result can be a property of the solution, or cached,
-     * it does not have to be calculated each time this method is called
+     * Count the crossings between a layer and the next one with the accumulator tree
+     *
+     * @param layer   upper layer of the pair
+     * @param counter accumulator tree
+     * @return number of crossings between both layers
+     */
+    private int countCrossingsOfLayerPair(int layer, AccumulatorTreeCrossingCounter counter) {
+        var view = this.getSortedView(layer);
+        view.refresh(this);
+        return counter.countCrossings(view, this.getInstance().NumVerticesInLayer(layer + 1));
+    }
+
+    /**
+     * Get the view of the edges between a layer and the next one sorted by position. The view is not refreshed
+     *
+     * @param layer upper layer of the pair
+     * @return sorted view of the edges of the pair of layers
+     */
+    private LayerPairEdges.SortedView getSortedView(int layer) {
+        if (this.sortedViews == null) {
+            this.sortedViews = new LayerPairEdges.SortedView[this.crossingsOfLayerPair.length];
+        }
+        if (this.sortedViews[layer] == null) {
+            this.sortedViews[layer] = this.getInstance().getLayerPairEdges(layer).newSortedView();
+        }
+        return this.sortedViews[layer];
+    }
+
+    /**
+     * Count again the crossings of the dirty pairs of layers
+     *
+     * @return number of crossings of the solution, i.e., the sum of the crossings of every pair of layers
+     */
+    private int updateCrossingsOfLayerPairs() {
+        if (this.numDirtyLayerPairs > 0) {
+            if (this.crossingCounter == null) {
+                this.crossingCounter = new AccumulatorTreeCrossingCounter();
+            }
+            for (int h = 0; h < this.dirtyLayerPair.length; h++) {
+                if (this.dirtyLayerPair[h]) {
+                    this.writeCrossingsOfLayerPair(h, this.countCrossingsOfLayerPair(h, this.crossingCounter));
+                    this.writeDirtyLayerPair(h, false);
+                }
+            }
+            this.numDirtyLayerPairs = 0;
+        }
+        int score = 0;
+        for (int crossings : this.crossingsOfLayerPair) {
+            score += crossings;
+        }
+        return score;
+    }
+
+    /**
+     * Get the crossings between a layer and the next one. Only the dirty pairs of layers are counted again
+     *
+     * @param layer upper layer of the pair
+     * @return number of crossings between both layers
+     */
+    public int getCrossingsOfLayerPair(int layer) {
+        this.updateCrossingsOfLayerPairs();
+        return this.crossingsOfLayerPair[layer];
+    }
+
+    /**
+     * Mark as dirty the pairs of layers that contain a layer, since one of its vertices has been moved, and forget
+     * whether the lower bound of the layer and of its adjacent layers is reached
+     *
+     * @param layer layer of the moved vertex
+     */
+    private void markLayerPairsAsDirty(int layer) {
+        for (int h = Math.max(0, layer - 1); h <= Math.min(layer, this.dirtyLayerPair.length - 1); h++) {
+            if (!this.dirtyLayerPair[h]) {
+                this.writeDirtyLayerPair(h, true);
+                this.numDirtyLayerPairs++;
+            }
+        }
+        for (int h = Math.max(0, layer - 1); h <= Math.min(layer + 1, this.layerBoundState.length - 1); h++) {
+            if (this.layerBoundState[h] != LAYER_BOUND_UNKNOWN) {
+                this.writeLayerBoundState(h, LAYER_BOUND_UNKNOWN);
+            }
+        }
+    }
+
+    private void writeLayerBoundState(int layer, byte state) {
+        if (this.journaling) {
+            this.record(LAYER_BOUND_STATE, layer, this.layerBoundState[layer]);
+        }
+        this.layerBoundState[layer] = state;
+    }
+
+    /**
+     * Check if the crossings of the edges of a layer are equal to the lower bound of the layer, in which case no swap
+     * or insertion of the vertices of the layer improves the solution (see LowerBound.isReachedInLayer).
+     * The result is kept until a vertex of the layer or of an adjacent layer is moved
+     *
+     * @param layer layer
+     * @return true if the lower bound of the layer is reached, false in other case
+     */
+    public boolean isLowerBoundReachedInLayer(int layer) {
+        if (this.layerBoundState[layer] == LAYER_BOUND_UNKNOWN) {
+            this.writeLayerBoundState(layer, LowerBound.isReachedInLayer(this, layer) ? LAYER_BOUND_REACHED : LAYER_BOUND_NOT_REACHED);
+        }
+        return this.layerBoundState[layer] == LAYER_BOUND_REACHED;
+    }
+
+    private void writeCrossingsOfLayerPair(int layer, int crossings) {
+        if (this.journaling) {
+            this.record(CROSSINGS_OF_LAYER_PAIR, layer, this.crossingsOfLayerPair[layer]);
+        }
+        this.crossingsOfLayerPair[layer] = crossings;
+    }
+
+    private void writeDirtyLayerPair(int layer, boolean dirty) {
+        if (this.journaling) {
+            this.record(DIRTY_LAYER_PAIR, layer, this.dirtyLayerPair[layer] ? 1 : 0);
+        }
+        this.dirtyLayerPair[layer] = dirty;
+    }
+
+    /**
+     * Build the matrix of cuts from scratch if it is not consistent with the current layout
+     */
+    private void ensureMatrixCuts() {
+        if (!this.matrixCutsUpdated) {
+            this.updateMatrixCuts();
+        }
+    }
+
+    /**
+     * Build the matrix of cuts from scratch, comparing every pair of short edges of each layer.
+     * The objective function is updated too, since it is obtained as a side result
+     */
+    private void updateMatrixCuts() {
+        int[] newMatrixCuts;
+        if (this.journaling || this.matrixCuts == null) {
+            newMatrixCuts = new int[this.getInstance().getCrossingMatrixSize()];
+        } else {
+            newMatrixCuts = this.matrixCuts;
+            Arrays.fill(newMatrixCuts, 0);
+        }
+        this.replaceMatrixCuts(newMatrixCuts, true);
+        this.objectiveFunction = __recalculateScore(newMatrixCuts);
+    }
+
+    /**
+     * Replace the matrix of cuts, recording the previous one if there is a journaled move in progress
+     *
+     * @param matrixCuts new matrix of cuts
+     * @param updated    true if the new matrix is consistent with the current layout
+     */
+    private void replaceMatrixCuts(int[] matrixCuts, boolean updated) {
+        if (this.journaling && !this.journaledMatrixCutsReplaced) {
+            this.journaledMatrixCutsReplaced = true;
+            this.journaledMatrixCuts = this.matrixCuts;
+            this.journaledMatrixCutsUpdated = this.matrixCutsUpdated;
+        }
+        this.matrixCuts = matrixCuts;
+        this.matrixCutsUpdated = updated;
+    }
+
+    /**
+     * Get the algorithm used to count the crossings from scratch
+     *
+     * @return crossing counting algorithm
+     */
+    public CrossingCounting getCrossingCounting() {
+        return crossingCounting;
+    }
+
+    /**
+     * Set the algorithm used to count the crossings from scratch
+     *
+     * @param crossingCounting crossing counting algorithm
+     */
+    public void setCrossingCounting(CrossingCounting crossingCounting) {
+        this.crossingCounting = crossingCounting;
+    }
+
+
+    /**
+     * Fill the matrix of cuts from scratch and count the crossings of the solution.
+     * For every pair of vertices u and w of a layer, the edges of u are compared with the edges of w towards the same
+     * adjacent layer with CrossingKernels.countCrossingsOfPair, which fills the cells (u,w) and (w,u). The edges
+     * between two layers are compared from both sides, so only the crossings towards the next layer are added to
+     * the score
      *
-     * @param matrixCuts
-     * @return current solution score as double, but will be cached in the solution objectiveFunction field
+     * @param matrixCuts empty matrix of cuts, it must be the current matrix of the solution
+     * @return number of crossings of the solution
      */
-    private int __recalculateScore(int[][] matrixCuts) {
+    private int __recalculateScore(int[] matrixCuts) {
         int score = 0;
         var instance = this.getInstance();
-        for (int h = 0; h < instance.NumberOfLayers(); h++) {
-            ArrayList<GDInstance.Edge> shortEdgesOfLayer = instance.shortEdgesOfLayer(h);
-            for (int i = 0, shortEdgesOfLayerSize = shortEdgesOfLayer.size(); i < shortEdgesOfLayerSize; i++) {
-                GDInstance.Edge edge = shortEdgesOfLayer.get(i);
-                for (int j = i + 1; j < shortEdgesOfLayerSize; j++) {
-                    GDInstance.Edge otherEdge = shortEdgesOfLayer.get(j);
-                    if (isCut(edge, otherEdge)) {
-                        score += 1;
-                        addMatrixCut(edge, otherEdge);
-                    } else {
-                        addMatrixNonCut(edge, otherEdge);
+        for (GDInstance.TYPE_OF_ADJACENT_VERTEX type : ADJACENT_LAYERS) {
+            int[] offsets = instance.getAdjacencyOffsets(type);
+            int[] adjacentVertices = instance.getAdjacentVertices(type);
+            int[] positionOfAdjacent = new int[adjacentVertices.length];
+            for (int i = 0; i < adjacentVertices.length; i++) {
+                positionOfAdjacent[i] = this.position[adjacentVertices[i]];
+            }
+            for (int h = 0; h < instance.NumberOfLayers(); h++) {
+                int start = this.layerStart[h];
+                int end = start + instance.NumVerticesInLayer(h);
+                for (int i = start; i < end; i++) {
+                    int u = this.hostGraph[i];
+                    if (offsets[u] == offsets[u + 1]) {
+                        continue;
+                    }
+                    for (int j = i + 1; j < end; j++) {
+                        int w = this.hostGraph[j];
+                        if (offsets[w] == offsets[w + 1]) {
+                            continue;
+                        }
+                        int cuts = CrossingKernels.countCrossingsOfPair(positionOfAdjacent, offsets[u], offsets[u + 1], offsets[w], offsets[w + 1],
+                                matrixCuts, this.cell(Math.min(u, w), Math.max(u, w)), this.cell(Math.max(u, w), Math.min(u, w)));
+                        if (type == GDInstance.TYPE_OF_ADJACENT_VERTEX.SOURCE) {
+                            score += cuts;
+                        }
                     }
                 }
             }
@@ -211,76 +626,94 @@ public class GDSolution extends Solution<GDSolution, GDInstance> {
             v1 = v2;
             v2 = temp;
         }
-        this.objectiveFunction = this.objectiveFunction + this.matrixCuts[v2][v1] - this.matrixCuts[v1][v2];
+        this.objectiveFunction = this.objectiveFunction + this.matrixCuts[this.cell(v2, v1)] - this.matrixCuts[this.cell(v1, v2)];
+        this.setCell(this.cell(v1, v2), 0);
+        this.setCell(this.cell(v2, v1), 0);
+        updateMatrix(v1, v2, GDInstance.TYPE_OF_ADJACENT_VERTEX.SOURCE);
+        updateMatrix(v1, v2, GDInstance.TYPE_OF_ADJACENT_VERTEX.TARGET);
+    }
+
+    private void updateMatrix(int v1, int v2, GDInstance.TYPE_OF_ADJACENT_VERTEX type) {
         var instance = this.getInstance();
-        this.matrixCuts[v1][v2] = 0;
-        this.matrixCuts[v2][v1] = 0;
-        var downAdjV1 = instance.getAdjacentShortVertexListOfVertex(v1, GDInstance.TYPE_OF_ADJACENT_VERTEX.SOURCE);
-        var downAdjV2 = instance.getAdjacentShortVertexListOfVertex(v2, GDInstance.TYPE_OF_ADJACENT_VERTEX.SOURCE);
-        updateMatrix(v1, v2, downAdjV1, downAdjV2);
-        var upAdjV1 = instance.getAdjacentShortVertexListOfVertex(v1, GDInstance.TYPE_OF_ADJACENT_VERTEX.TARGET);
-        var upAdjV2 = instance.getAdjacentShortVertexListOfVertex(v2, GDInstance.TYPE_OF_ADJACENT_VERTEX.TARGET);
-        updateMatrix(v1, v2, upAdjV1, upAdjV2);
-    }
-
-    private void updateMatrix(int v1, int v2, ArrayList<Integer> listAdjV1, ArrayList<Integer> listAdjV2) {
-        for (int v1Adj : listAdjV1) {
-            var posV1Adj = this.getPositionOfInputVertex(v1Adj);
-            for (int v2Adj : listAdjV2) {
-                var posV2Adj = this.getPositionOfInputVertex(v2Adj);
-                GDInstance.Edge edge = new GDInstance.Edge(v1, v1Adj);
-                GDInstance.Edge otherEdge = new GDInstance.Edge(v2, v2Adj);
-                if (isCut(edge, otherEdge)) {
-                    addMatrixCut(edge, otherEdge);
+        int[] offsets = instance.getAdjacencyOffsets(type);
+        int[] adjacentVertices = instance.getAdjacentVertices(type);
+        int posV1 = this.position[v1];
+        int posV2 = this.position[v2];
+        for (int i = offsets[v1]; i < offsets[v1 + 1]; i++) {
+            int v1Adj = adjacentVertices[i];
+            int posV1Adj = this.position[v1Adj];
+            for (int j = offsets[v2]; j < offsets[v2 + 1]; j++) {
+                int v2Adj = adjacentVertices[j];
+                int posV2Adj = this.position[v2Adj];
+                if (isCutByPos(posV1, posV1Adj, posV2, posV2Adj)) {
+                    addMatrixCut(v1, v1Adj, v2, v2Adj);
                 } else {
-                    addMatrixNonCut(edge, otherEdge);
+                    addMatrixNonCut(v1, v1Adj, v2, v2Adj);
                 }
-                if (isCutByPos(this.getPositionOfInputVertex(v2), posV1Adj, this.getPositionOfInputVertex(v1), posV2Adj)) {
-                    removeMatrixCut(edge, otherEdge);
+                if (isCutByPos(posV2, posV1Adj, posV1, posV2Adj)) {
+                    removeMatrixCut(v1Adj, v2Adj);
                 } else {
-                    removeMatrixNonCut(edge, otherEdge);
+                    removeMatrixNonCut(v1, v1Adj, v2, v2Adj);
                 }
             }
         }
     }
 
-    private void removeMatrixNonCut(GDInstance.Edge e1, GDInstance.Edge e2) {
-        var u = e1.source();
-        var v = e2.source();
-        var w = e1.target();
-        var x = e2.target();
+    /**
+     * Get the cell of the crossing matrix associated to a pair of vertices of the same layer
+     *
+     * @param u vertex
+     * @param v vertex
+     * @return index of the cell (u,v)
+     */
+    private int cell(int u, int v) {
+        return this.getInstance().getCrossingMatrixCell(u, v);
+    }
+
+    private void updateCell(int cell, int delta) {
+        if (this.journaling && !this.journaledMatrixCutsReplaced) {
+            this.record(MATRIX_CUTS, cell, this.matrixCuts[cell]);
+        }
+        this.matrixCuts[cell] += delta;
+    }
+
+    private void setCell(int cell, int value) {
+        if (this.journaling && !this.journaledMatrixCutsReplaced) {
+            this.record(MATRIX_CUTS, cell, this.matrixCuts[cell]);
+        }
+        this.matrixCuts[cell] = value;
+    }
+
+    /**
+     * Remove from the matrix of cuts the pair of edges (u,w) and (v,x) that did not cross
+     *
+     * @param u source of the first edge
+     * @param w target of the first edge
+     * @param v source of the second edge
+     * @param x target of the second edge
+     */
+    private void removeMatrixNonCut(int u, int w, int v, int x) {
         if (u != v && w != x) {
             if (w < x) {
-                this.matrixCuts[x][w]--;
+                this.updateCell(this.cell(x, w), -1);
             } else {
-                this.matrixCuts[w][x]--;
+                this.updateCell(this.cell(w, x), -1);
             }
         }
     }
 
-    private void removeMatrixCut(GDInstance.Edge e1, GDInstance.Edge e2) {
-        var w = e1.target();
-        var x = e2.target();
-        if (w < x) {
-            this.matrixCuts[w][x]--;
-        } else {
-            this.matrixCuts[x][w]--;
-        }
-    }
-
     /**
-     * Check if there is a cut between two edges (u,v) and (w,z)
+     * Remove from the matrix of cuts the pair of edges with targets w and x that crossed
      *
-     * @param edge      (u,v)
-     * @param otherEdge (w,z)
-     * @return true if there is a cut between edges (u,v) and (w,z)
+     * @param w target of the first edge
+     * @param x target of the second edge
      */
-    private boolean isCut(GDInstance.Edge edge, GDInstance.Edge otherEdge) {
-        var posU = this.getPositionOfInputVertex(edge.source());
-        var posV = this.getPositionOfInputVertex(edge.target());
-        var posW = this.getPositionOfInputVertex(otherEdge.source());
-        var posZ = this.getPositionOfInputVertex(otherEdge.target());
-        return isCutByPos(posU, posV, posW, posZ);
+    private void removeMatrixCut(int w, int x) {
+        if (w < x) {
+            this.updateCell(this.cell(w, x), -1);
+        } else {
+            this.updateCell(this.cell(x, w), -1);
+        }
     }
 
     /**
@@ -340,8 +773,7 @@ public class GDSolution extends Solution<GDSolution, GDInstance> {
      * @return the position of the vertex in the layout, the position of the host graph in which the vertex is embedded.
      */
     public int getPositionOfInputVertex(int inputVertex) {
-        int layer = this.getLayerOfInputVertex(inputVertex);
-        return this.getHostVertexAssignedTo(inputVertex) - layer * this.getInstance().NumVerticesInLayer();
+        return this.position[inputVertex];
     }
 
     /**
@@ -363,7 +795,7 @@ public class GDSolution extends Solution<GDSolution, GDInstance> {
      * @return host vertex
      */
     private int getHostVertex(int layer, int position) {
-        return getInstance().NumVerticesInLayer() * layer + position;
+        return this.layerStart[layer] + position;
     }
 
 
@@ -376,8 +808,16 @@ public class GDSolution extends Solution<GDSolution, GDInstance> {
      */
     public void setVertexPosition(int inputVertex, int layer, int position) {
         int hostVertex = this.getHostVertex(layer, position);
-        this.inputGraph[inputVertex] = hostVertex;
-        this.hostGraph[hostVertex] = inputVertex;
+        this.write(INPUT_GRAPH, inputVertex, hostVertex);
+        this.write(HOST_GRAPH, hostVertex, inputVertex);
+        this.layoutHash ^= zobristKey(inputVertex, this.position[inputVertex]) ^ zobristKey(inputVertex, position);
+        this.write(POSITION, inputVertex, position);
+        this.markLayerPairsAsDirty(layer);
+        this.objectiveFunction = Integer.MAX_VALUE;
+        if (this.matrixCutsUpdated) {
+            this.replaceMatrixCuts(this.matrixCuts, false);
+        }
+        this.alignmentUpdated = false;
     }
 
 
@@ -391,7 +831,7 @@ public class GDSolution extends Solution<GDSolution, GDInstance> {
     public String toString() {
         StringBuilder resul = new StringBuilder("OF: " + this.objectiveFunction + "\n");
         for (int l = 0; l < this.getInstance().NumberOfLayers(); l++) {
-            for (int p = 0; p < this.getInstance().NumVerticesInLayer(); p++) {
+            for (int p = 0; p < this.getInstance().NumVerticesInLayer(l); p++) {
                 resul.append(this.getInputVertexAssignedTo(l, p)).append(" ");
             }
             resul.append("\n");
@@ -401,38 +841,46 @@ public class GDSolution extends Solution<GDSolution, GDInstance> {
         return resul.toString();
     }
 
-    private void addMatrixCut(GDInstance.Edge e1, GDInstance.Edge e2) {
-        var u = e1.source();
-        var v = e2.source();
-        var w = e1.target();
-        var x = e2.target();
+    /**
+     * Add to the matrix of cuts the pair of edges (u,w) and (v,x) that cross
+     *
+     * @param u source of the first edge
+     * @param w target of the first edge
+     * @param v source of the second edge
+     * @param x target of the second edge
+     */
+    private void addMatrixCut(int u, int w, int v, int x) {
         if (u < v) {
-            this.matrixCuts[u][v]++;
+            this.updateCell(this.cell(u, v), 1);
         } else {
-            this.matrixCuts[v][u]++;
+            this.updateCell(this.cell(v, u), 1);
         }
         if (w < x) {
-            this.matrixCuts[w][x]++;
+            this.updateCell(this.cell(w, x), 1);
         } else {
-            this.matrixCuts[x][w]++;
+            this.updateCell(this.cell(x, w), 1);
         }
     }
 
-    private void addMatrixNonCut(GDInstance.Edge e1, GDInstance.Edge e2) {
-        var u = e1.source();
-        var v = e2.source();
-        var w = e1.target();
-        var x = e2.target();
+    /**
+     * Add to the matrix of cuts the pair of edges (u,w) and (v,x) that do not cross
+     *
+     * @param u source of the first edge
+     * @param w target of the first edge
+     * @param v source of the second edge
+     * @param x target of the second edge
+     */
+    private void addMatrixNonCut(int u, int w, int v, int x) {
         if (u != v && w != x) {
             if (u < v) {
-                this.matrixCuts[v][u]++;
+                this.updateCell(this.cell(v, u), 1);
             } else {
-                this.matrixCuts[u][v]++;
+                this.updateCell(this.cell(u, v), 1);
             }
             if (w < x) {
-                this.matrixCuts[x][w]++;
+                this.updateCell(this.cell(x, w), 1);
             } else {
-                this.matrixCuts[w][x]++;
+                this.updateCell(this.cell(w, x), 1);
             }
         }
     }
@@ -441,6 +889,50 @@ public class GDSolution extends Solution<GDSolution, GDInstance> {
         this.objectiveFunction = v;
     }
 
+    /**
+     * Get the Zobrist hash of the layout of the solution. Two solutions with the same layout have the same hash,
+     * so it can be used to detect repeated layouts without comparing the whole solutions
+     *
+     * @return hash of the layout
+     */
+    public long getLayoutHash() {
+        return this.layoutHash;
+    }
+
+    /**
+     * Hash code of the layout of the solution, consistent with sameLayout
+     *
+     * @return hash code of the layout
+     */
+    public int layoutHashCode() {
+        return Long.hashCode(this.layoutHash);
+    }
+
+    /**
+     * Check if two solutions of the same instance have the same layout. The hashes are compared first, so the positions
+     * are only compared when both layouts are probably equal
+     *
+     * @param other other solution
+     * @return true if every vertex is in the same position in both solutions
+     */
+    public boolean sameLayout(GDSolution other) {
+        return this.layoutHash == other.layoutHash && Arrays.equals(this.position, other.position);
+    }
+
+    /**
+     * Random key of a vertex placed in a position, generated with the SplitMix64 finalizer so no table is needed
+     *
+     * @param vertex   vertex
+     * @param position position of the vertex in its layer
+     * @return key of the pair (vertex, position)
+     */
+    private static long zobristKey(int vertex, int position) {
+        long z = (((long) vertex << 32) | position) + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
     /**
      * Swap two vertices in the same layer
      *
@@ -449,13 +941,42 @@ public class GDSolution extends Solution<GDSolution, GDInstance> {
      */
     public void swap(int v1, int v2) {
         assert this.getLayerOfInputVertex(v1) == this.getLayerOfInputVertex(v2);
-        int temp = this.inputGraph[v1];
-        this.inputGraph[v1] = this.inputGraph[v2];
-        this.inputGraph[v2] = temp;
-        temp = this.hostGraph[this.inputGraph[v1]];
-        this.hostGraph[this.inputGraph[v1]] = this.hostGraph[this.inputGraph[v2]];
-        this.hostGraph[this.inputGraph[v2]] = temp;
-        this.objectiveFunction = (int) this.recalculateScore();
+        this.exchangePositions(v1, v2);
+        if (this.crossingCounting == CrossingCounting.PAIRWISE) {
+            this.objectiveFunction = (int) this.recalculateScore();
+        } else {
+            this.objectiveFunction = this.updateCrossingsOfLayerPairs();
+            if (this.matrixCutsUpdated) {
+                this.replaceMatrixCuts(this.matrixCuts, false);
+            }
+        }
+    }
+
+    /**
+     * Exchange the host vertices of two input vertices
+     *
+     * @param v1 first vertex
+     * @param v2 second vertex
+     */
+    private void exchangePositions(int v1, int v2) {
+        int hostV1 = this.inputGraph[v1];
+        int hostV2 = this.inputGraph[v2];
+        this.write(INPUT_GRAPH, v1, hostV2);
+        this.write(INPUT_GRAPH, v2, hostV1);
+        this.write(HOST_GRAPH, hostV2, v1);
+        this.write(HOST_GRAPH, hostV1, v2);
+        int posV1 = this.position[v1];
+        int posV2 = this.position[v2];
+        this.layoutHash ^= zobristKey(v1, posV1) ^ zobristKey(v1, posV2) ^ zobristKey(v2, posV2) ^ zobristKey(v2, posV1);
+        this.write(POSITION, v1, posV2);
+        this.write(POSITION, v2, posV1);
+        if (v1 != v2) {
+            this.markLayerPairsAsDirty(this.getLayerOfInputVertex(v1));
+        }
+        if (this.alignmentUpdated && v1 != v2) {
+            this.updateAlignment(v1, this.getPositionOfInputVertex(v2));
+            this.updateAlignment(v2, this.getPositionOfInputVertex(v1));
+        }
     }
 
     /**
@@ -463,12 +984,8 @@ public class GDSolution extends Solution<GDSolution, GDInstance> {
      */
     public void fastSwap(int v1, int v2) {
         assert this.getLayerOfInputVertex(v1) == this.getLayerOfInputVertex(v2);
-        int temp = this.inputGraph[v1];
-        this.inputGraph[v1] = this.inputGraph[v2];
-        this.inputGraph[v2] = temp;
-        temp = this.hostGraph[this.inputGraph[v1]];
-        this.hostGraph[this.inputGraph[v1]] = this.hostGraph[this.inputGraph[v2]];
-        this.hostGraph[this.inputGraph[v2]] = temp;
+        this.ensureMatrixCuts();
+        this.exchangePositions(v1, v2);
         var posV1 = this.getPositionOfInputVertex(v1);
         var posV2 = this.getPositionOfInputVertex(v2);
         this.fastSwapRecalculateScore(v1, v2);
@@ -492,6 +1009,7 @@ public class GDSolution extends Solution<GDSolution, GDInstance> {
      * @return the variation in the objective function
      */
     public int getVariation(int v1, int v2) {
+        this.ensureMatrixCuts();
         var variation = this.getVariationOfSingleSwap(v1, v2);
         var posV1 = this.getPositionOfInputVertex(v1);
         var posV2 = this.getPositionOfInputVertex(v2);
@@ -508,22 +1026,270 @@ public class GDSolution extends Solution<GDSolution, GDInstance> {
         return variation;
     }
 
+    /**
+     * Get the variation in the objective function if the relative order of two vertices of the same layer is flipped,
+     * i.e., the variation of swapping them if they were consecutive. The variation of flipping a pair does not depend
+     * on the rest of vertices of the layer, so the variation of any insertion is the sum of the flipped pairs
+     *
+     * @param v1 first vertex
+     * @param v2 second vertex
+     * @return the variation in the objective function
+     */
+    public int getVariationOfFlip(int v1, int v2) {
+        this.ensureMatrixCuts();
+        return this.getVariationOfSingleSwap(v1, v2);
+    }
+
+    /**
+     * Get the number of crossings between the edges of two vertices of the same layer in the current layout
+     *
+     * @param v1 first vertex
+     * @param v2 second vertex
+     * @return number of crossings between the edges of both vertices
+     */
+    public int getCrossingsOfPair(int v1, int v2) {
+        this.ensureMatrixCuts();
+        return this.matrixCuts[this.cell(Math.min(v1, v2), Math.max(v1, v2))];
+    }
+
+    /**
+     * Move a vertex to a given position of its layer, shifting one position the vertices between the old and the new
+     * position of the vertex
+     *
+     * @param vertex   vertex to move
+     * @param position new position of the vertex
+     */
+    public void insert(int vertex, int position) {
+        var layer = this.getLayerOfInputVertex(vertex);
+        var step = position > this.getPositionOfInputVertex(vertex) ? 1 : -1;
+        while (this.getPositionOfInputVertex(vertex) != position) {
+            this.fastSwap(vertex, this.getInputVertexAssignedTo(layer, this.getPositionOfInputVertex(vertex) + step));
+        }
+    }
+
     private int getVariationOfSingleSwap(int v1, int v2) {
         if (v1 > v2) {
             int temp = v1;
             v1 = v2;
             v2 = temp;
         }
-        return this.matrixCuts[v2][v1] - this.matrixCuts[v1][v2];
+        return this.matrixCuts[this.cell(v2, v1)] - this.matrixCuts[this.cell(v1, v2)];
+    }
+
+    /**
+     * Get the variation in the objective function if a long edge is moved to a given position (see swapLongEdge).
+     * The solution is not modified. The variation is the sum of the variation of the swap performed in each layer
+     * of the long edge, corrected for the pairs of edges between two consecutive layers whose endpoints are flipped
+     * in both layers, since their crossing is counted twice by the independent swaps but it does not change
+     *
+     * @param longEdge long edge to move
+     * @param position new position of every vertex of the long edge
+     * @return the variation in the objective function
+     */
+    public int getVariationOfLongEdgeSwap(GDInstance.Edge longEdge, int position) {
+        return this.getVariationOfLongEdgeSwap(this.getInstance().getIndexOfLongEdge(longEdge), position);
     }
 
+    /**
+     * Get the variation in the objective function if a long edge is moved to a given position (see swapLongEdge)
+     *
+     * @param longEdge identifier of the long edge to move
+     * @param position new position of every vertex of the long edge
+     * @return the variation in the objective function
+     */
+    public int getVariationOfLongEdgeSwap(int longEdge, int position) {
+        this.ensureMatrixCuts();
+        var ins = this.getInstance();
+        var chain = ins.getChainOfLongEdge(longEdge);
+        var firstLayer = ins.getLayerOfVertex(chain[0]);
+        var variation = 0;
+        var previousVertex = -1;
+        var previousDisplaced = -1;
+        for (int k = 0; k < chain.length; k++) {
+            var vertex = chain[k];
+            var displaced = this.getInputVertexAssignedTo(firstLayer + k, position);
+            if (vertex != displaced) {
+                variation += this.getVariation(vertex, displaced);
+                if (k > 0 && previousVertex != previousDisplaced) {
+                    variation += this.getCorrectionOfConsecutiveSwaps(previousVertex, previousDisplaced, vertex, displaced);
+                }
+            }
+            previousVertex = vertex;
+            previousDisplaced = displaced;
+        }
+        return variation;
+    }
+
+    /**
+     * Correction of the variation of two swaps performed in consecutive layers. Every pair of edges between both layers
+     * whose endpoints are flipped in both layers keeps its crossing, but each swap counts it as toggled
+     *
+     * @param upper1 first vertex swapped in the upper layer
+     * @param upper2 second vertex swapped in the upper layer
+     * @param lower1 first vertex swapped in the lower layer
+     * @param lower2 second vertex swapped in the lower layer
+     * @return the correction to add to the sum of the variations of both swaps
+     */
+    private int getCorrectionOfConsecutiveSwaps(int upper1, int upper2, int lower1, int lower2) {
+        var ins = this.getInstance();
+        var layer = this.getLayerOfInputVertex(upper1);
+        var from = Math.min(this.getPositionOfInputVertex(upper1), this.getPositionOfInputVertex(upper2));
+        var to = Math.max(this.getPositionOfInputVertex(upper1), this.getPositionOfInputVertex(upper2));
+        int[] offsets = ins.getAdjacencyOffsets(GDInstance.TYPE_OF_ADJACENT_VERTEX.SOURCE);
+        int[] adjacentVertices = ins.getAdjacentVertices(GDInstance.TYPE_OF_ADJACENT_VERTEX.SOURCE);
+        var correction = 0;
+        for (int k = 0; k < 2; k++) {
+            var vertex = k == 0 ? upper1 : upper2;
+            var posVertex = this.getPositionOfInputVertex(vertex);
+            for (int a = offsets[vertex]; a < offsets[vertex + 1]; a++) {
+                var vertexAdj = adjacentVertices[a];
+                var posVertexAdj = this.getPositionOfInputVertex(vertexAdj);
+                for (int i = from; i <= to; i++) {
+                    var other = this.getInputVertexAssignedTo(layer, i);
+                    // Each pair of edges is visited once
+                    if (other == vertex || (k == 1 && other == upper1)) continue;
+                    for (int b = offsets[other]; b < offsets[other + 1]; b++) {
+                        var otherAdj = adjacentVertices[b];
+                        if (this.isFlippedBySwap(lower1, lower2, vertexAdj, otherAdj)) {
+                            correction += isCutByPos(posVertex, posVertexAdj, i, this.getPositionOfInputVertex(otherAdj)) ? 2 : -2;
+                        }
+                    }
+                }
+            }
+        }
+        return correction;
+    }
+
+    /**
+     * Check if the relative order of two vertices changes when two vertices of their layer are swapped
+     *
+     * @param v1 first swapped vertex
+     * @param v2 second swapped vertex
+     * @param u  first vertex
+     * @param w  second vertex
+     * @return true if the relative order of u and w changes
+     */
+    private boolean isFlippedBySwap(int v1, int v2, int u, int w) {
+        if (u == w) return false;
+        var uSwapped = u == v1 || u == v2;
+        var wSwapped = w == v1 || w == v2;
+        if (uSwapped && wSwapped) return true;
+        if (!uSwapped && !wSwapped) return false;
+        var pos = this.getPositionOfInputVertex(uSwapped ? w : u);
+        var posV1 = this.getPositionOfInputVertex(v1);
+        var posV2 = this.getPositionOfInputVertex(v2);
+        return Math.min(posV1, posV2) < pos && pos < Math.max(posV1, posV2);
+    }
+
+
+    ////////////////////////////////////////
+    //         Undo journal methods        //
+    ////////////////////////////////////////
+
+    /**
+     * Start recording the changes of the solution, so they can be undone with rollback.
+     * Moves applied after this call (swap, fastSwap, swapLongEdge, setVertexPosition) are journaled,
+     * so a trial move can be evaluated and reverted in O(changes) instead of cloning the solution.
+     * Journaled moves can not be nested.
+     */
+    public void beginMove() {
+        assert !this.journaling : "There is already a journaled move in progress";
+        if (this.journal == null) {
+            this.journal = new int[3 * 64];
+        }
+        this.journalSize = 0;
+        this.journaledObjectiveFunction = this.objectiveFunction;
+        this.journaledNumDirtyLayerPairs = this.numDirtyLayerPairs;
+        this.journaledLayoutHash = this.layoutHash;
+        this.journaledAlignment = this.alignment;
+        this.journaledAlignmentUpdated = this.alignmentUpdated;
+        this.journaledMatrixCutsReplaced = false;
+        this.journaledMatrixCuts = null;
+        this.journaling = true;
+    }
+
+    /**
+     * Undo every change applied since the last call to beginMove
+     */
+    public void rollback() {
+        assert this.journaling : "There is not a journaled move in progress";
+        this.journaling = false;
+        if (this.journaledMatrixCutsReplaced) {
+            this.matrixCuts = this.journaledMatrixCuts;
+            this.matrixCutsUpdated = this.journaledMatrixCutsUpdated;
+        }
+        for (int i = this.journalSize - 3; i >= 0; i -= 3) {
+            var index = this.journal[i + 1];
+            var oldValue = this.journal[i + 2];
+            switch (this.journal[i]) {
+                case MATRIX_CUTS -> this.matrixCuts[index] = oldValue;
+                case ALIGNMENT_OF_LONG_EDGE -> this.alignmentOfLongEdge[index] = oldValue;
+                case HOST_GRAPH -> this.hostGraph[index] = oldValue;
+                case INPUT_GRAPH -> this.inputGraph[index] = oldValue;
+                case POSITION -> this.position[index] = oldValue;
+                case CROSSINGS_OF_LAYER_PAIR -> this.crossingsOfLayerPair[index] = oldValue;
+                case DIRTY_LAYER_PAIR -> this.dirtyLayerPair[index] = oldValue == 1;
+                case LAYER_BOUND_STATE -> this.layerBoundState[index] = (byte) oldValue;
+                default -> throw new IllegalStateException("Unknown journal entry: " + this.journal[i]);
+            }
+        }
+        this.objectiveFunction = this.journaledObjectiveFunction;
+        this.numDirtyLayerPairs = this.journaledNumDirtyLayerPairs;
+        this.layoutHash = this.journaledLayoutHash;
+        this.alignment = this.journaledAlignment;
+        this.alignmentUpdated = this.journaledAlignmentUpdated;
+        this.journaledMatrixCutsReplaced = false;
+        this.journaledMatrixCuts = null;
+        this.journalSize = 0;
+    }
+
+    /**
+     * Keep every change applied since the last call to beginMove and stop recording
+     */
+    public void commit() {
+        assert this.journaling : "There is not a journaled move in progress";
+        this.journaling = false;
+        this.journaledMatrixCutsReplaced = false;
+        this.journaledMatrixCuts = null;
+        this.journalSize = 0;
+    }
+
+    private void write(int structure, int index, int value) {
+        var array = switch (structure) {
+            case HOST_GRAPH -> this.hostGraph;
+            case INPUT_GRAPH -> this.inputGraph;
+            case POSITION -> this.position;
+            default -> throw new IllegalArgumentException("Unknown structure: " + structure);
+        };
+        if (this.journaling) {
+            this.record(structure, index, array[index]);
+        }
+        array[index] = value;
+    }
+
+    private void record(int structure, int index, int oldValue) {
+        if (this.journalSize + 3 > this.journal.length) {
+            this.journal = Arrays.copyOf(this.journal, this.journal.length * 2);
+        }
+        this.journal[this.journalSize++] = structure;
+        this.journal[this.journalSize++] = index;
+        this.journal[this.journalSize++] = oldValue;
+    }
 
     public void swapLongEdge(GDInstance.Edge longEdge, Integer position) {
+        this.swapLongEdge(this.getInstance().getIndexOfLongEdge(longEdge), (int) position);
+    }
+
+    /**
+     * Move every vertex of a long edge to a given position, swapping it with the vertex placed there in its layer
+     *
+     * @param longEdge identifier of the long edge
+     * @param position new position of the long edge
+     */
+    public void swapLongEdge(int longEdge, int position) {
         var ins = this.getInstance();
-        var listOfShortEdges = ins.getListOfShortEdgesOfLongEdge(longEdge);
-        this.fastSwap(longEdge.source(), this.getInputVertexAssignedTo(ins.getLayerOfVertex(longEdge.source()), position));
-        for (GDInstance.Edge shortEdge : listOfShortEdges) {
-            this.fastSwap(shortEdge.target(), this.getInputVertexAssignedTo(ins.getLayerOfVertex(shortEdge.target()), position));
+        for (int vertex : ins.getChainOfLongEdge(longEdge)) {
+            this.fastSwap(vertex, this.getInputVertexAssignedTo(ins.getLayerOfVertex(vertex), position));
         }
     }
 
@@ -535,17 +1301,18 @@ public class GDSolution extends Solution<GDSolution, GDInstance> {
      * @return the alignment of the long edge
      */
     public int getAlignmentOfLongEdge(GDInstance.Edge longEdge) {
-        var ins = this.getInstance();
-        var listOfShortEdges = ins.getListOfShortEdgesOfLongEdge(longEdge);
-        var alignment = 0;
-        var firstVertex = longEdge.source();
-        var firstVertexPosition = this.getPositionOfInputVertex(firstVertex);
-        for (GDInstance.Edge shortEdge : listOfShortEdges) {
-            var vertex = shortEdge.target();
-            var vertexPosition = this.getPositionOfInputVertex(vertex);
-            alignment += Math.abs(vertexPosition - firstVertexPosition);
-        }
-        return alignment;
+        return this.getAlignmentOfLongEdge(this.getInstance().getIndexOfLongEdge(longEdge));
+    }
+
+    /**
+     * Get the alignment of a long edge
+     *
+     * @param longEdge identifier of the long edge
+     * @return the alignment of the long edge
+     */
+    public int getAlignmentOfLongEdge(int longEdge) {
+        this.ensureAlignment();
+        return this.alignmentOfLongEdge[longEdge];
     }
 
     /**
@@ -555,12 +1322,8 @@ public class GDSolution extends Solution<GDSolution, GDInstance> {
      * @return the alignment of the solution, i.e., the sum of the alignment of each long edge
      */
     public int getAlignment() {
-        var ins = this.getInstance();
-        var alignment = 0;
-        for (GDInstance.Edge longEdge : ins.getListOfLongEdges()) {
-            alignment += this.getAlignmentOfLongEdge(longEdge);
-        }
-        return alignment;
+        this.ensureAlignment();
+        return this.alignment;
     }
 
     /**
@@ -570,12 +1333,213 @@ public class GDSolution extends Solution<GDSolution, GDInstance> {
      * @return the alignment of the solution, i.e., the sum of the alignment of each long edge
      */
     public static int getAlignmentSt(GDSolution solution) {
-        var ins = solution.getInstance();
+        return solution.getAlignment();
+    }
+
+    /**
+     * Get the gap of the solution, i.e., the difference between its number of crossings and the lower bound of the
+     * instance (see GDInstance.getLowerBound). A solution with no gap is optimal
+     *
+     * @return gap of the solution
+     */
+    public int getGap() {
+        return (int) this.getScore() - this.getInstance().getLowerBound();
+    }
+
+    /**
+     * Get the gap of the solution
+     *
+     * @return gap of the solution, see getGap
+     */
+    public static int getGapSt(GDSolution solution) {
+        return solution.getGap();
+    }
+
+    /**
+     * Get the variation in the alignment if a long edge is moved to a given position (see swapLongEdge).
+     * The solution is not modified. Only the long edges that share a vertex with the moved ones are visited
+     *
+     * @param longEdge long edge to move
+     * @param position new position of every vertex of the long edge
+     * @return the variation in the alignment
+     */
+    public int getAlignmentVariationOfLongEdgeSwap(GDInstance.Edge longEdge, int position) {
+        return this.getAlignmentVariationOfLongEdgeSwap(this.getInstance().getIndexOfLongEdge(longEdge), position);
+    }
+
+    /**
+     * Get the variation in the alignment if a long edge is moved to a given position (see swapLongEdge)
+     *
+     * @param longEdge identifier of the long edge to move
+     * @param position new position of every vertex of the long edge
+     * @return the variation in the alignment
+     */
+    public int getAlignmentVariationOfLongEdgeSwap(int longEdge, int position) {
+        this.ensureAlignment();
+        var ins = this.getInstance();
+        var chain = ins.getChainOfLongEdge(longEdge);
+        var firstLayer = ins.getLayerOfVertex(chain[0]);
+        // The long edge is completely aligned after the move
+        var variation = -this.alignmentOfLongEdge[longEdge];
+        var epoch = this.nextVisitEpoch();
+        this.visitStamp[longEdge] = epoch;
+        for (int k = 0; k < chain.length; k++) {
+            var displaced = this.getInputVertexAssignedTo(firstLayer + k, position);
+            variation += this.getAlignmentVariationOfLongEdgesOfVertex(chain[k], longEdge, position, epoch);
+            variation += this.getAlignmentVariationOfLongEdgesOfVertex(displaced, longEdge, position, epoch);
+        }
+        return variation;
+    }
+
+    /**
+     * Get the variation of the alignment of the long edges of a vertex that have not been visited yet if a long edge
+     * is moved to a given position, and mark them as visited
+     *
+     * @param vertex   vertex
+     * @param longEdge identifier of the long edge to move
+     * @param position new position of every vertex of the long edge
+     * @param epoch    stamp of the visited long edges
+     * @return the variation of the alignment of the long edges
+     */
+    private int getAlignmentVariationOfLongEdgesOfVertex(int vertex, int longEdge, int position, int epoch) {
+        var variation = 0;
+        for (int other : this.getInstance().getLongEdgesOfVertex(vertex)) {
+            if (this.visitStamp[other] != epoch) {
+                this.visitStamp[other] = epoch;
+                variation += this.alignmentAfterLongEdgeSwap(other, longEdge, position) - this.alignmentOfLongEdge[other];
+            }
+        }
+        return variation;
+    }
+
+    /**
+     * Start a new visit of the long edges, so every long edge is unvisited without clearing the stamps
+     *
+     * @return stamp of the visited long edges
+     */
+    private int nextVisitEpoch() {
+        if (this.visitStamp == null) {
+            this.visitStamp = new int[this.alignmentOfLongEdge.length];
+        }
+        if (++this.visitEpoch == Integer.MAX_VALUE) {
+            Arrays.fill(this.visitStamp, 0);
+            this.visitEpoch = 1;
+        }
+        return this.visitEpoch;
+    }
+
+    /**
+     * Alignment of a long edge if another long edge is moved to a given position
+     *
+     * @param longEdge      identifier of the long edge whose alignment is calculated
+     * @param movedLongEdge identifier of the long edge to move
+     * @param position      new position of the moved long edge
+     * @return alignment of the long edge after the move
+     */
+    private int alignmentAfterLongEdgeSwap(int longEdge, int movedLongEdge, int position) {
+        var chain = this.getInstance().getChainOfLongEdge(longEdge);
+        var sourcePosition = this.positionAfterLongEdgeSwap(chain[0], movedLongEdge, position);
+        var alignment = 0;
+        for (int k = 1; k < chain.length; k++) {
+            alignment += Math.abs(this.positionAfterLongEdgeSwap(chain[k], movedLongEdge, position) - sourcePosition);
+        }
+        return alignment;
+    }
+
+    /**
+     * Position of a vertex if a long edge is moved to a given position
+     *
+     * @param vertex        vertex
+     * @param movedLongEdge identifier of the long edge to move
+     * @param position      new position of the moved long edge
+     * @return position of the vertex after the move
+     */
+    private int positionAfterLongEdgeSwap(int vertex, int movedLongEdge, int position) {
+        var ins = this.getInstance();
+        var chain = ins.getChainOfLongEdge(movedLongEdge);
+        var layer = ins.getLayerOfVertex(vertex);
+        var k = layer - ins.getLayerOfVertex(chain[0]);
+        if (k < 0 || k >= chain.length) {
+            return this.getPositionOfInputVertex(vertex);
+        }
+        var movedVertex = chain[k];
+        if (vertex == movedVertex) {
+            return position;
+        } else if (vertex == this.getInputVertexAssignedTo(layer, position)) {
+            return this.getPositionOfInputVertex(movedVertex);
+        }
+        return this.getPositionOfInputVertex(vertex);
+    }
+
+    /**
+     * Calculate the alignment of every long edge from scratch if it is not consistent with the current layout
+     */
+    private void ensureAlignment() {
+        if (!this.alignmentUpdated) {
+            var ins = this.getInstance();
+            this.alignment = 0;
+            for (int i = 0; i < this.alignmentOfLongEdge.length; i++) {
+                var value = this.calculateAlignmentOfLongEdge(i);
+                this.setAlignmentOfLongEdge(i, value);
+                this.alignment += value;
+            }
+            this.alignmentUpdated = true;
+        }
+    }
+
+    /**
+     * Calculate the alignment of a long edge from scratch
+     *
+     * @param longEdge identifier of the long edge
+     * @return the alignment of the long edge
+     */
+    private int calculateAlignmentOfLongEdge(int longEdge) {
+        var chain = this.getInstance().getChainOfLongEdge(longEdge);
         var alignment = 0;
-        for (GDInstance.Edge longEdge : ins.getListOfLongEdges()) {
-            alignment += solution.getAlignmentOfLongEdge(longEdge);
+        var firstVertexPosition = this.getPositionOfInputVertex(chain[0]);
+        for (int k = 1; k < chain.length; k++) {
+            alignment += Math.abs(this.getPositionOfInputVertex(chain[k]) - firstVertexPosition);
         }
         return alignment;
     }
 
+    /**
+     * Update the alignment of the long edges of a vertex that has been moved.
+     * If the vertex is the source of a long edge, its alignment is recalculated (O(length of the long edge)),
+     * otherwise only the term of the vertex changes (O(1))
+     *
+     * @param vertex      moved vertex
+     * @param oldPosition previous position of the vertex
+     */
+    private void updateAlignment(int vertex, int oldPosition) {
+        var ins = this.getInstance();
+        for (int index : ins.getLongEdgesOfVertex(vertex)) {
+            var source = ins.getChainOfLongEdge(index)[0];
+            int value;
+            if (source == vertex) {
+                value = this.calculateAlignmentOfLongEdge(index);
+            } else {
+                var sourcePosition = this.getPositionOfInputVertex(source);
+                value = this.alignmentOfLongEdge[index] + Math.abs(this.getPositionOfInputVertex(vertex) - sourcePosition) - Math.abs(oldPosition - sourcePosition);
+            }
+            this.alignment += value - this.alignmentOfLongEdge[index];
+            this.setAlignmentOfLongEdge(index, value);
+        }
+    }
+
+    private void setAlignmentOfLongEdge(int index, int value) {
+        if (this.journaling) {
+            this.record(ALIGNMENT_OF_LONG_EDGE, index, this.alignmentOfLongEdge[index]);
+        }
+        this.alignmentOfLongEdge[index] = value;
+    }
+
+    /**
+     * Algorithms to count the crossings of a solution from scratch
+     */
+    public enum CrossingCounting {
+        PAIRWISE, // Compare every pair of short edges of each layer, building the matrix of cuts at the same time. O(E^2) per layer
+        ACCUMULATOR_TREE // Bilayer cross counting of Barth, Junger and Mutzel. O(E log V) per layer, the matrix of cuts is built on demand
+    }
+
 }
@@ -0,0 +1,173 @@
+package es.urjc.etsii.grafo.GD.model;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Line-aware tokenizer of the instance files, which contain non-negative integers separated by blanks.
+ * Integers are parsed in place from a reused buffer, without creating a String per line or per token.
+ * Errors report the file, line and column of the offending token
+ */
+final class InstanceTokenizer {
+
+    private static final int EOF = -1;
+
+    private final Reader reader;
+
+    private final String filename;
+
+    private final char[] buffer = new char[1 << 16];
+
+    /**
+     * Next character of the buffer to read
+     */
+    private int position;
+
+    /**
+     * Number of valid characters of the buffer
+     */
+    private int limit;
+
+    /**
+     * Line and column of the next character
+     */
+    private int line = 1;
+    private int column = 1;
+
+    /**
+     * Line and column of the last token, used to report errors
+     */
+    private int tokenLine = 1;
+    private int tokenColumn = 1;
+
+    InstanceTokenizer(Reader reader, String filename) {
+        this.reader = reader;
+        this.filename = filename;
+    }
+
+    /**
+     * Read the next integer of the current line
+     *
+     * @return integer
+     * @throws IOException if the next token of the line is not an integer
+     */
+    int nextInt() throws IOException {
+        skipBlanks();
+        this.tokenLine = this.line;
+        this.tokenColumn = this.column;
+        int c = peek();
+        if (c < '0' || c > '9') {
+            throw error("expected an integer, found " + describe(c));
+        }
+        long value = 0;
+        while (c >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+            if (value > Integer.MAX_VALUE) {
+                throw error("integer out of range");
+            }
+            advance();
+            c = peek();
+        }
+        if (c != EOF && !isBlank(c) && c != '\n') {
+            throw error("expected an integer, found " + describe(c));
+        }
+        return (int) value;
+    }
+
+    /**
+     * Read the next integer of the current line, checking that it is in a given range
+     *
+     * @param min minimum value (inclusive)
+     * @param max maximum value (inclusive)
+     * @param what name of the value, used to report errors
+     * @return integer
+     * @throws IOException if the next token of the line is not an integer in the range
+     */
+    int nextInt(int min, int max, String what) throws IOException {
+        int value = nextInt();
+        if (value < min || value > max) {
+            throw error(what + " " + value + " out of range [" + min + ", " + max + "]");
+        }
+        return value;
+    }
+
+    /**
+     * Check if there are more tokens in the current line. Errors reported after this call are located at the next
+     * token, or at the end of the line
+     *
+     * @return true if the current line has more tokens, false in other case
+     * @throws IOException if the file can not be read
+     */
+    boolean hasNextInLine() throws IOException {
+        skipBlanks();
+        this.tokenLine = this.line;
+        this.tokenColumn = this.column;
+        int c = peek();
+        return c != EOF && c != '\n';
+    }
+
+    /**
+     * Skip the end of the current line
+     *
+     * @throws IOException if the current line has more tokens
+     */
+    void endLine() throws IOException {
+        if (hasNextInLine()) {
+            throw error("expected end of line, found " + describe(peek()));
+        }
+        if (peek() == '\n') {
+            advance();
+        }
+    }
+
+    /**
+     * Create an error located at the last token
+     *
+     * @param message description of the error
+     * @return exception to throw
+     */
+    IOException error(String message) {
+        return new IOException(filename + ":" + tokenLine + ":" + tokenColumn + ": " + message);
+    }
+
+    private static String describe(int c) {
+        return switch (c) {
+            case EOF -> "end of file";
+            case '\n' -> "end of line";
+            default -> "'" + (char) c + "'";
+        };
+    }
+
+    private void skipBlanks() throws IOException {
+        int c = peek();
+        while (isBlank(c)) {
+            advance();
+            c = peek();
+        }
+    }
+
+    private static boolean isBlank(int c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+
+    private int peek() throws IOException {
+        if (this.position == this.limit) {
+            this.limit = this.reader.read(this.buffer, 0, this.buffer.length);
+            this.position = 0;
+            if (this.limit <= 0) {
+                this.limit = 0;
+                return EOF;
+            }
+        }
+        return this.buffer[this.position];
+    }
+
+    private void advance() {
+        if (this.buffer[this.position++] == '\n') {
+            this.line++;
+            this.column = 1;
+        } else {
+            this.column++;
+        }
+    }
+}
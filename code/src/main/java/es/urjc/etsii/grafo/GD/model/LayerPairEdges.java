@@ -0,0 +1,229 @@
+package es.urjc.etsii.grafo.GD.model;
+
+import java.util.List;
+
+/**
+ * Immutable arrays with the short edges between a layer and the next one, and the degree of their endpoints.
+ * Edges are numbered from 0 to size() - 1 in the same order as GDInstance.shortEdgesOfLayer.
+ * <p>
+ * The position of the endpoints of the edges depends on the solution, so they are kept in a SortedView,
+ * which stores the positions of the endpoints of the edges sorted lexicographically by (source position, target position).
+ * A view is refreshed in O(E + V) with two counting sorts, whose buckets are given by the degree arrays.
+ */
+public final class LayerPairEdges {
+
+    /**
+     * Upper layer of the pair, source vertices of the edges are located in this layer
+     */
+    private final int layer;
+
+    /**
+     * Source vertex of each edge
+     */
+    private final int[] sources;
+
+    /**
+     * Target vertex of each edge
+     */
+    private final int[] targets;
+
+    /**
+     * Number of edges of the pair of each vertex of the upper layer, indexed by its index in the layer
+     */
+    private final int[] outDegree;
+
+    /**
+     * Number of edges of the pair of each vertex of the lower layer, indexed by its index in the layer
+     */
+    private final int[] inDegree;
+
+    LayerPairEdges(GDInstance instance, int layer, List<GDInstance.Edge> edges) {
+        this.layer = layer;
+        this.sources = new int[edges.size()];
+        this.targets = new int[edges.size()];
+        this.outDegree = new int[instance.NumVerticesInLayer(layer)];
+        this.inDegree = new int[instance.NumVerticesInLayer(layer + 1)];
+        for (int e = 0; e < edges.size(); e++) {
+            this.sources[e] = edges.get(e).source();
+            this.targets[e] = edges.get(e).target();
+            this.outDegree[instance.getIndexInLayer(this.sources[e])]++;
+            this.inDegree[instance.getIndexInLayer(this.targets[e])]++;
+        }
+    }
+
+    /**
+     * Get the upper layer of the pair
+     *
+     * @return upper layer of the pair
+     */
+    public int getLayer() {
+        return layer;
+    }
+
+    /**
+     * Get the number of edges between both layers
+     *
+     * @return number of edges
+     */
+    public int size() {
+        return sources.length;
+    }
+
+    /**
+     * Get the source vertex of each edge. The array is shared and must not be modified
+     *
+     * @return source vertex of each edge
+     */
+    public int[] getSources() {
+        return sources;
+    }
+
+    /**
+     * Get the target vertex of each edge. The array is shared and must not be modified
+     *
+     * @return target vertex of each edge
+     */
+    public int[] getTargets() {
+        return targets;
+    }
+
+    /**
+     * Get the number of edges of the pair of a vertex of the upper layer
+     *
+     * @param index index of the vertex in the upper layer (see GDInstance.getIndexInLayer)
+     * @return number of edges whose source is the vertex
+     */
+    public int getOutDegree(int index) {
+        return outDegree[index];
+    }
+
+    /**
+     * Get the number of edges of the pair of a vertex of the lower layer
+     *
+     * @param index index of the vertex in the lower layer (see GDInstance.getIndexInLayer)
+     * @return number of edges whose target is the vertex
+     */
+    public int getInDegree(int index) {
+        return inDegree[index];
+    }
+
+    /**
+     * Create a view of the edges sorted by position. The view is empty until it is refreshed
+     *
+     * @return new sorted view
+     */
+    public SortedView newSortedView() {
+        return new SortedView();
+    }
+
+    /**
+     * Positions of the endpoints of the edges of the pair in a given layout, sorted lexicographically by
+     * (source position, target position). Views are mutable, so a view must not be shared between threads.
+     */
+    public final class SortedView {
+
+        /**
+         * Edge of each position of the view
+         */
+        private final int[] edges = new int[sources.length];
+
+        /**
+         * Position of the source vertex of the edge of each position of the view
+         */
+        private final int[] sourcePositions = new int[sources.length];
+
+        /**
+         * Position of the target vertex of the edge of each position of the view
+         */
+        private final int[] targetPositions = new int[sources.length];
+
+        /**
+         * Edges sorted by the position of their target vertex
+         */
+        private final int[] sortedByTarget = new int[sources.length];
+
+        /**
+         * First position of the view of each position of the layers, used by the counting sorts
+         */
+        private final int[] bucket = new int[Math.max(outDegree.length, inDegree.length)];
+
+        private SortedView() {
+        }
+
+        /**
+         * Sort the edges by the positions of their endpoints in the given solution, in O(E + V)
+         *
+         * @param solution solution
+         */
+        public void refresh(GDSolution solution) {
+            var instance = solution.getInstance();
+            // Counting sort by target position
+            fillBuckets(solution, instance, layer + 1, inDegree);
+            for (int e = 0; e < targets.length; e++) {
+                sortedByTarget[bucket[solution.getPositionOfInputVertex(targets[e])]++] = e;
+            }
+            // Stable counting sort by source position
+            fillBuckets(solution, instance, layer, outDegree);
+            for (int e : sortedByTarget) {
+                int i = bucket[solution.getPositionOfInputVertex(sources[e])]++;
+                edges[i] = e;
+                sourcePositions[i] = solution.getPositionOfInputVertex(sources[e]);
+                targetPositions[i] = solution.getPositionOfInputVertex(targets[e]);
+            }
+        }
+
+        private void fillBuckets(GDSolution solution, GDInstance instance, int layerOfBucket, int[] degree) {
+            int first = 0;
+            for (int p = 0; p < degree.length; p++) {
+                bucket[p] = first;
+                first += degree[instance.getIndexInLayer(solution.getInputVertexAssignedTo(layerOfBucket, p))];
+            }
+        }
+
+        /**
+         * Get the pair of layers of the view
+         *
+         * @return pair of layers
+         */
+        public LayerPairEdges getLayerPairEdges() {
+            return LayerPairEdges.this;
+        }
+
+        /**
+         * Get the number of edges of the view
+         *
+         * @return number of edges
+         */
+        public int size() {
+            return edges.length;
+        }
+
+        /**
+         * Get the edge of each position of the view. The array is shared and must not be modified
+         *
+         * @return edge of each position of the view, see LayerPairEdges.getSources and LayerPairEdges.getTargets
+         */
+        public int[] getEdges() {
+            return edges;
+        }
+
+        /**
+         * Get the position of the source vertex of the edges, in the order of the view. The array is shared and must not be modified
+         *
+         * @return non-decreasing positions of the source vertices
+         */
+        public int[] getSourcePositions() {
+            return sourcePositions;
+        }
+
+        /**
+         * Get the position of the target vertex of the edges, in the order of the view. The array is shared and must not be modified.
+         * The number of crossings between both layers is the number of inversions of this sequence
+         *
+         * @return positions of the target vertices
+         */
+        public int[] getTargetPositions() {
+            return targetPositions;
+        }
+    }
+}
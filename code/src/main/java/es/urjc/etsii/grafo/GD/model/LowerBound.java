@@ -0,0 +1,176 @@
+package es.urjc.etsii.grafo.GD.model;
+
+/**
+ * Lower bounds on the number of crossings.
+ * <p>
+ * The bound of an instance is valid for any layout, and it is the sum of the bounds of each pair of consecutive layers,
+ * the best of:
+ * - Two vertices u and v of a layer with two common adjacent vertices a and b in the next layer always produce a
+ * crossing, either between (u,a) and (v,b) or between (u,b) and (v,a), and the pairs of edges of different quadruples
+ * (u,v,a,b) are different.
+ * - The edges between two layers drawn without crossings form a forest, and removing an edge of each crossing leaves
+ * a drawing without crossings, so there are at least as many crossings as the cycle rank of the edges, m - n + c,
+ * where m is the number of edges, n the number of vertices with edges and c the number of connected components.
+ * <p>
+ * The bound of a layer is only valid for the layouts obtained by reordering the vertices of the layer: the cost of
+ * each pair of vertices of the layer in both relative orders is given by the matrix of cuts of the solution, so the
+ * crossings of the edges of the layer can not be lower than the sum of the cheapest order of each pair. Dummy vertices
+ * and vertices with long edges are fixed by the columns of their long edges, so pairs of fixed vertices keep their
+ * current order
+ */
+public final class LowerBound {
+
+    private LowerBound() {
+    }
+
+    /**
+     * Compute a lower bound on the number of crossings of any layout of an instance
+     *
+     * @param instance instance
+     * @return lower bound on the number of crossings
+     */
+    public static int of(GDInstance instance) {
+        int bound = 0;
+        for (int h = 0; h < instance.NumberOfLayers() - 1; h++) {
+            bound += Math.max(ofCommonAdjacentVertices(instance, h), ofCycleRank(instance, h));
+        }
+        return bound;
+    }
+
+    /**
+     * Count the crossings between a layer and the next one forced by the pairs of vertices of the layer with two or
+     * more common adjacent vertices in the next layer
+     *
+     * @param instance instance
+     * @param layer    upper layer of the pair
+     * @return lower bound on the number of crossings between both layers
+     */
+    private static int ofCommonAdjacentVertices(GDInstance instance, int layer) {
+        int[] successorOffsets = instance.getAdjacencyOffsets(GDInstance.TYPE_OF_ADJACENT_VERTEX.SOURCE);
+        int[] successors = instance.getAdjacentVertices(GDInstance.TYPE_OF_ADJACENT_VERTEX.SOURCE);
+        int[] predecessorOffsets = instance.getAdjacencyOffsets(GDInstance.TYPE_OF_ADJACENT_VERTEX.TARGET);
+        int[] predecessors = instance.getAdjacentVertices(GDInstance.TYPE_OF_ADJACENT_VERTEX.TARGET);
+        // Number of common successors of the current vertex and each vertex of its layer, indexed by index in layer
+        int[] common = new int[instance.NumVerticesInLayer(layer)];
+        int[] touched = new int[instance.NumVerticesInLayer(layer)];
+        int bound = 0;
+        for (int u : instance.getListOfVerticesInLayer(layer)) {
+            int indexOfU = instance.getIndexInLayer(u);
+            int numTouched = 0;
+            for (int i = successorOffsets[u]; i < successorOffsets[u + 1]; i++) {
+                int a = successors[i];
+                for (int j = predecessorOffsets[a]; j < predecessorOffsets[a + 1]; j++) {
+                    int indexOfV = instance.getIndexInLayer(predecessors[j]);
+                    // Each pair of vertices is counted once, from its vertex with the lowest index
+                    if (indexOfV > indexOfU) {
+                        if (common[indexOfV] == 0) {
+                            touched[numTouched++] = indexOfV;
+                        }
+                        common[indexOfV]++;
+                    }
+                }
+            }
+            for (int t = 0; t < numTouched; t++) {
+                int c = common[touched[t]];
+                bound += c * (c - 1) / 2;
+                common[touched[t]] = 0;
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Compute the cycle rank of the edges between a layer and the next one, i.e., the minimum number of edges to
+     * remove to obtain a forest
+     *
+     * @param instance instance
+     * @param layer    upper layer of the pair
+     * @return lower bound on the number of crossings between both layers
+     */
+    private static int ofCycleRank(GDInstance instance, int layer) {
+        var edges = instance.getLayerPairEdges(layer);
+        int numUpper = instance.NumVerticesInLayer(layer);
+        int numLower = instance.NumVerticesInLayer(layer + 1);
+        // Vertices of the upper layer are numbered by their index in the layer, and the ones of the lower layer after them
+        int[] parent = new int[numUpper + numLower];
+        for (int v = 0; v < parent.length; v++) {
+            parent[v] = v;
+        }
+        int numVertices = 0;
+        for (int v = 0; v < numUpper; v++) {
+            if (edges.getOutDegree(v) > 0) numVertices++;
+        }
+        for (int v = 0; v < numLower; v++) {
+            if (edges.getInDegree(v) > 0) numVertices++;
+        }
+        // Every vertex with edges starts as its own component, and each edge that joins two components merges them
+        int numComponents = numVertices;
+        for (int e = 0; e < edges.size(); e++) {
+            int u = find(parent, instance.getIndexInLayer(edges.getSources()[e]));
+            int v = find(parent, numUpper + instance.getIndexInLayer(edges.getTargets()[e]));
+            if (u != v) {
+                parent[Math.max(u, v)] = Math.min(u, v);
+                numComponents--;
+            }
+        }
+        return edges.size() - numVertices + numComponents;
+    }
+
+    private static int find(int[] parent, int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    /**
+     * Compute a lower bound on the number of crossings of the edges of a layer (both with the previous and with the
+     * next layer) among the layouts obtained by reordering the vertices of the layer of the given solution
+     *
+     * @param solution solution
+     * @param layer    layer
+     * @return lower bound on the number of crossings of the edges of the layer
+     */
+    public static int ofLayer(GDSolution solution, int layer) {
+        var instance = solution.getInstance();
+        int numVerticesInLayer = instance.NumVerticesInLayer(layer);
+        int bound = 0;
+        for (int i = 0; i < numVerticesInLayer; i++) {
+            var u = solution.getInputVertexAssignedTo(layer, i);
+            for (int j = i + 1; j < numVerticesInLayer; j++) {
+                var v = solution.getInputVertexAssignedTo(layer, j);
+                var crossings = solution.getCrossingsOfPair(u, v);
+                if (instance.isMovable(u) || instance.isMovable(v)) {
+                    crossings += Math.min(0, solution.getVariationOfFlip(u, v));
+                }
+                bound += crossings;
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Check if the crossings of the edges of a layer are equal to the lower bound of the layer (see ofLayer), i.e.,
+     * there is no pair of vertices of the layer whose order can be flipped to reduce the crossings.
+     * In that case, no swap or insertion of the vertices of the layer improves the solution
+     *
+     * @param solution solution
+     * @param layer    layer
+     * @return true if the lower bound of the layer is reached, false in other case
+     */
+    public static boolean isReachedInLayer(GDSolution solution, int layer) {
+        var instance = solution.getInstance();
+        int numVerticesInLayer = instance.NumVerticesInLayer(layer);
+        for (int i = 0; i < numVerticesInLayer; i++) {
+            var u = solution.getInputVertexAssignedTo(layer, i);
+            for (int j = i + 1; j < numVerticesInLayer; j++) {
+                var v = solution.getInputVertexAssignedTo(layer, j);
+                if ((instance.isMovable(u) || instance.isMovable(v)) && solution.getVariationOfFlip(u, v) < 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
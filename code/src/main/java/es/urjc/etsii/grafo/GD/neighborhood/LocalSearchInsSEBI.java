@@ -0,0 +1,50 @@
+package es.urjc.etsii.grafo.GD.neighborhood;
+
+import es.urjc.etsii.grafo.GD.model.GDInstance;
+import es.urjc.etsii.grafo.GD.model.GDSolution;
+import es.urjc.etsii.grafo.improve.Improver;
+
+/**
+ * Best improvement local search that moves a vertex without long edges to any position of its layer.
+ * The variation of every insertion of a vertex is computed in a single sweep of its layer, accumulating the variation
+ * of flipping the vertex with each vertex it passes over. Dummy vertices and vertices with long edges are never
+ * shifted, so a vertex can not be moved past them
+ */
+public class LocalSearchInsSEBI extends Improver<GDSolution, GDInstance> {
+    @Override
+    protected GDSolution _improve(GDSolution solution) {
+        var improved = true;
+        while (improved) {
+            improved = false;
+            var ins = solution.getInstance();
+            var bestU = -1;
+            var bestPosition = -1;
+            var bestVariation = 0;
+            for (int h = 0; h < ins.NumberOfLayers(); h++) {
+                var numVerticesInLayer = ins.NumVerticesInLayer(h);
+                for (int i = 0; i < numVerticesInLayer; i++) {
+                    var u = solution.getInputVertexAssignedTo(h, i);
+                    if (!ins.isMovable(u)) continue;
+                    for (int step = -1; step <= 1; step += 2) {
+                        var variation = 0;
+                        for (int j = i + step; j >= 0 && j < numVerticesInLayer; j += step) {
+                            var v = solution.getInputVertexAssignedTo(h, j);
+                            if (!ins.isMovable(v)) break;
+                            variation += solution.getVariationOfFlip(u, v);
+                            if (variation < bestVariation) {
+                                bestU = u;
+                                bestPosition = j;
+                                bestVariation = variation;
+                                improved = true;
+                            }
+                        }
+                    }
+                }
+            }
+            if (improved) {
+                solution.insert(bestU, bestPosition);
+            }
+        }
+        return solution;
+    }
+}
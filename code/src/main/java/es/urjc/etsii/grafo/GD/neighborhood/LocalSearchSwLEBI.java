@@ -10,37 +10,37 @@ public class LocalSearchSwLEBI extends Improver<GDSolution, GDInstance> {
     @Override
     protected GDSolution _improve(GDSolution solution) {
         var improved = true;
-        var bestSolution = solution.cloneSolution();
         while (improved) {
             improved = false;
             var ins = solution.getInstance();
-            var bestSolutionTemp = bestSolution.cloneSolution();
-            for (GDInstance.Edge longEdge : ins.getListOfLongEdges()) {
-                var listOfAvailablePositions = getAvailablePositions(bestSolution, longEdge);
-                for (Integer position : listOfAvailablePositions) {
-                    solution = bestSolution.cloneSolution();
-                    solution.swapLongEdge(longEdge, position);
-                    if (solution.isBetterThan(bestSolution)) {
-                        bestSolutionTemp = solution;
+            var bestLongEdge = -1;
+            var bestPosition = -1;
+            for (int longEdge = 0; longEdge < ins.getListOfLongEdges().size(); longEdge++) {
+                var listOfAvailablePositions = getAvailablePositions(solution, longEdge);
+                for (int position : listOfAvailablePositions) {
+                    if (solution.getVariationOfLongEdgeSwap(longEdge, position) < 0) {
+                        bestLongEdge = longEdge;
+                        bestPosition = position;
                         improved = true;
                     }
                 }
             }
             if (improved) {
-                bestSolution = bestSolutionTemp;
+                solution.swapLongEdge(bestLongEdge, bestPosition);
             }
         }
-        return bestSolution;
+        return solution;
     }
 
-    private ArrayList<Integer> getAvailablePositions(GDSolution solution, GDInstance.Edge longEdge) {
+    private ArrayList<Integer> getAvailablePositions(GDSolution solution, int longEdge) {
         ArrayList<Integer> availablePositions = new ArrayList<>();
         var ins = solution.getInstance();
-        var size = ins.getListOfShortEdgesOfLongEdge(longEdge).size();
-        var layer = ins.getLayerOfVertex(longEdge.source());
-        var numVerticesInLayer = ins.NumVerticesInLayer();
+        var chain = ins.getChainOfLongEdge(longEdge);
+        var size = chain.length - 1;
+        var layer = ins.getLayerOfVertex(chain[0]);
+        var numVerticesInLayer = ins.getMinNumVerticesInLayers(layer, layer + size);
         for (int i = 0; i < numVerticesInLayer; i++) {
-            if (i != solution.getPositionOfInputVertex(longEdge.source())) {
+            if (i != solution.getPositionOfInputVertex(chain[0])) {
                 if (isValidPosition(solution, layer, size, i)) {
                     availablePositions.add(i);
                 }
@@ -53,7 +53,7 @@ public class LocalSearchSwLEBI extends Improver<GDSolution, GDInstance> {
         var ins = solution.getInstance();
         if (size == -1) return true;
         var vertex = solution.getInputVertexAssignedTo(layer + size, position);
-        if (ins.isDummy(vertex) || ins.hasLongEdge(vertex)) return false;
+        if (!ins.isMovable(vertex)) return false;
         else return isValidPosition(solution, layer, size - 1, position);
     }
 }
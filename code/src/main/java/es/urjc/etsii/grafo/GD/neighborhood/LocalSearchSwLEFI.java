@@ -10,41 +10,39 @@ public class LocalSearchSwLEFI extends Improver<GDSolution, GDInstance> {
     @Override
     protected GDSolution _improve(GDSolution solution) {
         var improved = true;
-        var bestSolution = solution.cloneSolution();
         while (improved) {
             improved = false;
             var ins = solution.getInstance();
-            var bestSolutionTemp = bestSolution.cloneSolution();
-            ArrayList<GDInstance.Edge> listOfLongEdges = ins.getListOfLongEdges();
-            int i = 0;
-            while (i < listOfLongEdges.size() && !improved) {
-                GDInstance.Edge longEdge = listOfLongEdges.get(i);
-                var listOfAvailablePositions = getAvailablePositions(bestSolution, longEdge);
-                for (Integer position : listOfAvailablePositions) {
-                    solution = bestSolution.cloneSolution();
-                    solution.swapLongEdge(longEdge, position);
-                    if (solution.isBetterThan(bestSolution)) {
-                        bestSolutionTemp = solution;
+            var bestLongEdge = -1;
+            var bestPosition = -1;
+            int longEdge = 0;
+            while (longEdge < ins.getListOfLongEdges().size() && !improved) {
+                var listOfAvailablePositions = getAvailablePositions(solution, longEdge);
+                for (int position : listOfAvailablePositions) {
+                    if (solution.getVariationOfLongEdgeSwap(longEdge, position) < 0) {
+                        bestLongEdge = longEdge;
+                        bestPosition = position;
                         improved = true;
                     }
                 }
-                i++;
+                longEdge++;
             }
             if (improved) {
-                bestSolution = bestSolutionTemp;
+                solution.swapLongEdge(bestLongEdge, bestPosition);
             }
         }
-        return bestSolution;
+        return solution;
     }
 
-    private ArrayList<Integer> getAvailablePositions(GDSolution solution, GDInstance.Edge longEdge) {
+    private ArrayList<Integer> getAvailablePositions(GDSolution solution, int longEdge) {
         ArrayList<Integer> availablePositions = new ArrayList<>();
         var ins = solution.getInstance();
-        var size = ins.getListOfShortEdgesOfLongEdge(longEdge).size();
-        var layer = ins.getLayerOfVertex(longEdge.source());
-        var numVerticesInLayer = ins.NumVerticesInLayer();
+        var chain = ins.getChainOfLongEdge(longEdge);
+        var size = chain.length - 1;
+        var layer = ins.getLayerOfVertex(chain[0]);
+        var numVerticesInLayer = ins.getMinNumVerticesInLayers(layer, layer + size);
         for (int i = 0; i < numVerticesInLayer; i++) {
-            if (i != solution.getPositionOfInputVertex(longEdge.source())) {
+            if (i != solution.getPositionOfInputVertex(chain[0])) {
                 if (isValidPosition(solution, layer, size, i)) {
                     availablePositions.add(i);
                 }
@@ -57,7 +55,7 @@ public class LocalSearchSwLEFI extends Improver<GDSolution, GDInstance> {
         var ins = solution.getInstance();
         if (size == -1) return true;
         var vertex = solution.getInputVertexAssignedTo(layer + size, position);
-        if (ins.isDummy(vertex) || ins.hasLongEdge(vertex)) return false;
+        if (!ins.isMovable(vertex)) return false;
         else return isValidPosition(solution, layer, size - 1, position);
     }
 }
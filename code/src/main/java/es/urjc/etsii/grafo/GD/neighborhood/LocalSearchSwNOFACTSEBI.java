@@ -8,34 +8,37 @@ public class LocalSearchSwNOFACTSEBI extends Improver<GDSolution, GDInstance> {
     @Override
     protected GDSolution _improve(GDSolution solution) {
         var improved = true;
-        var bestSolution = solution.cloneSolution();
         while (improved) {
             improved = false;
             var ins = solution.getInstance();
-            var bestSolutionTemp = bestSolution.cloneSolution();
+            var bestScore = solution.getScore();
+            var bestU = -1;
+            var bestV = -1;
             for (int h = 0; h < ins.NumberOfLayers(); h++) {
-                var listOfVerticesInLayer = ins.getListOfVerticesInLayer(h);
-                for (int i = 0; i < listOfVerticesInLayer.size(); i++) {
-                    var u = listOfVerticesInLayer.get(i);
-                    if (!ins.isDummy(u) && !ins.hasLongEdge(u)) {
-                        for (int j = i + 1; j < listOfVerticesInLayer.size(); j++) {
-                            var v = listOfVerticesInLayer.get(j);
-                            if (!ins.isDummy(v) && !ins.hasLongEdge(v)) {
-                                solution = bestSolution.cloneSolution();
-                                solution.swap(u, v);
-                                if (solution.isBetterThan(bestSolutionTemp)) {
-                                    bestSolutionTemp = solution.cloneSolution();
-                                    improved = true;
-                                }
+                var movableVertices = ins.getMovableVerticesInLayer(h);
+                for (int i = 0; i < movableVertices.length; i++) {
+                    var u = movableVertices[i];
+                    for (int j = i + 1; j < movableVertices.length; j++) {
+                        var v = movableVertices[j];
+                        // Swapping twins never changes the number of crossings
+                        if (!ins.areTwins(u, v)) {
+                            solution.beginMove();
+                            solution.swap(u, v);
+                            if (solution.getScore() < bestScore) {
+                                bestScore = solution.getScore();
+                                bestU = u;
+                                bestV = v;
+                                improved = true;
                             }
+                            solution.rollback();
                         }
                     }
                 }
             }
             if (improved) {
-                bestSolution = bestSolutionTemp;
+                solution.swap(bestU, bestV);
             }
         }
-        return bestSolution;
+        return solution;
     }
 }
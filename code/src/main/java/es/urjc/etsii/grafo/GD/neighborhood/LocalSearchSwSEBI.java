@@ -15,20 +15,21 @@ public class LocalSearchSwSEBI extends Improver<GDSolution, GDInstance> {
             var bestV = -1;
             var bestVariation = 0;
             for (int h = 0; h < ins.NumberOfLayers(); h++) {
-                var listOfVerticesInLayer = ins.getListOfVerticesInLayer(h);
-                for (int i = 0; i < listOfVerticesInLayer.size(); i++) {
-                    var u = listOfVerticesInLayer.get(i);
-                    if (!ins.isDummy(u) && !ins.hasLongEdge(u)) {
-                        for (int j = i + 1; j < listOfVerticesInLayer.size(); j++) {
-                            var v = listOfVerticesInLayer.get(j);
-                            if (!ins.isDummy(v) && !ins.hasLongEdge(v)) {
-                                var variation = solution.getVariation(u, v);
-                                if (variation < bestVariation) {
-                                    bestU = u;
-                                    bestV = v;
-                                    bestVariation = variation;
-                                    improved = true;
-                                }
+                // No swap of the layer improves the solution if the lower bound of the layer is reached
+                if (solution.isLowerBoundReachedInLayer(h)) continue;
+                var movableVertices = ins.getMovableVerticesInLayer(h);
+                for (int i = 0; i < movableVertices.length; i++) {
+                    var u = movableVertices[i];
+                    for (int j = i + 1; j < movableVertices.length; j++) {
+                        var v = movableVertices[j];
+                        // Swapping twins never changes the number of crossings
+                        if (!ins.areTwins(u, v)) {
+                            var variation = solution.getVariation(u, v);
+                            if (variation < bestVariation) {
+                                bestU = u;
+                                bestV = v;
+                                bestVariation = variation;
+                                improved = true;
                             }
                         }
                     }
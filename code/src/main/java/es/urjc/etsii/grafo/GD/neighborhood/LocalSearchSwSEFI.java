@@ -19,25 +19,24 @@ public class LocalSearchSwSEFI extends Improver<GDSolution, GDInstance> {
             int initial = RandomManager.getRandom().nextInt(ins.NumberOfLayers());
             while (h < ins.NumberOfLayers() && !improved) {
                 var l = (h + initial) % ins.NumberOfLayers();
-                var listOfVerticesInLayer = ins.getListOfVerticesInLayer(l);
+                var movableVertices = ins.getMovableVerticesInLayer(l);
                 int i = 0;
-                while (i < listOfVerticesInLayer.size() && !improved) {
-                    var u = listOfVerticesInLayer.get(i);
+                while (i < movableVertices.length && !improved) {
+                    var u = movableVertices[i];
                     int j = i + 1;
-                    if (!ins.isDummy(u) && !ins.hasLongEdge(u)) {
-                        while (j < listOfVerticesInLayer.size() && !improved) {
-                            var v = listOfVerticesInLayer.get(j);
-                            if (!ins.isDummy(v) && !ins.hasLongEdge(v)) {
-                                var variation = solution.getVariation(u, v);
-                                if (variation < bestVariation) {
-                                    bestU = u;
-                                    bestV = v;
-                                    bestVariation = variation;
-                                    improved = true;
-                                }
+                    while (j < movableVertices.length && !improved) {
+                        var v = movableVertices[j];
+                        // Swapping twins never changes the number of crossings
+                        if (!ins.areTwins(u, v)) {
+                            var variation = solution.getVariation(u, v);
+                            if (variation < bestVariation) {
+                                bestU = u;
+                                bestV = v;
+                                bestVariation = variation;
+                                improved = true;
                             }
-                            j++;
                         }
+                        j++;
                     }
                     i++;
                 }
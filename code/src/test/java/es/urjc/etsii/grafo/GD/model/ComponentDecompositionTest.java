@@ -0,0 +1,128 @@
+package es.urjc.etsii.grafo.GD.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ComponentDecompositionTest {
+
+    /**
+     * Build an instance with a star of 24 vertices of the first layer joined to one vertex of the second layer, two
+     * copies of the bundled instance fig9 (which has long edges), and vertices without edges so every layer has at
+     * least the given width. The star is the largest component, so it is located first, and it is much wider in the
+     * first layer than in the second one
+     *
+     * @param width minimum number of vertices of each layer
+     * @return instance
+     */
+    static GDInstance starAndTwoCopiesOfFig9(int width) throws IOException {
+        List<String> fig9 = Files.readAllLines(GDInstanceImporterTest.INSTANCES.resolve("fig9"));
+        String[] header = fig9.get(0).trim().split("\\s+");
+        int n = Integer.parseInt(header[0]);
+        int m = Integer.parseInt(header[1]);
+        int layers = Integer.parseInt(header[2]);
+        int longEdges = Integer.parseInt(header[3]);
+        int starSize = 24;
+        var edges = new ArrayList<String>();
+        var verticesOfLayer = new ArrayList<StringBuilder>();
+        var chains = new ArrayList<String>();
+        for (int h = 0; h < layers; h++) {
+            verticesOfLayer.add(new StringBuilder());
+        }
+        int center = 2 * n + starSize + 1;
+        for (int i = 1; i <= starSize; i++) {
+            edges.add((2 * n + i) + " " + center);
+            verticesOfLayer.get(0).append(2 * n + i).append(' ');
+        }
+        verticesOfLayer.get(1).append(center).append(' ');
+        for (int copy = 0; copy < 2; copy++) {
+            for (int line = 1; line < fig9.size(); line++) {
+                var vertices = new StringBuilder();
+                for (String vertex : fig9.get(line).trim().split("\\s+")) {
+                    vertices.append(Integer.parseInt(vertex) + copy * n).append(' ');
+                }
+                if (line <= m) {
+                    edges.add(vertices.toString().trim());
+                } else if (line <= m + layers) {
+                    verticesOfLayer.get(line - m - 1).append(vertices);
+                } else {
+                    chains.add(vertices.toString().trim());
+                }
+            }
+        }
+        int next = center + 1;
+        for (int h = 0; h < layers; h++) {
+            int size = verticesOfLayer.get(h).toString().trim().split("\\s+").length;
+            for (int i = size; i < width; i++) {
+                verticesOfLayer.get(h).append(next++).append(' ');
+            }
+        }
+        var text = new StringBuilder();
+        text.append(next - 1).append(' ').append(edges.size()).append(' ').append(layers).append(' ').append(2 * longEdges).append('\n');
+        edges.forEach(e -> text.append(e).append('\n'));
+        verticesOfLayer.forEach(l -> text.append(l.toString().trim()).append('\n'));
+        chains.forEach(c -> text.append(c).append('\n'));
+        return new GDInstanceImporter().importInstance(new BufferedReader(new StringReader(text.toString())), "star_fig9_fig9");
+    }
+
+    /**
+     * Solution of an instance that places the vertices of each layer in the order of the instance
+     */
+    static GDSolution inOrder(GDInstance instance) {
+        var solution = new GDSolution(instance);
+        for (int h = 0; h < instance.NumberOfLayers(); h++) {
+            var vertices = instance.getListOfVerticesInLayer(h);
+            for (int i = 0; i < vertices.size(); i++) {
+                solution.setVertexPosition(vertices.get(i), h, i);
+            }
+        }
+        return solution;
+    }
+
+    @Test
+    void stitchedSolutionKeepsTheCrossingsAndAlignmentOfTheComponents() throws IOException {
+        var instance = starAndTwoCopiesOfFig9(34);
+        var decomposition = new ComponentDecomposition(instance);
+        assertEquals(3, decomposition.getNumberOfComponents());
+        assertEquals(23 + 24 + 24, decomposition.getIsolatedVertices().length);
+        assertTrue(decomposition.isStitchable());
+        var solutionOfComponent = new GDSolution[decomposition.getNumberOfComponents()];
+        int crossings = 0;
+        int alignment = 0;
+        for (int c = 0; c < solutionOfComponent.length; c++) {
+            solutionOfComponent[c] = GDSolutionTest.randomSolution(decomposition.getComponent(c), new Random(c));
+            crossings += (int) solutionOfComponent[c].getScore();
+            alignment += solutionOfComponent[c].getAlignment();
+        }
+        var stitched = decomposition.stitch(new GDSolution(instance), solutionOfComponent);
+        assertEquals(crossings, (int) stitched.recalculateScore());
+        assertEquals(alignment, stitched.getAlignment());
+        for (int v = 0; v < instance.TotalNumVertices(); v++) {
+            assertEquals(v, stitched.getInputVertexAssignedTo(instance.getLayerOfVertex(v), stitched.getPositionOfInputVertex(v)), "vertex " + v);
+        }
+        for (int c = 0; c < solutionOfComponent.length; c++) {
+            var component = decomposition.getComponent(c);
+            for (int v = 0; v < component.TotalNumVertices(); v++) {
+                assertEquals(decomposition.getOffset(c) + solutionOfComponent[c].getPositionOfInputVertex(v), stitched.getPositionOfInputVertex(decomposition.getOriginalVertex(c, v)));
+            }
+        }
+    }
+
+    @Test
+    void componentsThatDoNotFitSideBySideAreNotStitched() throws IOException {
+        var decomposition = new ComponentDecomposition(starAndTwoCopiesOfFig9(0));
+        assertFalse(decomposition.isStitchable());
+        assertThrows(IllegalStateException.class, () -> decomposition.stitch(new GDSolution(decomposition.getInstance()), new GDSolution[decomposition.getNumberOfComponents()]));
+    }
+}
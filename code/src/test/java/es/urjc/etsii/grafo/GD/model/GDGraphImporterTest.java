@@ -0,0 +1,216 @@
+package es.urjc.etsii.grafo.GD.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GDGraphImporterTest {
+
+    private final GDGraphImporter importer = new GDGraphImporter(new GDInstanceImporter());
+
+    /**
+     * Check that every short edge goes from a layer to the next one, so the layered graph is acyclic, that long edges
+     * have a vertex in each layer they span, and that dummy vertices and split edges are not counted as real ones
+     *
+     * @param instance instance built from a graph
+     */
+    private static void assertLayered(GDInstance instance) {
+        for (GDInstance.Edge edge : instance.getListOfShortEdges()) {
+            assertEquals(instance.getLayerOfVertex(edge.source()) + 1, instance.getLayerOfVertex(edge.target()), "short edge " + edge);
+        }
+        for (int e = 0; e < instance.NumRealLongEdges(); e++) {
+            int[] chain = instance.getChainOfLongEdge(e);
+            assertEquals(instance.getLayerOfVertex(chain[chain.length - 1]) - instance.getLayerOfVertex(chain[0]) + 1, chain.length, "long edge " + e);
+            for (int i = 1; i < chain.length - 1; i++) {
+                assertTrue(instance.isDummy(chain[i]), "inner vertex of long edge " + e);
+            }
+        }
+        for (int h = 0; h < instance.NumberOfLayers(); h++) {
+            assertTrue(instance.NumVerticesInLayer(h) > 0, "empty layer " + h);
+        }
+        assertEquals(instance.TotalNumVertices(), instance.NumRealVertices() + instance.NumDummyVertices());
+        // Each dummy vertex splits a real edge in one more short edge
+        assertEquals(instance.NumEdges(), instance.NumRealEdges() + instance.NumDummyVertices());
+    }
+
+    /**
+     * Check that each long edge shares layers with less long edges than the number of vertices of its layers, so a
+     * free position remains for it whatever the order in which the long edges are placed
+     *
+     * @param instance instance built from a graph
+     */
+    private static void assertLongEdgesFit(GDInstance instance) {
+        for (int e = 0; e < instance.NumRealLongEdges(); e++) {
+            int[] chain = instance.getChainOfLongEdge(e);
+            int first = instance.getLayerOfVertex(chain[0]);
+            int last = instance.getLayerOfVertex(chain[chain.length - 1]);
+            int sharing = 0;
+            for (int other = 0; other < instance.NumRealLongEdges(); other++) {
+                int[] otherChain = instance.getChainOfLongEdge(other);
+                if (other != e && instance.getLayerOfVertex(otherChain[0]) <= last && instance.getLayerOfVertex(otherChain[otherChain.length - 1]) >= first) {
+                    sharing++;
+                }
+            }
+            assertTrue(sharing < instance.getMinNumVerticesInLayers(first, last), "long edge " + e);
+        }
+    }
+
+    @Test
+    void cyclesAreRemoved() throws IOException {
+        int[] sources = {0, 1, 2, 2};
+        int[] targets = {1, 2, 0, 3};
+        var instance = this.importer.importGraph("cycle", 4, sources, targets);
+        assertLayered(instance);
+        assertEquals(4, instance.NumRealVertices());
+        assertEquals(4, instance.NumRealEdges());
+    }
+
+    @Test
+    void selfLoopsRepeatedEdgesAndIsolatedVerticesAreRemoved() throws IOException {
+        int[] sources = {0, 0, 0, 2, 4};
+        int[] targets = {0, 2, 2, 4, 4};
+        var instance = this.importer.importGraph("repeated", 5, sources, targets);
+        assertLayered(instance);
+        assertEquals(3, instance.NumRealVertices());
+        assertEquals(2, instance.NumRealEdges());
+        assertEquals(3, instance.NumberOfLayers());
+    }
+
+    @Test
+    void chainsThatCanNotBeAlignedAreCountedAsDummyVertices() throws IOException {
+        // 0 -> 3 and 0 -> 2 span several layers, but only one of them can be a long edge since they share the source
+        int[] sources = {0, 1, 2, 0, 0};
+        int[] targets = {1, 2, 3, 3, 2};
+        var instance = this.importer.importGraph("chains", 4, sources, targets);
+        assertLayered(instance);
+        assertEquals(4, instance.NumberOfLayers());
+        assertEquals(1, instance.NumRealLongEdges());
+        assertEquals(4, instance.getChainOfLongEdge(0).length);
+        assertEquals(7, instance.TotalNumVertices());
+        assertEquals(4, instance.NumRealVertices());
+        assertEquals(3, instance.NumDummyVertices());
+        assertEquals(5, instance.NumRealEdges());
+        assertEquals(8, instance.NumEdges());
+    }
+
+    @Test
+    void randomGraphsAreLayered() throws IOException {
+        var random = new Random(0);
+        for (int i = 0; i < 20; i++) {
+            int numVertices = 50 + random.nextInt(250);
+            int numEdges = numVertices + random.nextInt(2 * numVertices);
+            int[] sources = new int[numEdges];
+            int[] targets = new int[numEdges];
+            for (int e = 0; e < numEdges; e++) {
+                // Mostly local edges, as in real graphs, so the number of dummy vertices stays small
+                sources[e] = random.nextInt(numVertices);
+                targets[e] = Math.floorMod(sources[e] + random.nextInt(21) - 10, numVertices);
+            }
+            var instance = this.importer.importGraph("random-" + i, numVertices, sources, targets);
+            assertLayered(instance);
+            assertLongEdgesFit(instance);
+        }
+    }
+
+    @Test
+    void longEdgesOfLargeGraphsAreChosenInTime() {
+        // Chains of a large random layered graph, built directly since the instance of the whole graph does not fit
+        // in the memory of the tests
+        var random = new Random(1);
+        int numberOfLayers = 200;
+        int numRealVerticesInLayer = 500;
+        int numChains = 100_000;
+        int numVertices = numberOfLayers * numRealVerticesInLayer;
+        var layerOf = new ArrayList<Integer>();
+        for (int v = 0; v < numVertices; v++) {
+            layerOf.add(v / numRealVerticesInLayer);
+        }
+        int[][] chains = new int[numChains][];
+        for (int c = 0; c < numChains; c++) {
+            int first = random.nextInt(numberOfLayers - 2);
+            int last = Math.min(numberOfLayers - 1, first + 2 + random.nextInt(10));
+            int[] chain = new int[last - first + 1];
+            chain[0] = first * numRealVerticesInLayer + random.nextInt(numRealVerticesInLayer);
+            for (int i = 1; i < chain.length - 1; i++) {
+                chain[i] = layerOf.size();
+                layerOf.add(first + i);
+            }
+            chain[chain.length - 1] = last * numRealVerticesInLayer + random.nextInt(numRealVerticesInLayer);
+            chains[c] = chain;
+        }
+        int[] layers = layerOf.stream().mapToInt(Integer::intValue).toArray();
+        int[] numVerticesInLayer = new int[numberOfLayers];
+        for (int layer : layers) {
+            numVerticesInLayer[layer]++;
+        }
+
+        long start = System.nanoTime();
+        boolean[] isLongEdge = GDGraphImporter.chooseLongEdges(layers.length, chains, layers, numVerticesInLayer);
+        long elapsed = System.nanoTime() - start;
+        assertTrue(elapsed < 5_000_000_000L, "choosing the long edges took " + elapsed / 1_000_000 + " ms");
+
+        boolean[] isEndpoint = new boolean[layers.length];
+        int numLongEdges = 0;
+        for (int c = 0; c < numChains; c++) {
+            if (isLongEdge[c]) {
+                int[] chain = chains[c];
+                assertFalse(isEndpoint[chain[0]] || isEndpoint[chain[chain.length - 1]], "chain " + c);
+                isEndpoint[chain[0]] = true;
+                isEndpoint[chain[chain.length - 1]] = true;
+                numLongEdges++;
+            }
+        }
+        assertTrue(numLongEdges > 0);
+    }
+
+    @Test
+    void dotFilesAreParsed() throws IOException {
+        var dot = """
+                /* Attributes, ports, comments and subgraphs */
+                digraph "G" {
+                    rankdir=LR;
+                    node [shape=box, label="x -> y"];
+                    a -> b:n -> c [color=red]; // a -> z
+                    "a" -> c
+                    subgraph cluster_0 { d; e } -> a
+                }
+                """;
+        var instance = this.importer.importGraph(new BufferedReader(new StringReader(dot)), "graph.dot");
+        assertLayered(instance);
+        assertEquals(5, instance.NumRealVertices());
+        assertEquals(5, instance.NumRealEdges());
+        assertEquals(1, instance.NumDummyVertices());
+        assertEquals(4, instance.NumberOfLayers());
+    }
+
+    @Test
+    void edgeListsAreParsed() throws IOException {
+        var edges = """
+                # comment
+                x y 1.5
+                y z
+                % comment
+                x z
+                """;
+        var instance = this.importer.importGraph(new BufferedReader(new StringReader(edges)), "graph.edges");
+        assertLayered(instance);
+        assertEquals(3, instance.NumRealVertices());
+        assertEquals(3, instance.NumRealEdges());
+    }
+
+    @Test
+    void invalidGraphsAreRejected() {
+        assertThrows(IOException.class, () -> this.importer.importGraph(new BufferedReader(new StringReader("digraph { a -> }")), "bad.dot"));
+        assertThrows(IOException.class, () -> this.importer.importGraph(new BufferedReader(new StringReader("x\n")), "bad.edges"));
+        assertThrows(IOException.class, () -> this.importer.importGraph(new BufferedReader(new StringReader("digraph { a }")), "empty.dot"));
+    }
+}
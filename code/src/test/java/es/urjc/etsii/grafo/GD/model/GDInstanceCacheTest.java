@@ -0,0 +1,77 @@
+package es.urjc.etsii.grafo.GD.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GDInstanceCacheTest {
+
+    private static final Path INSTANCE = GDInstanceImporterTest.INSTANCES.resolve("ejemplo13_16.txt");
+
+    /**
+     * Position in the files of the cache of the number of types of adjacent vertices, and of the second offset of
+     * the adjacent vertices of the first type
+     */
+    private static final int NUM_TYPES = 8;
+    private static final int SECOND_OFFSET = 20;
+
+    @Test
+    void storedStructuresAreLoadedOnlyForTheSameSizes() throws IOException {
+        var instance = new GDInstanceImporter().importInstance(INSTANCE.toFile());
+        var cache = new GDInstanceCache(Files.createTempDirectory("cache"));
+        cache.store(instance);
+        int numVertices = instance.TotalNumVertices();
+        int numLongEdges = instance.getListOfLongEdges().size();
+
+        var expected = instance.getDerivedStructures();
+        var loaded = cache.load(instance.getFingerprint(), numVertices, numLongEdges);
+        assertNotNull(loaded);
+        assertTrue(Arrays.deepEquals(expected.adjacencyOffsets(), loaded.adjacencyOffsets()));
+        assertTrue(Arrays.deepEquals(expected.adjacentVertices(), loaded.adjacentVertices()));
+        assertTrue(Arrays.equals(expected.vertexFlags(), loaded.vertexFlags()));
+        assertTrue(Arrays.equals(expected.twinClass(), loaded.twinClass()));
+        assertTrue(Arrays.deepEquals(expected.chainOfLongEdge(), loaded.chainOfLongEdge()));
+        assertTrue(Arrays.deepEquals(expected.longEdgesOfVertex(), loaded.longEdgesOfVertex()));
+        assertTrue(Arrays.deepEquals(expected.adjacentVerticesWithLongEdgesOfLongEdge(), loaded.adjacentVerticesWithLongEdgesOfLongEdge()));
+        assertEquals(expected.lowerBound(), loaded.lowerBound());
+
+        assertNull(cache.load(instance.getFingerprint(), numVertices + 1, numLongEdges));
+        assertNull(cache.load(instance.getFingerprint(), numVertices, numLongEdges + 1));
+    }
+
+    @Test
+    void corruptFilesAreCacheMisses() throws IOException {
+        var instance = new GDInstanceImporter().importInstance(INSTANCE.toFile());
+        var cache = new GDInstanceCache(Files.createTempDirectory("cache"));
+        var file = cache.getFolder().resolve(instance.getFingerprint() + ".bin");
+        int numVertices = instance.TotalNumVertices();
+        int numLongEdges = instance.getListOfLongEdges().size();
+
+        cache.store(instance);
+        var bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        bytes.putInt(NUM_TYPES, bytes.getInt(NUM_TYPES) + 1);
+        Files.write(file, bytes.array());
+        assertNull(cache.load(instance.getFingerprint(), numVertices, numLongEdges));
+
+        // Offsets that decrease, although they still start at 0 and end at the number of adjacent vertices
+        cache.store(instance);
+        bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        int last = instance.getAdjacencyOffsets(GDInstance.TYPE_OF_ADJACENT_VERTEX.values()[0])[numVertices];
+        bytes.putInt(SECOND_OFFSET, last + 1);
+        Files.write(file, bytes.array());
+        assertNull(cache.load(instance.getFingerprint(), numVertices, numLongEdges));
+
+        // The corrupt file is overwritten when the instance is stored again
+        cache.store(instance);
+        assertNotNull(cache.load(instance.getFingerprint(), numVertices, numLongEdges));
+    }
+}
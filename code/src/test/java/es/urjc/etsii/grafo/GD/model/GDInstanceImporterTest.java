@@ -0,0 +1,222 @@
+package es.urjc.etsii.grafo.GD.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GDInstanceImporterTest {
+
+    /**
+     * Folder of the bundled instances
+     */
+    static final Path INSTANCES = Path.of("instances");
+
+    /**
+     * Description of the instance format, not an instance
+     */
+    static final String FORMAT_DESCRIPTION = "instance_structure.txt";
+
+    /**
+     * Bundled instance that the parser rejects: vertex 16 is listed in the first and the last layer, and vertex 30 in
+     * no layer. It is kept as it was distributed
+     */
+    static final String INVALID_INSTANCE = "ejemplo13_2.txt";
+
+    /**
+     * Get every bundled instance
+     *
+     * @return paths of the bundled instances
+     */
+    static List<Path> bundledInstances() throws IOException {
+        try (Stream<Path> files = Files.walk(INSTANCES)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(p -> !p.getFileName().toString().equals(FORMAT_DESCRIPTION))
+                    .filter(p -> !p.getFileName().toString().equals(INVALID_INSTANCE))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    @Test
+    void everyBundledInstanceLoads() throws IOException {
+        var importer = new GDInstanceImporter();
+        var paths = bundledInstances();
+        assertFalse(paths.isEmpty(), "no bundled instances found in " + INSTANCES.toAbsolutePath());
+        for (Path path : paths) {
+            GDInstance instance = importer.importInstance(path.toFile());
+            int numVerticesInLayers = 0;
+            for (int h = 0; h < instance.NumberOfLayers(); h++) {
+                numVerticesInLayers += instance.NumVerticesInLayer(h);
+            }
+            assertEquals(instance.TotalNumVertices(), numVerticesInLayers, path.toString());
+            int[] offsets = instance.getAdjacencyOffsets(GDInstance.TYPE_OF_ADJACENT_VERTEX.ALL);
+            assertEquals(instance.TotalNumVertices() + 1, offsets.length, path.toString());
+            assertEquals(2 * instance.NumEdges(), offsets[offsets.length - 1], path.toString());
+        }
+    }
+
+    @Test
+    void invalidBundledInstanceIsRejected() {
+        var importer = new GDInstanceImporter();
+        assertThrows(RuntimeException.class, () -> importer.importInstance(INSTANCES.resolve(INVALID_INSTANCE).toFile()));
+    }
+
+    @Test
+    void verticesWithoutEdgesHaveEmptyAdjacency() {
+        for (String name : new String[]{"instance_8.txt", "ejemplo13_16.txt"}) {
+            GDInstance instance = new GDInstanceImporter().importInstance(new File(INSTANCES.toFile(), name));
+            boolean isolated = false;
+            for (int v = 0; v < instance.TotalNumVertices(); v++) {
+                if (instance.getDegree(v, GDInstance.TYPE_OF_ADJACENT_VERTEX.ALL) == 0) {
+                    isolated = true;
+                    assertTrue(instance.getAdjacentShortVertexListOfVertex(v, GDInstance.TYPE_OF_ADJACENT_VERTEX.ALL).isEmpty(), name);
+                }
+            }
+            assertTrue(isolated, name + " has no vertex without edges");
+        }
+    }
+
+    @Test
+    void collectionsOfTheInstanceAreSharedUnmodifiableViews() {
+        GDInstance instance = new GDInstanceImporter().importInstance(new File(INSTANCES.toFile(), "ejemplo13_16.txt"));
+        assertSame(instance.getListOfShortEdges(), instance.getListOfShortEdges());
+        assertSame(instance.getListOfLongEdges(), instance.getListOfLongEdges());
+        assertSame(instance.getListOfVerticesInLayer(0), instance.getListOfVerticesInLayer(0));
+        assertSame(instance.getAdjacentShortVertexListOfVertex(0, GDInstance.TYPE_OF_ADJACENT_VERTEX.ALL), instance.getAdjacentShortVertexListOfVertex(0, GDInstance.TYPE_OF_ADJACENT_VERTEX.ALL));
+        assertThrows(UnsupportedOperationException.class, () -> instance.getListOfVerticesInLayer(0).clear());
+        assertThrows(UnsupportedOperationException.class, () -> instance.getListOfLongEdges().clear());
+        var longEdge = instance.getListOfLongEdges().get(0);
+        assertThrows(UnsupportedOperationException.class, () -> instance.getListOfShortEdgesOfLongEdge(longEdge).clear());
+        assertThrows(UnsupportedOperationException.class, () -> instance.getSetOfAdjacentVerticesWithLongEdgesOfLongEdge(longEdge).clear());
+    }
+
+    @Test
+    void binaryFilesKeepTheInstanceAndItsDerivedStructures() throws IOException {
+        var importer = new GDInstanceImporter();
+        var folder = Files.createTempDirectory("gdb");
+        var paths = new ArrayList<>(bundledInstances());
+        var graph = folder.resolve("graph.dot");
+        // Its chains can not be aligned as long edges, which changes the counters of the instance
+        Files.writeString(graph, "digraph { a -> b; b -> c; c -> d; a -> d; a -> c; }");
+        paths.add(graph);
+        var output = Files.createDirectory(folder.resolve("binary"));
+        for (Path path : paths) {
+            GDInstance instance = importer.importInstance(path.toFile());
+            var binary = output.resolve(path.getFileName() + GDBinaryFormat.EXTENSION);
+            GDBinaryFormat.write(instance, binary);
+            GDInstance loaded = importer.importInstance(binary.toFile());
+            Files.delete(binary);
+
+            assertEquals(instance.getId(), loaded.getId(), path.toString());
+            assertEquals(instance.NumRealVertices(), loaded.NumRealVertices(), path.toString());
+            assertEquals(instance.NumDummyVertices(), loaded.NumDummyVertices(), path.toString());
+            assertEquals(instance.NumRealEdges(), loaded.NumRealEdges(), path.toString());
+            assertEquals(instance.NumDummyEdges(), loaded.NumDummyEdges(), path.toString());
+            assertEquals(instance.getLowerBound(), loaded.getLowerBound(), path.toString());
+
+            // The stored structures must be the ones that would be computed from the loaded instance
+            int[] sources = loaded.getListOfShortEdges().stream().mapToInt(GDInstance.Edge::source).toArray();
+            int[] targets = loaded.getListOfShortEdges().stream().mapToInt(GDInstance.Edge::target).toArray();
+            int[][] verticesOfLayer = new int[loaded.NumberOfLayers()][];
+            for (int h = 0; h < loaded.NumberOfLayers(); h++) {
+                verticesOfLayer[h] = loaded.getListOfVerticesInLayer(h).stream().mapToInt(Integer::intValue).toArray();
+            }
+            int[][] chainOfLongEdge = new int[loaded.NumRealLongEdges()][];
+            for (int e = 0; e < chainOfLongEdge.length; e++) {
+                chainOfLongEdge[e] = loaded.getChainOfLongEdge(e);
+            }
+            GDInstance rebuilt = importer.importInstance(loaded.getId(), loaded.TotalNumVertices(), sources, targets, verticesOfLayer, chainOfLongEdge);
+            assertEquals(rebuilt.getFingerprint(), loaded.getFingerprint(), path.toString());
+            var expected = rebuilt.getDerivedStructures();
+            var actual = loaded.getDerivedStructures();
+            assertTrue(Arrays.deepEquals(expected.adjacencyOffsets(), actual.adjacencyOffsets()), path.toString());
+            assertTrue(Arrays.deepEquals(expected.adjacentVertices(), actual.adjacentVertices()), path.toString());
+            assertTrue(Arrays.equals(expected.vertexFlags(), actual.vertexFlags()), path.toString());
+            assertTrue(Arrays.equals(expected.twinClass(), actual.twinClass()), path.toString());
+            assertTrue(Arrays.deepEquals(expected.chainOfLongEdge(), actual.chainOfLongEdge()), path.toString());
+            assertTrue(Arrays.deepEquals(expected.longEdgesOfVertex(), actual.longEdgesOfVertex()), path.toString());
+            assertTrue(Arrays.deepEquals(expected.adjacentVerticesWithLongEdgesOfLongEdge(), actual.adjacentVerticesWithLongEdgesOfLongEdge()), path.toString());
+        }
+    }
+
+    @Test
+    void instancesInBothFormatsAreRejected() throws IOException {
+        var importer = new GDInstanceImporter();
+        var folder = Files.createTempDirectory("gdb");
+        var text = folder.resolve("instance_8.txt");
+        Files.copy(INSTANCES.resolve("instance_8.txt"), text);
+        var binary = folder.resolve("instance_8.txt" + GDBinaryFormat.EXTENSION);
+        GDBinaryFormat.write(importer.importInstance(text.toFile()), binary);
+        assertThrows(IllegalArgumentException.class, () -> importer.importInstance(binary.toFile()));
+        Files.delete(text);
+        assertEquals("instance_8.txt", importer.importInstance(binary.toFile()).getId());
+    }
+
+    @Test
+    void theFolderOfTheFirstInstanceIsPreloaded() throws IOException, InterruptedException {
+        var folder = Files.createTempDirectory("preload");
+        var names = List.of("ejemplo13_16.txt", "instance_8.txt", "instancia5.txt");
+        for (String name : names) {
+            Files.copy(INSTANCES.resolve(name), folder.resolve(name));
+        }
+        var importer = new GDInstanceImporter("", Long.MAX_VALUE, 2);
+        importer.importInstance(folder.resolve(names.get(0)).toFile());
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (importer.getMemoryCache().size() < names.size() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(names.size(), importer.getMemoryCache().size());
+        for (String name : names) {
+            assertEquals(name, importer.importInstance(folder.resolve(name).toFile()).getId());
+        }
+        assertEquals(names.size(), importer.getMemoryCache().size());
+        assertThrows(IllegalArgumentException.class, () -> new GDInstanceImporter("", 0, 2));
+    }
+
+    @Test
+    void everyVertexMustBeInExactlyOneLayer() throws IOException {
+        var importer = new GDInstanceImporter();
+        assertThrows(IOException.class, () -> importer.importInstance(new BufferedReader(new StringReader("3 1 2 0\n1 2\n1\n2\n")), "missing.txt"));
+        assertThrows(IOException.class, () -> importer.importInstance(new BufferedReader(new StringReader("3 1 2 0\n1 2\n1 3\n2 3\n")), "repeated.txt"));
+
+        // Vertex 2 is replaced by vertex 3 in the second layer, so vertex 3 is in both layers and vertex 2 in none
+        var folder = Files.createTempDirectory("gdb");
+        var binary = folder.resolve("layers.txt" + GDBinaryFormat.EXTENSION);
+        GDBinaryFormat.write(importer.importInstance(new BufferedReader(new StringReader("3 1 2 0\n1 2\n1 3\n2\n")), "layers.txt"), binary);
+        var ints = ByteBuffer.wrap(Files.readAllBytes(binary)).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        // Offsets of the layers followed by their vertices
+        int[] layers = {0, 2, 3, 0, 2, 1};
+        int start = -1;
+        for (int i = 0; i + layers.length <= ints.limit() && start < 0; i++) {
+            int[] window = new int[layers.length];
+            ints.get(i, window);
+            if (Arrays.equals(layers, window)) {
+                start = i;
+            }
+        }
+        assertTrue(start >= 0, "layers not found in " + binary);
+        ints.put(start + layers.length - 1, 2);
+        var bytes = new byte[ints.limit() * Integer.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().put(ints.rewind());
+        Files.write(binary, bytes);
+        assertThrows(IOException.class, () -> GDBinaryFormat.read(importer, binary));
+        Files.delete(binary);
+    }
+}
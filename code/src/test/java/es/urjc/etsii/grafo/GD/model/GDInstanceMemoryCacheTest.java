@@ -0,0 +1,63 @@
+package es.urjc.etsii.grafo.GD.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GDInstanceMemoryCacheTest {
+
+    private static final Path INSTANCE = GDInstanceImporterTest.INSTANCES.resolve("instance_8.txt");
+
+    @Test
+    void concurrentLoadsOfTheSameFileLoadItOnce() throws InterruptedException, ExecutionException {
+        var cache = new GDInstanceMemoryCache(Long.MAX_VALUE);
+        var importer = new GDInstanceImporter();
+        var loads = new AtomicInteger();
+        var start = new CountDownLatch(1);
+        int numThreads = 8;
+        var executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            var instances = new ArrayList<Future<GDInstance>>();
+            for (int i = 0; i < numThreads; i++) {
+                instances.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get(INSTANCE, path -> {
+                        loads.incrementAndGet();
+                        return importer.importInstance(path.toFile());
+                    });
+                }));
+            }
+            start.countDown();
+            for (var instance : instances) {
+                assertSame(instances.get(0).get(), instance.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void failedLoadsAreNotCached() {
+        var cache = new GDInstanceMemoryCache(Long.MAX_VALUE);
+        assertThrows(IllegalStateException.class, () -> cache.get(INSTANCE, path -> {
+            throw new IllegalStateException("load failed");
+        }));
+        assertEquals(0, cache.size());
+        var instance = cache.get(INSTANCE, path -> new GDInstanceImporter().importInstance(path.toFile()));
+        assertSame(instance, cache.get(INSTANCE, path -> {
+            throw new IllegalStateException("loaded again");
+        }));
+    }
+}
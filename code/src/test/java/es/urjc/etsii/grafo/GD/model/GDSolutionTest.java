@@ -0,0 +1,227 @@
+package es.urjc.etsii.grafo.GD.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GDSolutionTest {
+
+    /**
+     * Bundled instances used to compare the incremental structures of the solutions with a full recalculation
+     */
+    static final List<Path> INSTANCES = List.of(
+            Path.of("instances", "ejemplo13_16.txt"),
+            Path.of("instances", "instance_8.txt"),
+            Path.of("instances", "generated", "small", "small-1.in")
+    );
+
+    /**
+     * Number of random moves applied to each solution
+     */
+    static final int MOVES = 300;
+
+    /**
+     * Create a solution that places the vertices of each layer in random order
+     *
+     * @param instance instance
+     * @param random   source of randomness
+     * @return solution
+     */
+    static GDSolution randomSolution(GDInstance instance, Random random) {
+        var solution = new GDSolution(instance);
+        for (int h = 0; h < instance.NumberOfLayers(); h++) {
+            var vertices = new ArrayList<>(instance.getListOfVerticesInLayer(h));
+            Collections.shuffle(vertices, random);
+            for (int i = 0; i < vertices.size(); i++) {
+                solution.setVertexPosition(vertices.get(i), h, i);
+            }
+        }
+        return solution;
+    }
+
+    /**
+     * Swap two random vertices of a random layer
+     */
+    static void randomSwap(GDSolution solution, Random random) {
+        var instance = solution.getInstance();
+        var layer = random.nextInt(instance.NumberOfLayers());
+        var vertices = instance.getListOfVerticesInLayer(layer);
+        solution.swap(vertices.get(random.nextInt(vertices.size())), vertices.get(random.nextInt(vertices.size())));
+    }
+
+    /**
+     * Build a new solution with the same layout, so none of the incremental structures of the given solution is reused
+     *
+     * @param solution solution
+     * @return solution with the same layout and empty caches
+     */
+    static GDSolution sameLayout(GDSolution solution) {
+        var instance = solution.getInstance();
+        var copy = new GDSolution(instance);
+        for (int h = 0; h < instance.NumberOfLayers(); h++) {
+            for (int i = 0; i < instance.NumVerticesInLayer(h); i++) {
+                copy.setVertexPosition(solution.getInputVertexAssignedTo(h, i), h, i);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Count the crossings of the layout of a solution from scratch, with both counting methods
+     */
+    static int countCrossings(GDSolution solution, String message) {
+        var pairwise = sameLayout(solution);
+        pairwise.setCrossingCounting(GDSolution.CrossingCounting.PAIRWISE);
+        var accumulatorTree = sameLayout(solution);
+        accumulatorTree.setCrossingCounting(GDSolution.CrossingCounting.ACCUMULATOR_TREE);
+        int crossings = (int) pairwise.recalculateScore();
+        assertEquals(crossings, (int) accumulatorTree.recalculateScore(), message + ": accumulator tree");
+        return crossings;
+    }
+
+    /**
+     * Get the position of every vertex of a solution
+     */
+    static int[] positions(GDSolution solution) {
+        var positions = new int[solution.getInstance().TotalNumVertices()];
+        for (int v = 0; v < positions.length; v++) {
+            positions[v] = solution.getPositionOfInputVertex(v);
+        }
+        return positions;
+    }
+
+    /**
+     * Apply a random move to a solution: a swap, a fast swap, an insertion or a long edge swap. The variation of the
+     * move predicted by the solution is checked against the variation of the score after the move
+     */
+    static void randomMove(GDSolution solution, Random random, String message) {
+        var instance = solution.getInstance();
+        var layer = random.nextInt(instance.NumberOfLayers());
+        var vertices = instance.getListOfVerticesInLayer(layer);
+        var u = vertices.get(random.nextInt(vertices.size()));
+        var v = vertices.get(random.nextInt(vertices.size()));
+        var before = (int) solution.getScore();
+        var numLongEdges = instance.getListOfLongEdges().size();
+        switch (random.nextInt(numLongEdges > 0 ? 4 : 3)) {
+            case 0 -> {
+                var variation = solution.getVariation(u, v);
+                solution.swap(u, v);
+                assertEquals(before + variation, (int) solution.getScore(), message + ": swap");
+            }
+            case 1 -> {
+                var variation = solution.getVariation(u, v);
+                solution.fastSwap(u, v);
+                assertEquals(before + variation, (int) solution.getScore(), message + ": fast swap");
+            }
+            case 2 -> solution.insert(u, random.nextInt(vertices.size()));
+            default -> {
+                var longEdge = random.nextInt(numLongEdges);
+                var chain = instance.getChainOfLongEdge(longEdge);
+                var firstLayer = instance.getLayerOfVertex(chain[0]);
+                var position = random.nextInt(instance.getMinNumVerticesInLayers(firstLayer, firstLayer + chain.length - 1));
+                var variation = solution.getVariationOfLongEdgeSwap(longEdge, position);
+                var alignment = solution.getAlignment();
+                var alignmentVariation = solution.getAlignmentVariationOfLongEdgeSwap(longEdge, position);
+                solution.swapLongEdge(longEdge, position);
+                assertEquals(before + variation, (int) solution.getScore(), message + ": long edge swap");
+                assertEquals(alignment + alignmentVariation, solution.getAlignment(), message + ": alignment of long edge swap");
+            }
+        }
+    }
+
+    @Test
+    void incrementalScoreMatchesFullRecalculation() {
+        var importer = new GDInstanceImporter();
+        var random = new Random(2);
+        for (Path path : INSTANCES) {
+            var instance = importer.importInstance(path.toFile());
+            for (var counting : GDSolution.CrossingCounting.values()) {
+                var solution = randomSolution(instance, random);
+                solution.setCrossingCounting(counting);
+                for (int move = 0; move < MOVES; move++) {
+                    var message = path + ", " + counting + ", move " + move;
+                    var score = (int) solution.getScore();
+                    var alignment = solution.getAlignment();
+                    var layoutHash = solution.getLayoutHash();
+                    var positions = positions(solution);
+                    var rollback = random.nextBoolean();
+                    solution.beginMove();
+                    randomMove(solution, random, message);
+                    if (rollback) {
+                        solution.rollback();
+                        assertEquals(score, (int) solution.getScore(), message + ": score after rollback");
+                        assertEquals(alignment, solution.getAlignment(), message + ": alignment after rollback");
+                        assertEquals(layoutHash, solution.getLayoutHash(), message + ": layout hash after rollback");
+                        assertArrayEquals(positions, positions(solution), message + ": layout after rollback");
+                    } else {
+                        solution.commit();
+                    }
+                    assertEquals(countCrossings(solution, message), (int) solution.getScore(), message);
+                    assertEquals(sameLayout(solution).getAlignment(), solution.getAlignment(), message + ": alignment");
+                    assertEquals(sameLayout(solution).getLayoutHash(), solution.getLayoutHash(), message + ": layout hash");
+                }
+            }
+        }
+    }
+
+    @Test
+    void cachedLowerBoundOfLayersMatchesItsRecalculation() {
+        var importer = new GDInstanceImporter();
+        var random = new Random(19);
+        for (Path path : INSTANCES) {
+            var instance = importer.importInstance(path.toFile());
+            var solution = randomSolution(instance, random);
+            for (int move = 0; move < MOVES; move++) {
+                var rollback = random.nextBoolean();
+                if (rollback) {
+                    solution.beginMove();
+                }
+                randomSwap(solution, random);
+                for (int h = 0; h < instance.NumberOfLayers(); h++) {
+                    assertEquals(LowerBound.isReachedInLayer(solution, h), solution.isLowerBoundReachedInLayer(h), path + ", layer " + h);
+                }
+                if (rollback) {
+                    solution.rollback();
+                }
+                for (int h = 0; h < instance.NumberOfLayers(); h++) {
+                    assertEquals(LowerBound.isReachedInLayer(solution, h), solution.isLowerBoundReachedInLayer(h), path + ", layer " + h);
+                }
+            }
+        }
+    }
+
+    @Test
+    void layoutHashFollowsTheLayoutAfterMoves() {
+        var importer = new GDInstanceImporter();
+        var random = new Random(23);
+        for (Path path : INSTANCES) {
+            var instance = importer.importInstance(path.toFile());
+            var solution = randomSolution(instance, random);
+            for (int move = 0; move < MOVES; move++) {
+                var rollback = random.nextBoolean();
+                if (rollback) {
+                    solution.beginMove();
+                }
+                randomMove(solution, random, path + ", move " + move);
+                if (rollback) {
+                    solution.rollback();
+                }
+                var copy = sameLayout(solution);
+                assertEquals(copy.getLayoutHash(), solution.getLayoutHash(), path + ", move " + move);
+                assertEquals(copy.layoutHashCode(), solution.layoutHashCode(), path + ", move " + move);
+                assertTrue(solution.sameLayout(copy), path + ", move " + move);
+            }
+            var other = randomSolution(instance, random);
+            assertEquals(Arrays.equals(positions(solution), positions(other)), solution.sameLayout(other), path.toString());
+        }
+    }
+}
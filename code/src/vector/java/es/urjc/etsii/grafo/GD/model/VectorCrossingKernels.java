@@ -0,0 +1,58 @@
+package es.urjc.etsii.grafo.GD.model;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API implementation of the kernels of CrossingKernels.
+ * This class is only compiled with the Maven profile "vector", and only loaded by CrossingKernels when the module
+ * jdk.incubator.vector is present, so it must not be referenced from other classes.
+ */
+final class VectorCrossingKernels implements CrossingKernels.Implementation {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    @Override
+    public int lanes() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public int countCrossingsWith(int[] sources, int[] targets, int from, int to, int posSource, int posTarget) {
+        int crossings = 0;
+        int i = from;
+        int upperBound = from + SPECIES.loopBound(to - from);
+        for (; i < upperBound; i += SPECIES.length()) {
+            var s = IntVector.fromArray(SPECIES, sources, i);
+            var t = IntVector.fromArray(SPECIES, targets, i);
+            VectorMask<Integer> left = s.compare(VectorOperators.LT, posSource).and(t.compare(VectorOperators.GT, posTarget));
+            VectorMask<Integer> right = s.compare(VectorOperators.GT, posSource).and(t.compare(VectorOperators.LT, posTarget));
+            crossings += left.or(right).trueCount();
+        }
+        return crossings + CrossingKernels.Scalar.crossingsWith(sources, targets, i, to, posSource, posTarget);
+    }
+
+    @Override
+    public int countLessThan(int[] values, int from, int to, int pivot) {
+        int count = 0;
+        int i = from;
+        int upperBound = from + SPECIES.loopBound(to - from);
+        for (; i < upperBound; i += SPECIES.length()) {
+            count += IntVector.fromArray(SPECIES, values, i).compare(VectorOperators.LT, pivot).trueCount();
+        }
+        return count + CrossingKernels.Scalar.lessThan(values, i, to, pivot);
+    }
+
+    @Override
+    public int countGreaterThan(int[] values, int from, int to, int pivot) {
+        int count = 0;
+        int i = from;
+        int upperBound = from + SPECIES.loopBound(to - from);
+        for (; i < upperBound; i += SPECIES.length()) {
+            count += IntVector.fromArray(SPECIES, values, i).compare(VectorOperators.GT, pivot).trueCount();
+        }
+        return count + CrossingKernels.Scalar.greaterThan(values, i, to, pivot);
+    }
+}